@@ -0,0 +1,129 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class ExecutionPartitionRepositoryIntegrationTest {
+
+  private static final YearMonth MONTH = YearMonth.of(2001, 3);
+  private static final String EXECUTIONS_PARTITION = "executions_p200103";
+  private static final String RESPONSES_PARTITION = "execution_responses_p200103";
+  private static final String ARCHIVE_SCHEMA = "dhis2integration_archive_test";
+
+  @Autowired
+  private ExecutionPartitionRepository partitionRepository;
+
+  @Autowired
+  private ExecutionRepository executionRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Test
+  public void shouldCreatePartitionsOnce() {
+    // when
+    partitionRepository.createPartitions(MONTH);
+    partitionRepository.createPartitions(MONTH);
+
+    // then
+    assertThat(partitionRepository.findPartitionsBefore(MONTH.plusMonths(1)))
+        .contains(EXECUTIONS_PARTITION, RESPONSES_PARTITION);
+    assertThat(partitionRepository.findPartitionsBefore(MONTH))
+        .doesNotContain(EXECUTIONS_PARTITION, RESPONSES_PARTITION);
+  }
+
+  @Test
+  public void shouldInsertExecutionIntoPartitionOfItsMonth() {
+    // given
+    Clock clock = Clock.fixed(Instant.parse("2001-03-15T10:00:00Z"), ZoneOffset.UTC);
+    Execution execution = Execution
+        .forAutomaticExecution(new IntegrationDataBuilder().build(), UUID.randomUUID(), clock);
+
+    // when
+    executionRepository.saveAndFlush(execution);
+
+    // then
+    assertThat(count("dhis2integration." + EXECUTIONS_PARTITION, execution.getId()))
+        .isEqualTo(1);
+    assertThat(count("ONLY dhis2integration.executions", execution.getId())).isZero();
+    assertThat(executionRepository.exists(execution.getId())).isTrue();
+  }
+
+  @Test
+  public void shouldDropPartition() {
+    // given
+    partitionRepository.createPartitions(MONTH);
+
+    // when
+    partitionRepository.removePartition(EXECUTIONS_PARTITION, "");
+
+    // then
+    assertThat(partitionRepository.findPartitionsBefore(MONTH.plusMonths(1)))
+        .doesNotContain(EXECUTIONS_PARTITION)
+        .contains(RESPONSES_PARTITION);
+    assertThat(findTable("dhis2integration." + EXECUTIONS_PARTITION)).isNull();
+  }
+
+  @Test
+  public void shouldArchivePartition() {
+    // given
+    partitionRepository.createPartitions(MONTH);
+
+    // when
+    partitionRepository.removePartition(EXECUTIONS_PARTITION, ARCHIVE_SCHEMA);
+
+    // then
+    assertThat(partitionRepository.findPartitionsBefore(MONTH.plusMonths(1)))
+        .doesNotContain(EXECUTIONS_PARTITION);
+    assertThat(findTable(ARCHIVE_SCHEMA + "." + EXECUTIONS_PARTITION)).isNotNull();
+  }
+
+  private long count(String table, UUID id) {
+    return ((Number) entityManager
+        .createNativeQuery("SELECT COUNT(*) FROM " + table + " WHERE id = CAST(:id AS uuid)")
+        .setParameter("id", id.toString())
+        .getSingleResult()).longValue();
+  }
+
+  private Object findTable(String name) {
+    return entityManager
+        .createNativeQuery("SELECT CAST(to_regclass(:name) AS TEXT)")
+        .setParameter("name", name)
+        .getSingleResult();
+  }
+}
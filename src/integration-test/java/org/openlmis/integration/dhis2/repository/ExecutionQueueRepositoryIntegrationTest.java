@@ -0,0 +1,245 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Sets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.ConfigurationDataBuilder;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.Configuration;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.openlmis.integration.dhis2.domain.Integration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+
+public class ExecutionQueueRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<ExecutionQueueItem> {
+
+  private static final Instant NOW = Instant.now();
+  private static final String WORKER_ID = "worker-1";
+
+  @Autowired
+  private ExecutionQueueRepository repository;
+
+  @Autowired
+  private IntegrationRepository integrationRepository;
+
+  @Autowired
+  private ConfigurationRepository configurationRepository;
+
+  private Integration integration;
+
+  @Override
+  CrudRepository<ExecutionQueueItem, UUID> getRepository() {
+    return repository;
+  }
+
+  @Override
+  ExecutionQueueItem generateInstance() {
+    return ExecutionQueueItem.forAutomaticExecution(integration, UUID.randomUUID(),
+        UUID.randomUUID(), Clock.fixed(NOW.plusSeconds(getNextInstanceNumber()), ZoneOffset.UTC));
+  }
+
+  @Before
+  public void setUp() {
+    Configuration configuration = new ConfigurationDataBuilder().buildAsNew();
+    configurationRepository.save(configuration);
+
+    integration = integrationRepository.save(new IntegrationDataBuilder()
+        .withConfiguration(configuration)
+        .buildAsNew());
+  }
+
+  @Test
+  public void shouldFindAutomaticExecutionsBeforeManualOnes() {
+    // given
+    repository.save(ExecutionQueueItem.forManualExecution(
+        integration, null, UUID.randomUUID(), null, null, Clock.fixed(NOW, ZoneOffset.UTC)));
+    ExecutionQueueItem first = repository.save(generateInstance());
+    repository.saveAndFlush(generateInstance());
+
+    // when
+    ExecutionQueueItem found = repository
+        .findNextAvailableForUpdate(ZonedDateTime.now(ZoneOffset.UTC), 10, getLane());
+
+    // then
+    assertThat(found).isEqualTo(first);
+  }
+
+  @Test
+  public void shouldNotFindLockedItems() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    ExecutionQueueItem locked = generateInstance();
+    locked.lock(WORKER_ID, now.plusMinutes(5));
+    repository.save(locked);
+
+    ExecutionQueueItem expired = generateInstance();
+    expired.lock(WORKER_ID, now.minusMinutes(5));
+    repository.save(expired);
+
+    ExecutionQueueItem free = repository.saveAndFlush(generateInstance());
+
+    // when
+    ExecutionQueueItem next = repository.findNextAvailableForUpdate(now, 10, getLane());
+    List<ExecutionQueueItem> available = repository.findAvailable(now);
+
+    // then
+    assertThat(next).isEqualTo(expired);
+    assertThat(available).containsExactly(expired, free);
+  }
+
+  @Test
+  public void shouldSkipTargetsThatReachedLaneLimit() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    ExecutionQueueItem locked = generateInstance();
+    locked.lock(WORKER_ID, now.plusMinutes(5));
+    repository.save(locked);
+    repository.save(generateInstance());
+
+    Configuration otherConfiguration = new ConfigurationDataBuilder().buildAsNew();
+    configurationRepository.save(otherConfiguration);
+    Integration otherIntegration = integrationRepository.save(new IntegrationDataBuilder()
+        .withConfiguration(otherConfiguration)
+        .buildAsNew());
+
+    ExecutionQueueItem otherTarget = repository.saveAndFlush(ExecutionQueueItem
+        .forAutomaticExecution(otherIntegration, UUID.randomUUID(), UUID.randomUUID(),
+            Clock.fixed(NOW.plusSeconds(getNextInstanceNumber()), ZoneOffset.UTC)));
+
+    // when
+    String lane = repository.findNextAvailableLane(now, 1);
+    ExecutionQueueItem next = repository.findNextAvailableForUpdate(now, 1, lane);
+    ExecutionQueueItem fullLaneItem = repository.findNextAvailableForUpdate(now, 1, getLane());
+
+    // then
+    assertThat(lane).isEqualTo(otherConfiguration.getId().toString());
+    assertThat(next).isEqualTo(otherTarget);
+    assertThat(fullLaneItem).isNull();
+  }
+
+  @Test
+  public void shouldReleaseItemLockedByWorkerUntilGivenDate() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    ExecutionQueueItem released = generateInstance();
+    released.lock(WORKER_ID, now.plusMinutes(5));
+    repository.saveAndFlush(released);
+
+    ExecutionQueueItem waiting = repository.saveAndFlush(generateInstance());
+
+    // when
+    int count = repository.releaseByIdAndLockedBy(released.getId(), WORKER_ID,
+        now.plusMinutes(1));
+
+    // then
+    assertThat(count).isEqualTo(1);
+    // the released item is not taken before the given date and does not fill the lane
+    assertThat(repository.findNextAvailableForUpdate(now, 1, getLane())).isEqualTo(waiting);
+    assertThat(repository.findNextAvailableForUpdate(now.plusMinutes(2), 1, getLane()))
+        .isEqualTo(released);
+  }
+
+  @Test
+  public void shouldReturnNullIfThereIsNoAvailableItem() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    ExecutionQueueItem locked = generateInstance();
+    locked.lock(WORKER_ID, now.plusMinutes(5));
+    repository.saveAndFlush(locked);
+
+    // when
+    String lane = repository.findNextAvailableLane(now, 10);
+    ExecutionQueueItem next = repository.findNextAvailableForUpdate(now, 10, getLane());
+
+    // then
+    assertThat(lane).isNull();
+    assertThat(next).isNull();
+  }
+
+  @Test
+  public void shouldLockLane() {
+    assertThat(repository.lockLane(getLane())).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRenewLocksOwnedByWorker() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    ExecutionQueueItem own = generateInstance();
+    own.lock(WORKER_ID, now.plusMinutes(1));
+    repository.save(own);
+
+    ExecutionQueueItem other = generateInstance();
+    other.lock("worker-2", now.plusMinutes(1));
+    repository.saveAndFlush(other);
+
+    // when
+    int renewed = repository.renewLocks(Sets.newHashSet(own.getId(), other.getId()), WORKER_ID,
+        now.plusMinutes(10));
+
+    // then
+    assertThat(renewed).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRemoveItemLockedByWorker() {
+    // given
+    ExecutionQueueItem item = generateInstance();
+    item.lock(WORKER_ID, ZonedDateTime.now(ZoneOffset.UTC));
+    repository.saveAndFlush(item);
+
+    // when
+    int removed = repository.removeByIdAndLockedBy(item.getId(), WORKER_ID);
+
+    // then
+    assertThat(removed).isEqualTo(1);
+    assertThat(repository.exists(item.getId())).isFalse();
+  }
+
+  @Test
+  public void shouldNotRemoveItemLockedByAnotherWorker() {
+    // given
+    ExecutionQueueItem item = generateInstance();
+    item.lock("worker-2", ZonedDateTime.now(ZoneOffset.UTC));
+    repository.saveAndFlush(item);
+
+    // when
+    int removed = repository.removeByIdAndLockedBy(item.getId(), WORKER_ID);
+
+    // then
+    assertThat(removed).isEqualTo(0);
+    assertThat(repository.exists(item.getId())).isTrue();
+  }
+
+  private String getLane() {
+    return integration.getConfiguration().getId().toString();
+  }
+}
@@ -16,21 +16,36 @@
 package org.openlmis.integration.dhis2.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.openlmis.integration.dhis2.IntegrationDataBuilder;
 import org.openlmis.integration.dhis2.domain.Execution;
 import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
 import org.openlmis.integration.dhis2.domain.Integration;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+import org.openlmis.integration.dhis2.web.ExecutionDto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 public class ExecutionRepositoryIntegrationTest
     extends BaseCrudRepositoryIntegrationTest<Execution> {
@@ -38,6 +53,7 @@ public class ExecutionRepositoryIntegrationTest
   private static final Integration INTEGRATION = new IntegrationDataBuilder().build();
   private static final UUID PROCESSING_PERIOD_ID = UUID.randomUUID();
   private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+  private static final String REQUEST_BODY = "{\"reporting-period\":\"201901\"}";
 
   @Autowired
   private ExecutionRepository repository;
@@ -77,4 +93,244 @@ public class ExecutionRepositoryIntegrationTest
         .getSingleResult())
         .isNotNull();
   }
+
+  @Test
+  public void shouldFindExecutionsExcludingRequestBody() {
+    // given
+    UUID userId = UUID.randomUUID();
+    Execution execution = Execution.forManualExecution(INTEGRATION, UUID.randomUUID(),
+        PROCESSING_PERIOD_ID, "manual", userId, CLOCK);
+    execution.setRequestBody(REQUEST_BODY);
+    repository.saveAndFlush(execution);
+
+    execution.markAsDone(new ExecutionResponse(ZonedDateTime.now(CLOCK), 200, "ok"), CLOCK);
+    repository.saveAndFlush(execution);
+
+    // when
+    Page<ExecutionDto> page = repository
+        .findAllExcludingRequestBody(new PageRequest(0, Integer.MAX_VALUE));
+
+    // then
+    ExecutionDto dto = page.getContent()
+        .stream()
+        .filter(item -> execution.getId().equals(item.getId()))
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+
+    assertThat(page.getTotalElements()).isEqualTo(page.getContent().size());
+    assertThat(dto.getStartDate().toInstant()).isEqualTo(execution.getStartDate().toInstant());
+    assertThat(dto.getUserId()).isEqualTo(userId);
+    assertThat(dto.getStatus()).isEqualTo(execution.getStatus());
+    assertThat(dto.getResponse().getStatusCode()).isEqualTo(200);
+    assertThat(dto.getResponse().getBody()).isEqualTo("ok");
+  }
+
+  @Test
+  public void shouldSaveExecutionLifecycleWithTargetedUpdates() {
+    // given
+    Execution execution = generateInstance();
+    repository.save(execution);
+
+    // when
+    execution.setRequestBody(REQUEST_BODY);
+    repository.saveRequestBody(execution);
+
+    execution.markAsDone(new ExecutionResponse(ZonedDateTime.now(CLOCK), 201, "created"), CLOCK);
+    repository.saveResult(execution);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    // then
+    Execution found = repository.findOne(execution.getId());
+
+    assertThat(found.getRequestBody()).isEqualTo(REQUEST_BODY);
+    assertThat(found.getStatus()).isEqualTo(ExecutionStatus.SUCCESS);
+    assertThat(found.getEndDate().toInstant()).isEqualTo(execution.getEndDate().toInstant());
+    assertThat(found.getResponse().getStatusCode()).isEqualTo(201);
+    assertThat(found.getResponse().getBody()).isEqualTo("created");
+  }
+
+  @Test
+  public void shouldNotSaveResultOfExecutionWithOtherStartDate() {
+    // given
+    Execution execution = generateInstance();
+    repository.saveAndFlush(execution);
+    entityManager.clear();
+
+    Execution other = Execution.forAutomaticExecution(INTEGRATION, PROCESSING_PERIOD_ID,
+        Clock.offset(CLOCK, Duration.ofDays(-40)));
+    other.setId(execution.getId());
+    other.markAsDone(new ExecutionResponse(ZonedDateTime.now(CLOCK), 201, "created"), CLOCK);
+
+    // when
+    Throwable thrown = catchThrowable(() -> repository.saveResult(other));
+
+    // then
+    assertThat(thrown).isInstanceOf(IllegalStateException.class);
+    assertThat(repository.findOne(execution.getId()).getStatus())
+        .isEqualTo(execution.getStatus());
+  }
+
+  @Test
+  public void shouldFindCompressedRequestBody() {
+    // given
+    Execution execution = generateInstance();
+    execution.setRequestBody(REQUEST_BODY);
+    repository.saveAndFlush(execution);
+
+    // when
+    CompressedRequestBody body = repository.findCompressedRequestBody(execution.getId());
+
+    // then
+    assertThat(body.getExecutionId()).isEqualTo(execution.getId());
+    assertThat(body.getStartDate().toInstant())
+        .isEqualTo(execution.getStartDate().toInstant());
+    assertThat(body.getSize()).isEqualTo((long) GzipUtils.compress(REQUEST_BODY).length);
+  }
+
+  @Test
+  public void shouldNotFindCompressedRequestBodyOfNonExistentExecution() {
+    assertThat(repository.findCompressedRequestBody(UUID.randomUUID())).isNull();
+  }
+
+  @Test
+  public void shouldReadCompressedRequestBodyInChunks() throws IOException {
+    // given
+    StringBuilder requestBody = new StringBuilder();
+
+    for (int i = 0; i < 20000; ++i) {
+      requestBody.append(UUID.randomUUID());
+    }
+
+    Execution execution = generateInstance();
+    execution.setRequestBody(requestBody.toString());
+    repository.saveAndFlush(execution);
+
+    byte[] compressed = GzipUtils.compress(requestBody.toString());
+    assertThat(compressed.length).isGreaterThan(ExecutionRepositoryImpl.CHUNK_SIZE);
+
+    // when
+    CompressedRequestBody body = repository.findCompressedRequestBody(execution.getId());
+    byte[] whole;
+    byte[] part;
+
+    try (InputStream input = repository.openCompressedRequestBody(body, 0, compressed.length)) {
+      whole = IOUtils.toByteArray(input);
+    }
+
+    try (InputStream input = repository.openCompressedRequestBody(body, 100, 10)) {
+      part = IOUtils.toByteArray(input);
+    }
+
+    // then
+    assertThat(GzipUtils.decompress(whole)).isEqualTo(requestBody.toString());
+    assertThat(part).isEqualTo(Arrays.copyOfRange(compressed, 100, 110));
+  }
+
+  @Test
+  public void shouldSearchExecutionsPageByPage() {
+    // given
+    UUID periodId = UUID.randomUUID();
+    Execution oldest = saveAutomaticExecution(periodId, 0);
+    Execution middle = saveAutomaticExecution(periodId, 60);
+    Execution newest = saveAutomaticExecution(periodId, 120);
+
+    ExecutionSearchParams params = periodSearchParams(periodId);
+
+    // when
+    List<ExecutionDto> firstPage = repository
+        .searchExcludingRequestBody(params, null, 2);
+    List<ExecutionDto> secondPage = repository
+        .searchExcludingRequestBody(params, cursorOf(firstPage.get(1)), 2);
+
+    // then
+    assertThat(firstPage).extracting(ExecutionDto::getId)
+        .containsExactly(newest.getId(), middle.getId());
+    assertThat(secondPage).extracting(ExecutionDto::getId)
+        .containsExactly(oldest.getId());
+  }
+
+  @Test
+  public void shouldUseIdToOrderExecutionsStartedAtTheSameTime() {
+    // given
+    UUID periodId = UUID.randomUUID();
+    Execution first = saveAutomaticExecution(periodId, 0);
+    Execution second = saveAutomaticExecution(periodId, 0);
+
+    ExecutionSearchParams params = periodSearchParams(periodId);
+
+    // when
+    List<ExecutionDto> firstPage = repository
+        .searchExcludingRequestBody(params, null, 1);
+    List<ExecutionDto> secondPage = repository
+        .searchExcludingRequestBody(params, cursorOf(firstPage.get(0)), 1);
+
+    // then
+    assertThat(firstPage).hasSize(1);
+    assertThat(secondPage).hasSize(1);
+    assertThat(Arrays.asList(firstPage.get(0).getId(), secondPage.get(0).getId()))
+        .containsOnly(first.getId(), second.getId());
+  }
+
+  @Test
+  public void shouldFilterAndCountExecutions() {
+    // given
+    UUID periodId = UUID.randomUUID();
+    saveAutomaticExecution(periodId, 0);
+    Execution manual = Execution.forManualExecution(INTEGRATION, UUID.randomUUID(), periodId,
+        "manual", UUID.randomUUID(), CLOCK);
+    repository.saveAndFlush(manual);
+
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add(ExecutionSearchParams.PROCESSING_PERIOD_ID, periodId.toString());
+    queryParams.add(ExecutionSearchParams.MANUAL_EXECUTION, "true");
+    ExecutionSearchParams params = new ExecutionSearchParams(queryParams);
+
+    // when
+    List<ExecutionDto> result = repository.searchExcludingRequestBody(params, null, 10);
+    long count = repository.countExecutions(params);
+
+    // then
+    assertThat(result).extracting(ExecutionDto::getId).containsExactly(manual.getId());
+    assertThat(count).isEqualTo(1);
+    assertThat(repository.countExecutions(periodSearchParams(periodId))).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldScrollThroughExecutionsNewestFirst() {
+    // given
+    UUID periodId = UUID.randomUUID();
+    List<UUID> ids = new ArrayList<>();
+
+    for (int i = 0; i < ExecutionRepositoryImpl.SCROLL_FETCH_SIZE + 5; ++i) {
+      ids.add(0, saveAutomaticExecution(periodId, i).getId());
+    }
+
+    saveAutomaticExecution(UUID.randomUUID(), 0);
+    entityManager.clear();
+
+    // when
+    List<ExecutionDto> result = new ArrayList<>();
+    repository.scrollExcludingRequestBody(periodSearchParams(periodId), result::add);
+
+    // then
+    assertThat(result).extracting(ExecutionDto::getId).containsExactlyElementsOf(ids);
+  }
+
+  private Execution saveAutomaticExecution(UUID periodId, long secondsAfterNow) {
+    Clock clock = Clock.offset(CLOCK, Duration.ofSeconds(secondsAfterNow));
+    return repository.saveAndFlush(
+        Execution.forAutomaticExecution(INTEGRATION, periodId, clock));
+  }
+
+  private ExecutionSearchParams periodSearchParams(UUID periodId) {
+    MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add(ExecutionSearchParams.PROCESSING_PERIOD_ID, periodId.toString());
+    return new ExecutionSearchParams(queryParams);
+  }
+
+  private ExecutionCursor cursorOf(ExecutionDto execution) {
+    return new ExecutionCursor(execution.getStartDate(), execution.getId());
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.integration.dhis2.ConfigurationDataBuilder;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.domain.Integration;
+import org.openlmis.integration.dhis2.util.DurationHistogram;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+import org.openlmis.integration.dhis2.web.ExecutionStatisticsDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class ExecutionStatisticsRepositoryIntegrationTest {
+
+  private static final Instant START = Instant.parse("2019-10-15T10:00:00Z");
+  private static final String PAYLOAD = "{\"dataValues\":[]}";
+
+  @Autowired
+  private ExecutionStatisticsRepository statisticsRepository;
+
+  @Autowired
+  private ExecutionRepository executionRepository;
+
+  @Test
+  public void shouldRollUpFinishedExecutions() {
+    // given
+    Integration integration = new IntegrationDataBuilder().build();
+
+    // when
+    finish(integration, 200, 100);
+    finish(integration, 200, 300);
+    finish(integration, 500, 5000);
+
+    // then
+    ExecutionStatisticsDto statistics = findStatistics(integration);
+    long payloadSize = PAYLOAD.length();
+    long compressedPayloadSize = GzipUtils.compress(PAYLOAD).length;
+
+    assertThat(statistics.getTargetUrl()).isEqualTo(integration.getTargetUrl());
+    assertThat(statistics.getExecutionCounts())
+        .containsEntry(ExecutionStatus.SUCCESS, 2L)
+        .containsEntry(ExecutionStatus.ERROR, 1L)
+        .hasSize(2);
+    assertThat(statistics.getLastSuccessDate().toInstant()).isEqualTo(START.plusMillis(300));
+    assertThat(statistics.getP50Duration())
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(300)));
+    assertThat(statistics.getP95Duration())
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(5000)));
+    assertThat(statistics.getAveragePayloadSize()).isEqualTo(payloadSize);
+    assertThat(statistics.getMaxPayloadSize()).isEqualTo(payloadSize);
+    assertThat(statistics.getAverageCompressedPayloadSize()).isEqualTo(compressedPayloadSize);
+  }
+
+  @Test
+  public void shouldRollUpExecutionsWithoutProgram() {
+    // given
+    Integration integration = new IntegrationDataBuilder()
+        .withProgramId(null)
+        .withConfiguration(new ConfigurationDataBuilder()
+            .withTargetUrl("http://test.configuration/" + UUID.randomUUID())
+            .build())
+        .build();
+
+    // when
+    finish(integration, 200, 100);
+    finish(integration, 200, 100);
+
+    // then
+    ExecutionStatisticsDto statistics = findStatistics(integration);
+
+    assertThat(statistics.getProgramId()).isNull();
+    assertThat(statistics.getExecutionCounts()).containsOnly(entry(ExecutionStatus.SUCCESS, 2L));
+  }
+
+  @Test
+  public void shouldIgnoreExecutionsThatHaveNotFinished() {
+    // given
+    Integration integration = new IntegrationDataBuilder().build();
+    Execution execution = Execution.forAutomaticExecution(integration, UUID.randomUUID(),
+        Clock.fixed(START, ZoneOffset.UTC));
+
+    // when
+    statisticsRepository.record(execution);
+
+    // then
+    assertThat(findAllStatistics(integration)).isEmpty();
+  }
+
+  private void finish(Integration integration, int statusCode, long durationMillis) {
+    Execution execution = Execution.forAutomaticExecution(integration, UUID.randomUUID(),
+        Clock.fixed(START, ZoneOffset.UTC));
+    executionRepository.saveAndFlush(execution);
+
+    execution.setRequestBody(PAYLOAD);
+    executionRepository.saveRequestBody(execution);
+
+    Clock end = Clock.fixed(START.plusMillis(durationMillis), ZoneOffset.UTC);
+    execution.markAsDone(new ExecutionResponse(ZonedDateTime.now(end), statusCode, "{}"), end);
+    executionRepository.saveResult(execution);
+  }
+
+  private ExecutionStatisticsDto findStatistics(Integration integration) {
+    List<ExecutionStatisticsDto> statistics = findAllStatistics(integration);
+    assertThat(statistics).hasSize(1);
+
+    return statistics.get(0);
+  }
+
+  private List<ExecutionStatisticsDto> findAllStatistics(Integration integration) {
+    return statisticsRepository
+        .findAll()
+        .stream()
+        .filter(item -> Objects.equals(integration.getProgramId(), item.getProgramId()))
+        .filter(item -> integration.getTargetUrl().equals(item.getTargetUrl()))
+        .collect(Collectors.toList());
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Sets;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.integration.dhis2.domain.LocationFacilityMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class LocationFacilityMappingRepositoryIntegrationTest {
+
+  @Autowired
+  private LocationFacilityMappingRepository repository;
+
+  @Test
+  public void shouldFindByLocationIds() {
+    // given
+    LocationFacilityMapping first = repository.save(generateInstance(null));
+    LocationFacilityMapping second = repository.save(generateInstance(null));
+    repository.save(generateInstance(null));
+
+    // when
+    Iterable<LocationFacilityMapping> found = repository.findByLocationIdIn(
+        Sets.newHashSet(first.getLocationId(), second.getLocationId()));
+
+    // then
+    assertThat(found).containsOnly(first, second);
+  }
+
+  @Test
+  public void shouldFindByFacilityId() {
+    // given
+    LocationFacilityMapping mapping = repository.save(generateInstance(null));
+
+    // when
+    LocationFacilityMapping found = repository.findFirstByFacilityId(mapping.getFacilityId());
+
+    // then
+    assertThat(found).isEqualTo(mapping);
+  }
+
+  @Test
+  public void shouldDeleteByLocationIds() {
+    // given
+    LocationFacilityMapping removed = repository.saveAndFlush(generateInstance(null));
+    LocationFacilityMapping kept = repository.saveAndFlush(generateInstance(null));
+
+    // when
+    repository.deleteByLocationIdIn(Sets.newHashSet(removed.getLocationId()));
+
+    // then
+    assertThat(repository.exists(removed.getLocationId())).isFalse();
+    assertThat(repository.exists(kept.getLocationId())).isTrue();
+  }
+
+  private LocationFacilityMapping generateInstance(ZonedDateTime lastUpdated) {
+    return new LocationFacilityMapping(UUID.randomUUID().toString(), UUID.randomUUID(),
+        lastUpdated);
+  }
+
+}
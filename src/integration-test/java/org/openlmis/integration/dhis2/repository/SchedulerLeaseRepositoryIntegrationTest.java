@@ -0,0 +1,73 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class SchedulerLeaseRepositoryIntegrationTest {
+
+  private static final String LEASE_NAME = "test-lease";
+  private static final long LEASE_TIME = 60000;
+
+  @Autowired
+  private SchedulerLeaseRepository repository;
+
+  @Test
+  public void shouldAcquireFreeLease() {
+    assertThat(repository.acquire(LEASE_NAME, "worker-1", LEASE_TIME)).isEqualTo(1);
+    assertThat(repository.findOne(LEASE_NAME).getHolder()).isEqualTo("worker-1");
+  }
+
+  @Test
+  public void shouldRenewOwnLease() {
+    repository.acquire(LEASE_NAME, "worker-1", LEASE_TIME);
+
+    assertThat(repository.acquire(LEASE_NAME, "worker-1", LEASE_TIME)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotAcquireLeaseHeldByAnotherHolder() {
+    repository.acquire(LEASE_NAME, "worker-1", LEASE_TIME);
+
+    assertThat(repository.acquire(LEASE_NAME, "worker-2", LEASE_TIME)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldTakeOverExpiredLease() {
+    repository.acquire(LEASE_NAME, "worker-1", -LEASE_TIME);
+
+    assertThat(repository.acquire(LEASE_NAME, "worker-2", LEASE_TIME)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReleaseOnlyOwnLease() {
+    repository.acquire(LEASE_NAME, "worker-1", LEASE_TIME);
+
+    assertThat(repository.release(LEASE_NAME, "worker-2")).isEqualTo(0);
+    assertThat(repository.release(LEASE_NAME, "worker-1")).isEqualTo(1);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.integration.dhis2.ConfigurationDataBuilder;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.Configuration;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.openlmis.integration.dhis2.domain.Integration;
+import org.openlmis.integration.dhis2.repository.ConfigurationRepository;
+import org.openlmis.integration.dhis2.repository.ExecutionQueueRepository;
+import org.openlmis.integration.dhis2.repository.IntegrationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class ExecutionQueueIntegrationTest {
+
+  private static final int WORKERS = 8;
+  private static final int LANE_LIMIT = 2;
+
+  @Autowired
+  private ExecutionQueue executionQueue;
+
+  @Autowired
+  private ExecutionQueueRepository executionQueueRepository;
+
+  @Autowired
+  private IntegrationRepository integrationRepository;
+
+  @Autowired
+  private ConfigurationRepository configurationRepository;
+
+  private Configuration configuration;
+  private Integration integration;
+
+  @Before
+  public void setUp() {
+    configuration = configurationRepository.save(new ConfigurationDataBuilder().buildAsNew());
+    integration = integrationRepository.save(new IntegrationDataBuilder()
+        .withConfiguration(configuration)
+        .buildAsNew());
+
+    Instant queuedDate = Instant.now().minusSeconds(WORKERS);
+
+    for (int i = 0; i < WORKERS; ++i) {
+      executionQueueRepository.save(ExecutionQueueItem.forAutomaticExecution(integration,
+          UUID.randomUUID(), UUID.randomUUID(),
+          Clock.fixed(queuedDate.plusSeconds(i), ZoneOffset.UTC)));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    executionQueueRepository.deleteAll();
+    integrationRepository.delete(integration);
+    configurationRepository.delete(configuration);
+  }
+
+  @Test
+  public void shouldNotExceedLaneLimitWhenWorkersClaimItemsAtTheSameTime() throws Exception {
+    // given
+    ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Optional<ExecutionQueueItem>>> claims = Lists.newArrayList();
+
+    // when
+    try {
+      for (int i = 0; i < WORKERS; ++i) {
+        Callable<Optional<ExecutionQueueItem>> claim = () -> {
+          start.await();
+          return executionQueue.claimNext(LANE_LIMIT);
+        };
+
+        claims.add(workers.submit(claim));
+      }
+
+      start.countDown();
+
+      int claimed = 0;
+
+      for (Future<Optional<ExecutionQueueItem>> claim : claims) {
+        if (claim.get().isPresent()) {
+          ++claimed;
+        }
+      }
+
+      // then
+      assertThat(claimed).isEqualTo(LANE_LIMIT);
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+}
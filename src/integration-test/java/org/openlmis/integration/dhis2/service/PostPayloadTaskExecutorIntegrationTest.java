@@ -18,9 +18,11 @@ package org.openlmis.integration.dhis2.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
+import com.google.common.collect.Lists;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import org.junit.Test;
@@ -39,37 +41,35 @@ public class PostPayloadTaskExecutorIntegrationTest {
   private PostPayloadTaskExecutor executor;
 
   @Test
-  public void shouldGetTasksInQueueWithoutRemovingThem() {
+  public void shouldReturnCapacityForTasksThatCanBeStartedRightAway() {
     // given
-    TestTask task1 = new TestTask();
-    TestTask task2 = new TestTask();
-    TestTask task3 = new TestTask();
+    int poolSize = executor.getMaxPoolSize();
+    List<TestTask> tasks = Lists.newArrayList();
+
+    for (int i = 0; i <= poolSize; ++i) {
+      tasks.add(new TestTask());
+    }
 
     // expect
-    executor.execute(task1);
-    executor.execute(task2);
-    executor.execute(task3);
-
-    // task1 is being executed
-    // task2 and task3 should be in the queue
-    assertThat(executor.getQueueItems()).hasSize(2);
-
-    // task1 has been executed
-    // task2 is being executed
-    // task3 should be in the queue
-    await().until(task1::isExecuted);
-    assertThat(executor.getQueueItems()).hasSize(1);
-
-    // task2 has been executed
-    // task3 is being executed
-    // queue should be empty
-    await().until(task2::isExecuted);
-    assertThat(executor.getQueueItems()).hasSize(0);
-
-    // task3 has been executed
-    // queue should still be empty
-    await().until(task3::isExecuted);
-    assertThat(executor.getQueueItems()).hasSize(0);
+    assertThat(executor.getAvailableCapacity()).isEqualTo(poolSize);
+
+    // all workers are busy
+    for (int i = 0; i < poolSize; ++i) {
+      executor.execute(tasks.get(i));
+    }
+
+    await().until(() -> executor.getActiveCount() == poolSize);
+    assertThat(executor.getAvailableCapacity()).isEqualTo(0);
+
+    // the last task waits in the queue
+    executor.execute(tasks.get(poolSize));
+    assertThat(executor.getAvailableCapacity()).isEqualTo(0);
+
+    // all tasks have been executed
+    // workers are free again
+    await().until(tasks.get(poolSize)::isExecuted);
+    await().until(() -> executor.getActiveCount() == 0);
+    assertThat(executor.getAvailableCapacity()).isEqualTo(poolSize);
   }
 
   private static final class TestTask extends PostPayloadTask {
@@ -78,22 +78,7 @@ public class PostPayloadTaskExecutorIntegrationTest {
     private boolean executed;
 
     TestTask() {
-      super(null, null, null, null, Clock.fixed(Instant.now(), ZoneOffset.UTC), null, null);
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      return false;
-    }
-
-    @Override
-    public int hashCode() {
-      return 31;
-    }
-
-    @Override
-    public int compareTo(PostPayloadTask other) {
-      return 0;
+      super(null, null, null, null, null, Clock.fixed(Instant.now(), ZoneOffset.UTC), null, null);
     }
 
     @Override
@@ -39,6 +39,7 @@ import org.mockito.stubbing.Answer;
 import org.openlmis.integration.dhis2.domain.BaseEntity;
 import org.openlmis.integration.dhis2.repository.ConfigurationRepository;
 import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.repository.ExecutionStatisticsRepository;
 import org.openlmis.integration.dhis2.repository.IntegrationRepository;
 import org.openlmis.integration.dhis2.scheduler.DynamicTaskScheduler;
 import org.openlmis.integration.dhis2.service.PayloadService;
@@ -123,6 +124,9 @@ public abstract class BaseWebIntegrationTest {
   @MockBean
   ExecutionRepository executionRepository;
 
+  @MockBean
+  ExecutionStatisticsRepository executionStatisticsRepository;
+
   @MockBean
   IntegrationRepository integrationRepository;
 
@@ -15,21 +15,31 @@
 
 package org.openlmis.integration.dhis2.web;
 
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.Lists;
 import guru.nidi.ramltester.junit.RamlMatchers;
 
-import java.util.HashMap;
+import java.io.ByteArrayInputStream;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,10 +51,16 @@ import org.openlmis.integration.dhis2.ExecutionDataBuilder;
 import org.openlmis.integration.dhis2.IntegrationDataBuilder;
 import org.openlmis.integration.dhis2.domain.Execution;
 import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
 import org.openlmis.integration.dhis2.domain.Integration;
 import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.repository.CompressedRequestBody;
+import org.openlmis.integration.dhis2.repository.ExecutionCursor;
+import org.openlmis.integration.dhis2.repository.ExecutionSearchParams;
 import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.integration.dhis2.service.referencedata.UserDto;
+import org.openlmis.integration.dhis2.util.DurationHistogram;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
@@ -55,6 +71,9 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String RESOURCE_URL = ExecutionController.RESOURCE_PATH;
   private static final String ID_URL = RESOURCE_URL + ExecutionController.ID_URL;
   private static final String REQUEST_URL = RESOURCE_URL + ExecutionController.REQUEST_URL;
+  private static final String HISTORY_URL = RESOURCE_URL + ExecutionController.HISTORY_URL;
+  private static final String STATISTICS_URL = RESOURCE_URL + ExecutionController.STATISTICS_URL;
+  private static final String EXPORT_URL = RESOURCE_URL + ExecutionController.EXPORT_URL;
 
   private Execution execution = new ExecutionDataBuilder().buildAsAutomatic();
   private Execution execution1 = new ExecutionDataBuilder().buildAsManual();
@@ -96,30 +115,9 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnPageOfExecutions() {
-    List<Map<String, Object>> repositoryResultList = Stream.of(execution, execution1).map(e -> {
-          Map<String, Object> map = new HashMap<>();
-
-          ExecutionResponse executionResponse = e.getResponse();
-          if (executionResponse != null) {
-            map.put("responseDate", executionResponse.getResponseDate());
-            map.put("statusCode", executionResponse.getStatusCode());
-            map.put("body", executionResponse.getBody());
-          }
-
-          map.put("manualExecution", e.isManualExecution());
-          map.put("programId", e.getProgramId());
-          map.put("facilityId", e.getFacilityId());
-          map.put("processingPeriodId", e.getProcessingPeriodId());
-          map.put("status", e.getStatus());
-          map.put("description", e.getDescription());
-          map.put("targetUrl", e.getTargetUrl());
-          map.put("startDate", e.getStartDate());
-          map.put("endDate", e.getEndDate());
-          map.put("id", e.getId());
-
-          return map;
-        }
-    ).collect(Collectors.toList());
+    List<ExecutionDto> repositoryResultList = Stream.of(execution, execution1)
+        .map(this::toDto)
+        .collect(Collectors.toList());
 
     given(executionRepository.findAllExcludingRequestBody(any(Pageable.class)))
         .willReturn(new PageImpl<>(repositoryResultList));
@@ -166,6 +164,239 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  // GET /integrationExecutions/history
+
+  @Test
+  public void shouldReturnHistoryPageWithNextCursor() {
+    given(executionRepository.searchExcludingRequestBody(
+        any(ExecutionSearchParams.class), isNull(ExecutionCursor.class), eq(2)))
+        .willReturn(Lists.newArrayList(toDto(execution), toDto(execution1)));
+
+    String nextCursor = new ExecutionCursor(execution.getStartDate(), execution.getId())
+        .encode();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("size", 1)
+        .queryParam("manualExecution", false)
+        .when()
+        .get(HISTORY_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("content", hasSize(1))
+        .body("content[0].id", is(execution.getId().toString()))
+        .body("nextCursor", is(nextCursor))
+        .body("totalElements", is(nullValue()));
+
+    verify(executionRepository, never()).countExecutions(any(ExecutionSearchParams.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnLastHistoryPageWithTotal() {
+    ExecutionCursor cursor = new ExecutionCursor(execution.getStartDate(), execution.getId());
+
+    given(executionRepository.searchExcludingRequestBody(
+        any(ExecutionSearchParams.class), eq(ExecutionCursor.decode(cursor.encode())), eq(21)))
+        .willReturn(Lists.newArrayList(toDto(execution1)));
+    given(executionRepository.countExecutions(any(ExecutionSearchParams.class)))
+        .willReturn(2L);
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("cursor", cursor.encode())
+        .queryParam("includeTotal", true)
+        .when()
+        .get(HISTORY_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("content", hasSize(1))
+        .body("nextCursor", is(nullValue()))
+        .body("totalElements", is(2));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfHistoryPageSizeIsInvalid() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("size", ExecutionController.MAX_HISTORY_PAGE_SIZE + 1)
+        .when()
+        .get(HISTORY_URL)
+        .then()
+        .statusCode(HttpStatus.SC_BAD_REQUEST)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_EXECUTION_PAGE_SIZE_INVALID));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfHistorySearchParamIsInvalid() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("status", "DONE")
+        .when()
+        .get(HISTORY_URL)
+        .then()
+        .statusCode(HttpStatus.SC_BAD_REQUEST)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_EXECUTION_SEARCH_PARAM_INVALID));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenWhenUserHasNotRightForHistory() {
+    disablePermission();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(HISTORY_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_PERMISSION_MISSING));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  // GET /integrationExecutions/export
+
+  @Test
+  public void shouldExportExecutionsAsCsv() {
+    willAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      Consumer<ExecutionDto> consumer = (Consumer<ExecutionDto>) invocation.getArguments()[1];
+      consumer.accept(toDto(execution));
+      consumer.accept(toDto(execution1));
+      return null;
+    }).given(executionRepository)
+        .scrollExcludingRequestBody(any(ExecutionSearchParams.class), any(Consumer.class));
+
+    String csv = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("format", "csv")
+        .when()
+        .get(EXPORT_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .contentType(startsWith("text/csv"))
+        .extract()
+        .asString();
+
+    assertThat(csv.split("\r\n"), arrayWithSize(3));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldExportExecutionsAsNdjsonByDefault() {
+    willAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      Consumer<ExecutionDto> consumer = (Consumer<ExecutionDto>) invocation.getArguments()[1];
+      consumer.accept(toDto(execution));
+      return null;
+    }).given(executionRepository)
+        .scrollExcludingRequestBody(any(ExecutionSearchParams.class), any(Consumer.class));
+
+    String ndjson = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(EXPORT_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .contentType(startsWith("application/x-ndjson"))
+        .extract()
+        .asString();
+
+    assertThat(ndjson, containsString(execution.getId().toString()));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfExportFormatIsInvalid() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("format", "xml")
+        .when()
+        .get(EXPORT_URL)
+        .then()
+        .statusCode(HttpStatus.SC_BAD_REQUEST)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_EXECUTION_EXPORT_FORMAT_INVALID));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenWhenUserHasNotRightForExport() {
+    disablePermission();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(EXPORT_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_PERMISSION_MISSING));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  // GET /integrationExecutions/statistics
+
+  @Test
+  public void shouldReturnExecutionStatistics() {
+    ExecutionStatisticsDto statistics = new ExecutionStatisticsDto(
+        execution.getProgramId(), execution.getTargetUrl());
+    statistics.addStatusStatistics(ExecutionStatus.SUCCESS, 3, execution.getStartDate(),
+        3000, 1500, 600);
+    statistics.addStatusStatistics(ExecutionStatus.ERROR, 1, null, 1000, 1000, 200);
+    statistics.addDurations(DurationHistogram.bucketOf(250), 4);
+
+    given(executionStatisticsRepository.findAll()).willReturn(Lists.newArrayList(statistics));
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STATISTICS_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("", hasSize(1))
+        .body("[0].targetUrl", is(execution.getTargetUrl()))
+        .body("[0].executionCounts.SUCCESS", is(3))
+        .body("[0].executionCounts.ERROR", is(1))
+        .body("[0].averagePayloadSize", is(1000))
+        .body("[0].maxPayloadSize", is(1500))
+        .body("[0].averageCompressedPayloadSize", is(200));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenWhenUserHasNotRightForStatistics() {
+    disablePermission();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STATISTICS_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_PERMISSION_MISSING));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   // POST /integrationExecutions
 
   @Test
@@ -272,24 +503,65 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnGivenExecutionRequest() {
-    given(executionRepository.findOne(executionDto.getId())).willReturn(execution);
+    mockRequestBody();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+        .pathParam(ID, executionDto.getId().toString())
+        .when()
+        .get(REQUEST_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body(is(execution.getRequestBody()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnCompressedExecutionRequestIfClientAcceptsGzip() {
+    mockRequestBody();
 
     restAssured
         .given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
         .pathParam(ID, executionDto.getId().toString())
         .when()
         .get(REQUEST_URL)
         .then()
         .statusCode(HttpStatus.SC_OK)
+        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
         .body(is(execution.getRequestBody()));
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldReturnRangeOfExecutionRequest() {
+    mockRequestBody();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+        .header(HttpHeaders.RANGE, "bytes=0-0")
+        .pathParam(ID, executionDto.getId().toString())
+        .when()
+        .get(REQUEST_URL)
+        .then()
+        .statusCode(HttpStatus.SC_PARTIAL_CONTENT)
+        .header(HttpHeaders.CONTENT_RANGE,
+            "bytes 0-0/" + execution.getRequestBody().length())
+        .body(is(execution.getRequestBody().substring(0, 1)));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldReturnUnauthorizedForGetExecutionRequestIfUserIsNotAuthorized() {
-    given(executionRepository.findOne(executionDto.getId())).willReturn(execution);
+    mockRequestBody();
 
     restAssured
         .given()
@@ -322,7 +594,8 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnNotFoundWhenExecutionWithIdDoesNotExistForGetExecutionRequest() {
-    given(executionRepository.findOne(executionDto.getId())).willReturn(null);
+    given(executionRepository.findCompressedRequestBody(executionDto.getId()))
+        .willReturn(null);
 
     restAssured
         .given()
@@ -337,6 +610,19 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  private void mockRequestBody() {
+    byte[] compressed = GzipUtils.compress(execution.getRequestBody());
+    CompressedRequestBody body = new CompressedRequestBody(executionDto.getId(),
+        execution.getStartDate(), compressed.length);
+
+    given(executionRepository.findCompressedRequestBody(executionDto.getId()))
+        .willReturn(body);
+    given(executionRepository.openCompressedRequestBody(eq(body), anyLong(), anyLong()))
+        .willAnswer(invocation -> new ByteArrayInputStream(compressed,
+            ((Long) invocation.getArguments()[1]).intValue(),
+            ((Long) invocation.getArguments()[2]).intValue()));
+  }
+
   private void disablePermission() {
     willThrow(new MissingPermissionException("permission"))
         .given(permissionService)
@@ -351,4 +637,15 @@ public class ExecutionControllerIntegrationTest extends BaseWebIntegrationTest {
     return dto;
   }
 
+  private ExecutionDto toDto(Execution execution) {
+    ExecutionResponse response = execution.getResponse();
+
+    return new ExecutionDto(execution.getId(), execution.isManualExecution(),
+        execution.getProgramId(), execution.getFacilityId(), execution.getProcessingPeriodId(),
+        execution.getStatus(), execution.getDescription(), execution.getTargetUrl(),
+        execution.getStartDate(), execution.getEndDate(), null,
+        null == response ? null : response.getResponseDate(),
+        null == response ? null : response.getStatusCode(),
+        null == response ? null : GzipUtils.compress(response.getBody()));
+  }
 }
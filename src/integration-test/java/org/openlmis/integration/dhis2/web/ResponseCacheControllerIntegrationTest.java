@@ -0,0 +1,157 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
+
+import guru.nidi.ramltester.junit.RamlMatchers;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.security.CachingTokenServices;
+import org.openlmis.integration.dhis2.service.RequestParameters;
+import org.openlmis.integration.dhis2.service.ResponseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class ResponseCacheControllerIntegrationTest extends BaseWebIntegrationTest {
+
+  private static final String RESOURCE_URL = ResponseCacheController.RESOURCE_PATH;
+  private static final String NAME_URL = RESOURCE_URL + ResponseCacheController.NAME_URL;
+  private static final String PROGRAMS = "programs";
+
+  @Autowired
+  private ResponseCache responseCache;
+
+  /**
+   * Set up sample data.
+   */
+  @Before
+  public void setUp() {
+    willDoNothing().given(permissionService).canManageDhis2();
+
+    responseCache.get(PROGRAMS,
+        new ResponseCache.Key("/api/programs/", RequestParameters.init(), String.class),
+        () -> "response");
+  }
+
+  // GET /responseCaches
+
+  @Test
+  public void shouldReturnResponseCaches() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("name", hasItem(PROGRAMS))
+        .body("name", hasItem(CachingTokenServices.CACHE_NAME));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenWhenUserHasNotRightForResponseCaches() {
+    disablePermission();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_PERMISSION_MISSING));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  // DELETE /responseCaches
+
+  @Test
+  public void shouldEvictAllResponseCaches() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .delete(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  // DELETE /responseCaches/{name}
+
+  @Test
+  public void shouldEvictResponseCache() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .pathParam("name", PROGRAMS)
+        .when()
+        .delete(NAME_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldEvictAccessTokens() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .pathParam("name", CachingTokenServices.CACHE_NAME)
+        .when()
+        .delete(NAME_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnForbiddenWhenUserHasNotRightForEviction() {
+    disablePermission();
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .pathParam("name", PROGRAMS)
+        .when()
+        .delete(NAME_URL)
+        .then()
+        .statusCode(HttpStatus.SC_FORBIDDEN)
+        .body(MESSAGE_KEY, is(MessageKeys.ERROR_PERMISSION_MISSING));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  private void disablePermission() {
+    willThrow(new MissingPermissionException("permission"))
+        .given(permissionService)
+        .canManageDhis2();
+  }
+
+}
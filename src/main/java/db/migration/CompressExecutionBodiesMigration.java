@@ -0,0 +1,101 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package db.migration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.MigrationInfoProvider;
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+/**
+ * Compresses request and response bodies of existing executions. Postgres does not support gzip
+ * so the rows are read in batches and compressed by the service. The version is set explicitly
+ * because the migrations in this service do not use the default name prefix. The compression is
+ * done here and not with the service utilities, so later changes in them do not change the result
+ * of this migration.
+ */
+public class CompressExecutionBodiesMigration implements JdbcMigration, MigrationInfoProvider {
+
+  private static final int BATCH_SIZE = 50;
+
+  @Override
+  public MigrationVersion getVersion() {
+    return MigrationVersion.fromVersion("20261017121105613");
+  }
+
+  @Override
+  public String getDescription() {
+    return "compress execution bodies";
+  }
+
+  @Override
+  public void migrate(Connection connection) throws SQLException {
+    compress(connection, "executions", "requestBody", "compressedRequestBody");
+    compress(connection, "execution_responses", "body", "compressedBody");
+  }
+
+  private void compress(Connection connection, String table, String source, String target)
+      throws SQLException {
+    String select = String.format("SELECT id, %s FROM %s", source, table);
+    String update = String.format("UPDATE %s SET %s = ? WHERE id = ?", table, target);
+
+    try (Statement query = connection.createStatement();
+         PreparedStatement statement = connection.prepareStatement(update)) {
+      // rows are fetched in batches, so big bodies are not loaded all at once
+      query.setFetchSize(BATCH_SIZE);
+
+      try (ResultSet rows = query.executeQuery(select)) {
+        int count = 0;
+
+        while (rows.next()) {
+          statement.setBytes(1, gzip(rows.getString(2)));
+          statement.setObject(2, rows.getObject(1));
+          statement.addBatch();
+
+          if (++count % BATCH_SIZE == 0) {
+            statement.executeBatch();
+          }
+        }
+
+        statement.executeBatch();
+      }
+    }
+  }
+
+  private static byte[] gzip(String value) {
+    if (null == value) {
+      return null;
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(value.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException exp) {
+      throw new IllegalStateException(exp);
+    }
+
+    return output.toByteArray();
+  }
+}
@@ -18,7 +18,6 @@ package org.openlmis.integration.dhis2.domain;
 import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.util.UUID;
-import javax.persistence.Basic;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -34,13 +33,14 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.hibernate.annotations.Type;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 
 @Entity
 @Table(name = "executions")
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
-@EqualsAndHashCode(callSuper = true)
-@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true, doNotUseGetters = true)
+@ToString(callSuper = true, doNotUseGetters = true)
 public class Execution extends BaseEntity {
 
   private static final String EMPTY_JSON = "{}";
@@ -82,10 +82,8 @@ public class Execution extends BaseEntity {
   @Column(columnDefinition = TIMESTAMP_COLUMN_DEFINITION)
   private ZonedDateTime endDate;
 
-  @Getter
-  @Basic(fetch = FetchType.LAZY)
-  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
-  private String requestBody;
+  @Column(columnDefinition = BYTEA_COLUMN_DEFINITION)
+  private byte[] requestBody;
 
   @Type(type = UUID_TYPE)
   @Column
@@ -103,7 +101,7 @@ public class Execution extends BaseEntity {
       Clock clock) {
     return new Execution(false, integration.getProgramId(), null, processingPeriodId,
         ExecutionStatus.STARTED, integration.getDescription(), integration.getTargetUrl(),
-        ZonedDateTime.now(clock), null, EMPTY_JSON, null, null);
+        ZonedDateTime.now(clock), null, GzipUtils.compress(EMPTY_JSON), null, null);
   }
 
   /**
@@ -114,10 +112,31 @@ public class Execution extends BaseEntity {
       UUID processingPeriodId, String description, UUID userId, Clock clock) {
     return new Execution(true, integration.getProgramId(), facilityId, processingPeriodId,
         ExecutionStatus.STARTED, description, integration.getTargetUrl(),
-        ZonedDateTime.now(clock), null, EMPTY_JSON, userId, null);
+        ZonedDateTime.now(clock), null, GzipUtils.compress(EMPTY_JSON), userId, null);
+  }
+
+  /**
+   * Returns the request body. It is stored compressed and decompressed on every call.
+   */
+  public String getRequestBody() {
+    return GzipUtils.decompress(requestBody);
   }
 
   public void setRequestBody(String requestBody) {
+    setCompressedRequestBody(GzipUtils.compress(requestBody));
+  }
+
+  /**
+   * Returns the request body as it is stored, compressed with gzip.
+   */
+  public byte[] getCompressedRequestBody() {
+    return requestBody;
+  }
+
+  /**
+   * Sets the request body that is already compressed with gzip.
+   */
+  public void setCompressedRequestBody(byte[] requestBody) {
     this.requestBody = requestBody;
     this.status = ExecutionStatus.PENDING;
   }
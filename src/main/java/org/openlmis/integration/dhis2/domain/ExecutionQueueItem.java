@@ -0,0 +1,132 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.domain;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Type;
+
+@Entity
+@Table(name = "execution_queue")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class ExecutionQueueItem extends BaseEntity {
+
+  @Getter
+  @ManyToOne
+  @JoinColumn(name = "integrationId", nullable = false)
+  private Integration integration;
+
+  @Getter
+  @Type(type = UUID_TYPE)
+  private UUID facilityId;
+
+  @Getter
+  @Type(type = UUID_TYPE)
+  @Column(nullable = false)
+  private UUID processingPeriodId;
+
+  @Getter
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  private String description;
+
+  @Getter
+  @Column(nullable = false)
+  private boolean manualExecution;
+
+  @Getter
+  @Type(type = UUID_TYPE)
+  private UUID userId;
+
+  @Getter
+  @Type(type = UUID_TYPE)
+  private UUID batchId;
+
+  @Getter
+  @Column(nullable = false, columnDefinition = TIMESTAMP_COLUMN_DEFINITION)
+  private ZonedDateTime queuedDate;
+
+  @Getter
+  @Column(columnDefinition = TIMESTAMP_COLUMN_DEFINITION)
+  private ZonedDateTime lockedUntil;
+
+  @Getter
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  private String lockedBy;
+
+  /**
+   * Creates a new queue item for an automatic execution. Items queued by the same scheduler run
+   * share the batch id, so they can share the request body.
+   */
+  public static ExecutionQueueItem forAutomaticExecution(Integration integration,
+      UUID processingPeriodId, UUID batchId, Clock clock) {
+    return new ExecutionQueueItem(integration, null, processingPeriodId, null, false, null,
+        batchId, ZonedDateTime.now(clock), null, null);
+  }
+
+  /**
+   * Creates a new queue item for a manual execution.
+   */
+  public static ExecutionQueueItem forManualExecution(Integration integration, UUID facilityId,
+      UUID processingPeriodId, String description, UUID userId, Clock clock) {
+    return new ExecutionQueueItem(integration, facilityId, processingPeriodId, description, true,
+        userId, null, ZonedDateTime.now(clock), null, null);
+  }
+
+  /**
+   * Hides this item from other workers until the given date. The worker has to renew the lock
+   * before that date, otherwise the item is handed to another worker.
+   */
+  public void lock(String workerId, ZonedDateTime lockedUntil) {
+    this.lockedBy = workerId;
+    this.lockedUntil = lockedUntil;
+  }
+
+  /**
+   * Export the current object state.
+   */
+  public void export(Exporter exporter) {
+    exporter.setExecutionTime(queuedDate);
+    exporter.setProcessingPeriodId(processingPeriodId);
+    exporter.setUserId(userId);
+    exporter.setDescription(description);
+  }
+
+  public interface Exporter {
+
+    void setExecutionTime(ZonedDateTime executionTime);
+
+    void setProcessingPeriodId(UUID processingPeriodId);
+
+    void setUserId(UUID userId);
+
+    void setDescription(String description);
+
+  }
+}
@@ -29,13 +29,14 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 import org.springframework.http.HttpStatus;
 
 @Entity
 @Table(name = "execution_responses")
 @NoArgsConstructor
-@EqualsAndHashCode(exclude = "execution")
-@ToString(exclude = "execution")
+@EqualsAndHashCode(exclude = "execution", doNotUseGetters = true)
+@ToString(exclude = "execution", doNotUseGetters = true)
 @SuppressWarnings("PMD.UnusedPrivateField")
 public final class ExecutionResponse {
 
@@ -50,9 +51,8 @@ public final class ExecutionResponse {
   @Column(nullable = false)
   private int statusCode;
 
-  @Getter
-  @Column(nullable = false, columnDefinition = BaseEntity.TEXT_COLUMN_DEFINITION)
-  private String body;
+  @Column(nullable = false, columnDefinition = BaseEntity.BYTEA_COLUMN_DEFINITION)
+  private byte[] body;
 
   @MapsId
   @OneToOne(fetch = FetchType.LAZY)
@@ -65,7 +65,14 @@ public final class ExecutionResponse {
   public ExecutionResponse(ZonedDateTime responseDate, int statusCode, String body) {
     this.responseDate = responseDate;
     this.statusCode = statusCode;
-    this.body = body;
+    this.body = GzipUtils.compress(body);
+  }
+
+  /**
+   * Returns the response body. It is stored compressed and decompressed on every call.
+   */
+  public String getBody() {
+    return GzipUtils.decompress(body);
   }
 
   void setExecution(Execution execution) {
@@ -92,7 +99,7 @@ public final class ExecutionResponse {
   public void export(Exporter exporter) {
     exporter.setResponseDate(responseDate);
     exporter.setStatusCode(statusCode);
-    exporter.setBody(body);
+    exporter.setBody(getBody());
   }
 
   public interface Exporter {
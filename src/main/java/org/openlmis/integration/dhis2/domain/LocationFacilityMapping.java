@@ -0,0 +1,55 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Type;
+
+/**
+ * Stores which OpenLMIS facility is represented by the given FHIR Location resource.
+ */
+@Entity
+@Table(name = "location_facility_mappings")
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class LocationFacilityMapping {
+
+  @Id
+  @Getter
+  @Column(nullable = false, columnDefinition = BaseEntity.TEXT_COLUMN_DEFINITION)
+  private String locationId;
+
+  @Getter
+  @Type(type = BaseEntity.UUID_TYPE)
+  @Column(nullable = false)
+  private UUID facilityId;
+
+  @Getter
+  @Column(columnDefinition = BaseEntity.TIMESTAMP_COLUMN_DEFINITION)
+  private ZonedDateTime lastUpdated;
+
+}
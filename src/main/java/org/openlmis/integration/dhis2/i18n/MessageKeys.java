@@ -37,6 +37,10 @@ public abstract class MessageKeys {
   private static final String TARGET_URL = "targetUrl";
   private static final String PROGRAM_ID = "programId";
   private static final String CRON_EXPRESSION = "cronExpression";
+  private static final String SEARCH_PARAM = "searchParam";
+  private static final String CURSOR = "cursor";
+  private static final String PAGE_SIZE = "pageSize";
+  private static final String EXPORT_FORMAT = "exportFormat";
 
   private static final String ID = "id";
 
@@ -88,6 +92,14 @@ public abstract class MessageKeys {
   public static final String ERROR_PERIOD_NOT_FOUND = join(ERROR_PREFIX, PERIOD, NOT_FOUND);
 
   public static final String ERROR_EXECUTION_NOT_FOUND = join(ERROR_PREFIX, EXECUTION, NOT_FOUND);
+  public static final String ERROR_EXECUTION_SEARCH_PARAM_INVALID =
+      join(ERROR_PREFIX, EXECUTION, SEARCH_PARAM, INVALID);
+  public static final String ERROR_EXECUTION_CURSOR_INVALID =
+      join(ERROR_PREFIX, EXECUTION, CURSOR, INVALID);
+  public static final String ERROR_EXECUTION_PAGE_SIZE_INVALID =
+      join(ERROR_PREFIX, EXECUTION, PAGE_SIZE, INVALID);
+  public static final String ERROR_EXECUTION_EXPORT_FORMAT_INVALID =
+      join(ERROR_PREFIX, EXECUTION, EXPORT_FORMAT, INVALID);
 
   public static final String ERROR_JAVERS_EXISTING_ENTRY =
       join(ERROR_PREFIX, JAVERS, "entryAlreadyExists");
@@ -0,0 +1,80 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.openlmis.integration.dhis2.i18n.MessageKeys.ERROR_EXECUTION_CURSOR_INVALID;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+
+/**
+ * Position in the execution history. Executions are ordered by the start date and the id (both
+ * descending) so the pair of them points exactly to the last execution that has been returned.
+ * Clients get the cursor as an opaque string.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class ExecutionCursor {
+
+  private static final String SEPARATOR = ",";
+
+  private final ZonedDateTime startDate;
+  private final UUID id;
+
+  /**
+   * Decodes a cursor that has been created by the {@link #encode()} method.
+   *
+   * @throws ValidationMessageException if the value is not a valid cursor.
+   */
+  public static ExecutionCursor decode(String value) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(value), UTF_8);
+      String[] parts = decoded.split(SEPARATOR, -1);
+
+      if (parts.length != 2) {
+        throw new IllegalArgumentException(decoded);
+      }
+
+      ZonedDateTime startDate = ZonedDateTime
+          .ofInstant(Instant.parse(parts[0]), ZoneOffset.UTC);
+
+      return new ExecutionCursor(startDate, UUID.fromString(parts[1]));
+    } catch (IllegalArgumentException | DateTimeParseException exp) {
+      throw new ValidationMessageException(exp, ERROR_EXECUTION_CURSOR_INVALID, value);
+    }
+  }
+
+  /**
+   * Encodes the cursor as an URL safe string.
+   */
+  public String encode() {
+    String value = startDate.toInstant() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Manages monthly partitions of the executions and execution_responses tables. Partitions are
+ * named after their parent and month, like executions_p201910.
+ */
+@Repository
+public class ExecutionPartitionRepository {
+
+  static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+  private static final String CREATE_PARTITION = "SELECT"
+      + " dhis2integration.create_monthly_partition(:parent, :column, CAST(:month AS DATE))";
+
+  private static final String SELECT_PARTITIONS_BEFORE = "SELECT c.relname"
+      + " FROM pg_inherits AS i"
+      + " JOIN pg_class AS c ON c.oid = i.inhrelid"
+      + " JOIN pg_class AS p ON p.oid = i.inhparent"
+      + " JOIN pg_namespace AS n ON n.oid = p.relnamespace"
+      + " WHERE n.nspname = 'dhis2integration'"
+      + " AND p.relname IN ('executions', 'execution_responses')"
+      + " AND substring(c.relname FROM '_p([0-9]+)$') < :month"
+      + " ORDER BY c.relname";
+
+  private static final String REMOVE_PARTITION = "SELECT"
+      + " dhis2integration.remove_monthly_partition(:partition, :archiveSchema)";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Creates partitions of both tables for the given month, unless they already exist.
+   */
+  @Transactional
+  public void createPartitions(YearMonth month) {
+    createPartition("executions", "startdate", month);
+    createPartition("execution_responses", "responsedate", month);
+  }
+
+  /**
+   * Retrieves names of partitions (of both tables) for months before the given one.
+   */
+  @Transactional(readOnly = true)
+  public List<String> findPartitionsBefore(YearMonth month) {
+    @SuppressWarnings("unchecked")
+    List<String> partitions = entityManager
+        .createNativeQuery(SELECT_PARTITIONS_BEFORE)
+        .setParameter("month", month.format(MONTH_FORMAT))
+        .getResultList();
+
+    return partitions;
+  }
+
+  /**
+   * Drops the given partition or, if the archive schema is not blank, detaches it from its
+   * parent and moves it to the archive schema.
+   */
+  @Transactional
+  public void removePartition(String partition, String archiveSchema) {
+    entityManager
+        .createNativeQuery(REMOVE_PARTITION)
+        .setParameter("partition", partition)
+        .setParameter("archiveSchema", archiveSchema)
+        .getSingleResult();
+  }
+
+  private void createPartition(String parent, String column, YearMonth month) {
+    entityManager
+        .createNativeQuery(CREATE_PARTITION)
+        .setParameter("parent", parent)
+        .setParameter("column", column)
+        .setParameter("month", month.atDay(1).toString())
+        .getSingleResult();
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ExecutionQueueRepository extends JpaRepository<ExecutionQueueItem, UUID> {
+
+  String AVAILABLE_ITEMS = " FROM dhis2integration.execution_queue q"
+      + " JOIN dhis2integration.integrations i ON i.id = q.integrationId"
+      + " WHERE (q.lockedUntil IS NULL OR q.lockedUntil < :now)"
+      + " AND (SELECT COUNT(*) FROM dhis2integration.execution_queue l"
+      + "   JOIN dhis2integration.integrations li ON li.id = l.integrationId"
+      + "   WHERE li.configurationId = i.configurationId AND l.lockedBy IS NOT NULL"
+      + "   AND l.lockedUntil >= :now) < :laneLimit";
+
+  String AVAILABLE_ITEMS_ORDER = " ORDER BY q.manualExecution, q.queuedDate";
+
+  /**
+   * Finds the target configuration of the first item that is not locked by any worker. Items are
+   * skipped when the target configuration already has the lane limit of locked items, so a slow
+   * target cannot take all workers. Automatic executions go before manual ones and older items
+   * before newer ones.
+   */
+  @Query(value = "SELECT CAST(i.configurationId AS text)" + AVAILABLE_ITEMS
+      + AVAILABLE_ITEMS_ORDER
+      + " LIMIT 1",
+      nativeQuery = true)
+  String findNextAvailableLane(@Param("now") ZonedDateTime now,
+      @Param("laneLimit") int laneLimit);
+
+  /**
+   * Waits until no other transaction claims an item for the given target configuration. The lock
+   * is held until the end of the current transaction.
+   */
+  @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:configurationId))",
+      nativeQuery = true)
+  int lockLane(@Param("configurationId") String configurationId);
+
+  /**
+   * Finds the first available item for the given target configuration, in the same way as
+   * {@link #findNextAvailableLane(ZonedDateTime, int)}, and locks the row until the end of the
+   * current transaction. Rows locked by a concurrent transaction are skipped. The lane has to be
+   * locked with {@link #lockLane(String)} first, so the count of locked items of the target
+   * includes the items claimed by transactions that have just finished.
+   */
+  @Query(value = "SELECT q.*" + AVAILABLE_ITEMS
+      + " AND i.configurationId = CAST(:configurationId AS uuid)"
+      + AVAILABLE_ITEMS_ORDER
+      + " LIMIT 1"
+      + " FOR UPDATE OF q SKIP LOCKED",
+      nativeQuery = true)
+  ExecutionQueueItem findNextAvailableForUpdate(@Param("now") ZonedDateTime now,
+      @Param("laneLimit") int laneLimit, @Param("configurationId") String configurationId);
+
+  @Query("SELECT q FROM ExecutionQueueItem q"
+      + " WHERE q.lockedUntil IS NULL OR q.lockedUntil < :now"
+      + " ORDER BY q.manualExecution, q.queuedDate")
+  List<ExecutionQueueItem> findAvailable(@Param("now") ZonedDateTime now);
+
+  @Modifying
+  @Query("UPDATE ExecutionQueueItem q SET q.lockedUntil = :lockedUntil"
+      + " WHERE q.id IN :ids AND q.lockedBy = :lockedBy")
+  int renewLocks(@Param("ids") Collection<UUID> ids, @Param("lockedBy") String lockedBy,
+      @Param("lockedUntil") ZonedDateTime lockedUntil);
+
+  /**
+   * Unlocks the item if it is still locked by the given worker. Workers do not see the item until
+   * the given date, but it does not count towards the lane limit of its target.
+   */
+  @Modifying
+  @Query("UPDATE ExecutionQueueItem q SET q.lockedBy = NULL, q.lockedUntil = :availableFrom"
+      + " WHERE q.id = :id AND q.lockedBy = :lockedBy")
+  int releaseByIdAndLockedBy(@Param("id") UUID id, @Param("lockedBy") String lockedBy,
+      @Param("availableFrom") ZonedDateTime availableFrom);
+
+  @Modifying
+  @Query("DELETE FROM ExecutionQueueItem q WHERE q.id = :id AND q.lockedBy = :lockedBy")
+  int removeByIdAndLockedBy(@Param("id") UUID id, @Param("lockedBy") String lockedBy);
+
+}
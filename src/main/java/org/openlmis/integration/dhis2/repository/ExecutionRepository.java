@@ -15,36 +15,21 @@
 
 package org.openlmis.integration.dhis2.repository;
 
-import java.util.Map;
 import java.util.UUID;
 import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.web.ExecutionDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
 
-public interface ExecutionRepository extends JpaRepository<Execution, UUID> {
+public interface ExecutionRepository extends JpaRepository<Execution, UUID>,
+    ExecutionRepositoryCustom {
 
   @Query(
-          value = "SELECT "
-                    + "new map("
-                      + "e.id AS id,"
-                      + "e.manualExecution AS manualExecution,"
-                      + "e.programId AS programId,"
-                      + "e.facilityId AS facilityId,"
-                      + "e.processingPeriodId AS processingPeriodId,"
-                      + "e.targetUrl AS targetUrl,"
-                      + "e.startDate AS startDae,"
-                      + "e.endDate AS endDate,"
-                      + "e.description AS description,"
-                      + "e.userId AS userId,"
-                      + "e.status AS status, "
-                      + "er.responseDate AS responseDate, "
-                      + "er.statusCode AS statusCode, "
-                      + "er.body AS body "
-                    + ") "
-                  + "FROM Execution e LEFT JOIN e.response er"
+      value = ExecutionRepositoryImpl.SELECT_EXECUTION_DTOS,
+      countQuery = ExecutionRepositoryImpl.COUNT_EXECUTIONS
   )
-  Page<Map<String, Object>> findAllExcludingRequestBody(Pageable pageable);
+  Page<ExecutionDto> findAllExcludingRequestBody(Pageable pageable);
 }
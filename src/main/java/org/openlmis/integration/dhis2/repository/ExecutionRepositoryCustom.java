@@ -0,0 +1,91 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.web.ExecutionDto;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ExecutionRepositoryCustom {
+
+  /**
+   * Retrieves the size of the gzip compressed request body of the given execution and the start
+   * date of the execution without loading the execution.
+   *
+   * @return the request body or null if the execution does not exist.
+   */
+  CompressedRequestBody findCompressedRequestBody(UUID id);
+
+  /**
+   * Opens a stream with a part of the given gzip compressed request body. The body is read from
+   * the database in chunks while the stream is read, so it is never loaded as a whole. The
+   * stream has to be read in the transaction in which it was opened.
+   *
+   * @param offset index of the first byte that should be read
+   * @param length max number of bytes that should be read
+   */
+  InputStream openCompressedRequestBody(CompressedRequestBody body, long offset, long length);
+
+  /**
+   * Retrieves executions (without request bodies) that match the given params. Executions are
+   * ordered from the newest one and the page starts right after the given cursor so there is no
+   * need to skip rows with OFFSET. The start date of the cursor and the start date filters let
+   * the database skip monthly partitions that can't contain matching executions.
+   *
+   * @param after the last execution from the previous page or null for the first page.
+   * @param limit max number of executions that should be returned.
+   */
+  List<ExecutionDto> searchExcludingRequestBody(ExecutionSearchParams params,
+      ExecutionCursor after, int limit);
+
+  /**
+   * Passes executions (without request bodies) that match the given params to the given
+   * consumer, newest first, as they are read from the database. Rows are fetched with a server
+   * side cursor in batches, so memory use doesn't depend on the number of executions.
+   */
+  @Transactional(readOnly = true)
+  void scrollExcludingRequestBody(ExecutionSearchParams params, Consumer<ExecutionDto> consumer);
+
+  /**
+   * Counts executions that match the given params.
+   */
+  long countExecutions(ExecutionSearchParams params);
+
+  /**
+   * Writes the request body and the status of the given execution that has already been saved.
+   * Other columns are not written.
+   *
+   * @throws IllegalStateException if there is no execution with the given id and start date.
+   */
+  @Transactional
+  void saveRequestBody(Execution execution);
+
+  /**
+   * Writes the status, the end date and the response of the given execution that has already
+   * been saved. The request body is not written again. A finished execution is also added to
+   * the execution statistics in the same transaction.
+   *
+   * @throws IllegalStateException if there is no execution with the given id and start date.
+   *     Nothing is written in that case.
+   */
+  @Transactional
+  void saveResult(Execution execution);
+
+}
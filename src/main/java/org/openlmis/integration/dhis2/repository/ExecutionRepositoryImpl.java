@@ -0,0 +1,328 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.web.ExecutionDto;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class ExecutionRepositoryImpl implements ExecutionRepositoryCustom {
+
+  static final int CHUNK_SIZE = 64 * 1024;
+  static final int SCROLL_FETCH_SIZE = 500;
+
+  // the start date is not known yet, so this is the only query that checks all partitions
+  private static final String SELECT_REQUEST_BODY = "SELECT"
+      + " e.startDate, octet_length(e.requestBody)"
+      + " FROM dhis2integration.executions AS e"
+      + " WHERE e.id = CAST(:id AS uuid)";
+
+  // substring in postgres counts bytes from 1
+  private static final String SELECT_REQUEST_BODY_PART = "SELECT"
+      + " substring(e.requestBody FROM :offset + 1 FOR :length)"
+      + " FROM dhis2integration.executions AS e"
+      + " WHERE e.id = CAST(:id AS uuid)"
+      + " AND e.startDate = :startDate";
+
+  // rows are mapped straight into DTOs, the request body column is never read
+  static final String SELECT_EXECUTION_DTOS = "SELECT"
+      + " new org.openlmis.integration.dhis2.web.ExecutionDto("
+      + "e.id,"
+      + " e.manualExecution,"
+      + " e.programId,"
+      + " e.facilityId,"
+      + " e.processingPeriodId,"
+      + " e.status,"
+      + " e.description,"
+      + " e.targetUrl,"
+      + " e.startDate,"
+      + " e.endDate,"
+      + " e.userId,"
+      + " er.responseDate,"
+      + " er.statusCode,"
+      + " er.body)"
+      + " FROM Execution AS e LEFT JOIN e.response AS er";
+
+  static final String COUNT_EXECUTIONS = "SELECT COUNT(e) FROM Execution AS e";
+
+  // the first condition is redundant but it lets the database scan an index range
+  private static final String AFTER_CURSOR = "e.startDate <= :cursorStartDate"
+      + " AND (e.startDate < :cursorStartDate"
+      + " OR (e.startDate = :cursorStartDate AND e.id < :cursorId))";
+
+  // the start date lets the database update only the partition that contains the execution
+  private static final String UPDATE_REQUEST_BODY = "UPDATE Execution AS e"
+      + " SET e.requestBody = :requestBody, e.status = :status"
+      + " WHERE e.id = :id AND e.startDate = :startDate";
+
+  private static final String UPDATE_RESULT = "UPDATE Execution AS e"
+      + " SET e.status = :status, e.endDate = :endDate"
+      + " WHERE e.id = :id AND e.startDate = :startDate";
+
+  private static final String ORDER_BY_NEWEST = " ORDER BY e.startDate DESC, e.id DESC";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private ExecutionStatisticsRepository executionStatisticsRepository;
+
+  @Override
+  public CompressedRequestBody findCompressedRequestBody(UUID id) {
+    List<?> result = entityManager
+        .createNativeQuery(SELECT_REQUEST_BODY)
+        .setParameter("id", id.toString())
+        .getResultList();
+
+    if (result.isEmpty()) {
+      return null;
+    }
+
+    Object[] row = (Object[]) result.get(0);
+    ZonedDateTime startDate = ZonedDateTime
+        .ofInstant(((Timestamp) row[0]).toInstant(), ZoneOffset.UTC);
+
+    return new CompressedRequestBody(id, startDate, ((Number) row[1]).longValue());
+  }
+
+  @Override
+  public InputStream openCompressedRequestBody(CompressedRequestBody body, long offset,
+      long length) {
+    return new ChunkInputStream(body, offset, offset + length);
+  }
+
+  @Override
+  public List<ExecutionDto> searchExcludingRequestBody(ExecutionSearchParams params,
+      ExecutionCursor after, int limit) {
+    Map<String, Object> parameters = new HashMap<>();
+    List<String> conditions = getConditions(params, parameters);
+
+    if (null != after) {
+      conditions.add(AFTER_CURSOR);
+      parameters.put("cursorStartDate", after.getStartDate());
+      parameters.put("cursorId", after.getId());
+    }
+
+    String jpql = SELECT_EXECUTION_DTOS + getWhereClause(conditions) + ORDER_BY_NEWEST;
+    TypedQuery<ExecutionDto> query = entityManager
+        .createQuery(jpql, ExecutionDto.class)
+        .setMaxResults(limit);
+    parameters.forEach(query::setParameter);
+
+    return query.getResultList();
+  }
+
+  @Override
+  public void scrollExcludingRequestBody(ExecutionSearchParams params,
+      Consumer<ExecutionDto> consumer) {
+    Map<String, Object> parameters = new HashMap<>();
+    List<String> conditions = getConditions(params, parameters);
+
+    // rows are mapped straight into DTOs so the session doesn't keep any of them
+    org.hibernate.Query query = entityManager
+        .unwrap(Session.class)
+        .createQuery(SELECT_EXECUTION_DTOS + getWhereClause(conditions) + ORDER_BY_NEWEST)
+        .setFetchSize(SCROLL_FETCH_SIZE)
+        .setReadOnly(true);
+    parameters.forEach(query::setParameter);
+
+    try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+      while (results.next()) {
+        consumer.accept((ExecutionDto) results.get(0));
+      }
+    }
+  }
+
+  @Override
+  public long countExecutions(ExecutionSearchParams params) {
+    Map<String, Object> parameters = new HashMap<>();
+    List<String> conditions = getConditions(params, parameters);
+
+    Query query = entityManager.createQuery(COUNT_EXECUTIONS + getWhereClause(conditions));
+    parameters.forEach(query::setParameter);
+
+    return ((Number) query.getSingleResult()).longValue();
+  }
+
+  @Override
+  public void saveRequestBody(Execution execution) {
+    int updated = entityManager
+        .createQuery(UPDATE_REQUEST_BODY)
+        .setParameter("requestBody", execution.getCompressedRequestBody())
+        .setParameter("status", execution.getStatus())
+        .setParameter("id", execution.getId())
+        .setParameter("startDate", execution.getStartDate())
+        .executeUpdate();
+
+    checkUpdated(execution, updated);
+  }
+
+  @Override
+  public void saveResult(Execution execution) {
+    int updated = entityManager
+        .createQuery(UPDATE_RESULT)
+        .setParameter("status", execution.getStatus())
+        .setParameter("endDate", execution.getEndDate())
+        .setParameter("id", execution.getId())
+        .setParameter("startDate", execution.getStartDate())
+        .executeUpdate();
+
+    // the response and the statistics must not be written for an execution that doesn't exist
+    checkUpdated(execution, updated);
+
+    if (null != execution.getResponse()) {
+      entityManager.persist(execution.getResponse());
+    }
+
+    executionStatisticsRepository.record(execution);
+  }
+
+  private void checkUpdated(Execution execution, int updated) {
+    if (1 != updated) {
+      throw new IllegalStateException("Execution " + execution.getId() + " started at "
+          + execution.getStartDate() + " does not exist, updated rows: " + updated);
+    }
+  }
+
+  private List<String> getConditions(ExecutionSearchParams params,
+      Map<String, Object> parameters) {
+    List<String> conditions = new ArrayList<>();
+
+    addCondition(conditions, parameters, "e.status = :status", "status",
+        params.getStatus());
+    addCondition(conditions, parameters, "e.programId = :programId", "programId",
+        params.getProgramId());
+    addCondition(conditions, parameters, "e.facilityId = :facilityId", "facilityId",
+        params.getFacilityId());
+    addCondition(conditions, parameters, "e.processingPeriodId = :processingPeriodId",
+        "processingPeriodId", params.getProcessingPeriodId());
+    addCondition(conditions, parameters, "e.manualExecution = :manualExecution",
+        "manualExecution", params.getManualExecution());
+    addCondition(conditions, parameters, "e.startDate >= :startDateFrom", "startDateFrom",
+        params.getStartDateFrom());
+    addCondition(conditions, parameters, "e.startDate <= :startDateTo", "startDateTo",
+        params.getStartDateTo());
+
+    return conditions;
+  }
+
+  private void addCondition(List<String> conditions, Map<String, Object> parameters,
+      String condition, String name, Object value) {
+    if (null != value) {
+      conditions.add(condition);
+      parameters.put(name, value);
+    }
+  }
+
+  private String getWhereClause(List<String> conditions) {
+    return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+  }
+
+  private byte[] findCompressedRequestBodyPart(CompressedRequestBody body, long offset,
+      int length) {
+    List<?> result = entityManager
+        .createNativeQuery(SELECT_REQUEST_BODY_PART)
+        .setParameter("id", body.getExecutionId().toString())
+        .setParameter("startDate", Timestamp.from(body.getStartDate().toInstant()))
+        .setParameter("offset", Math.toIntExact(offset))
+        .setParameter("length", length)
+        .getResultList();
+
+    return result.isEmpty() ? null : (byte[]) result.get(0);
+  }
+
+  private final class ChunkInputStream extends InputStream {
+    private final CompressedRequestBody body;
+    private final long end;
+    private long position;
+
+    private byte[] chunk = new byte[0];
+    private int chunkPosition;
+
+    ChunkInputStream(CompressedRequestBody body, long start, long end) {
+      this.body = body;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() {
+      if (!hasNextByte()) {
+        return -1;
+      }
+
+      return chunk[chunkPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (0 == length) {
+        return 0;
+      }
+
+      if (!hasNextByte()) {
+        return -1;
+      }
+
+      int count = Math.min(length, chunk.length - chunkPosition);
+      System.arraycopy(chunk, chunkPosition, bytes, offset, count);
+      chunkPosition += count;
+
+      return count;
+    }
+
+    private boolean hasNextByte() {
+      if (chunkPosition < chunk.length) {
+        return true;
+      }
+
+      if (position >= end) {
+        return false;
+      }
+
+      int size = (int) Math.min(CHUNK_SIZE, end - position);
+      byte[] next = findCompressedRequestBodyPart(body, position, size);
+
+      if (null == next || 0 == next.length) {
+        return false;
+      }
+
+      chunk = next;
+      chunkPosition = 0;
+      position += next.length;
+
+      return true;
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static org.openlmis.integration.dhis2.i18n.MessageKeys.ERROR_EXECUTION_SEARCH_PARAM_INVALID;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+import java.util.function.Function;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Filters that can be used to search the execution history. Parameters that have not been
+ * passed are not used to filter executions.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class ExecutionSearchParams {
+
+  static final String STATUS = "status";
+  static final String PROGRAM_ID = "programId";
+  static final String FACILITY_ID = "facilityId";
+  static final String PROCESSING_PERIOD_ID = "processingPeriodId";
+  static final String MANUAL_EXECUTION = "manualExecution";
+  static final String START_DATE_FROM = "startDateFrom";
+  static final String START_DATE_TO = "startDateTo";
+
+  private final ExecutionStatus status;
+  private final UUID programId;
+  private final UUID facilityId;
+  private final UUID processingPeriodId;
+  private final Boolean manualExecution;
+  private final ZonedDateTime startDateFrom;
+  private final ZonedDateTime startDateTo;
+
+  /**
+   * Creates search params from the given query params. Unknown query params are ignored.
+   *
+   * @throws ValidationMessageException if a value of the known param can't be parsed.
+   */
+  public ExecutionSearchParams(MultiValueMap<String, String> queryParams) {
+    status = parse(queryParams, STATUS, ExecutionStatus::valueOf);
+    programId = parse(queryParams, PROGRAM_ID, UUID::fromString);
+    facilityId = parse(queryParams, FACILITY_ID, UUID::fromString);
+    processingPeriodId = parse(queryParams, PROCESSING_PERIOD_ID, UUID::fromString);
+    manualExecution = parse(queryParams, MANUAL_EXECUTION, ExecutionSearchParams::parseBoolean);
+    startDateFrom = parse(queryParams, START_DATE_FROM, ZonedDateTime::parse);
+    startDateTo = parse(queryParams, START_DATE_TO, ZonedDateTime::parse);
+  }
+
+  private static <T> T parse(MultiValueMap<String, String> queryParams, String name,
+      Function<String, T> parser) {
+    String value = queryParams.getFirst(name);
+
+    if (null == value) {
+      return null;
+    }
+
+    try {
+      return parser.apply(value);
+    } catch (IllegalArgumentException | DateTimeParseException exp) {
+      throw new ValidationMessageException(exp, ERROR_EXECUTION_SEARCH_PARAM_INVALID,
+          name, value);
+    }
+  }
+
+  private static Boolean parseBoolean(String value) {
+    if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+      return Boolean.valueOf(value);
+    }
+
+    throw new IllegalArgumentException(value);
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.util.DurationHistogram;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+import org.openlmis.integration.dhis2.web.ExecutionStatisticsDto;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps rollups of finished executions per program and target URL. Each finished execution
+ * increments a few counters, so statistics can be read without scanning the execution history.
+ */
+@Repository
+public class ExecutionStatisticsRepository {
+
+  // the same expression is used by unique indexes of rollup tables
+  private static final String PROGRAM_KEY = "COALESCE(programId,"
+      + " CAST('00000000-0000-0000-0000-000000000000' AS uuid))";
+
+  // null values are passed as empty texts because Hibernate can't bind a null UUID here
+  private static final String PROGRAM_ID = "CAST(NULLIF(:programId, '') AS uuid)";
+
+  private static final String UPSERT_STATUS_STATISTICS = "INSERT INTO"
+      + " dhis2integration.execution_statistics AS s"
+      + " (programId, targetUrl, status, executionCount, lastEndDate,"
+      + " totalPayloadSize, maxPayloadSize, totalCompressedPayloadSize)"
+      + " VALUES (" + PROGRAM_ID + ", :targetUrl, :status, 1, CAST(:endDate AS timestamptz),"
+      + " :payloadSize, :payloadSize, :compressedPayloadSize)"
+      + " ON CONFLICT (" + PROGRAM_KEY + ", targetUrl, status) DO UPDATE SET"
+      + " executionCount = s.executionCount + 1,"
+      + " lastEndDate = GREATEST(s.lastEndDate, EXCLUDED.lastEndDate),"
+      + " totalPayloadSize = s.totalPayloadSize + EXCLUDED.totalPayloadSize,"
+      + " maxPayloadSize = GREATEST(s.maxPayloadSize, EXCLUDED.maxPayloadSize),"
+      + " totalCompressedPayloadSize"
+      + " = s.totalCompressedPayloadSize + EXCLUDED.totalCompressedPayloadSize";
+
+  private static final String UPSERT_DURATION_BUCKET = "INSERT INTO"
+      + " dhis2integration.execution_duration_buckets AS b"
+      + " (programId, targetUrl, bucket, executionCount)"
+      + " VALUES (" + PROGRAM_ID + ", :targetUrl, :bucket, 1)"
+      + " ON CONFLICT (" + PROGRAM_KEY + ", targetUrl, bucket) DO UPDATE SET"
+      + " executionCount = b.executionCount + 1";
+
+  private static final String SELECT_STATUS_STATISTICS = "SELECT"
+      + " CAST(s.programId AS text), s.targetUrl, s.status, s.executionCount, s.lastEndDate,"
+      + " s.totalPayloadSize, s.maxPayloadSize, s.totalCompressedPayloadSize"
+      + " FROM dhis2integration.execution_statistics AS s"
+      + " ORDER BY s.targetUrl, s.programId";
+
+  private static final String SELECT_DURATION_BUCKETS = "SELECT"
+      + " CAST(b.programId AS text), b.targetUrl, b.bucket, b.executionCount"
+      + " FROM dhis2integration.execution_duration_buckets AS b";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Adds the given finished execution to the rollups. Executions that have not finished yet
+   * are ignored.
+   */
+  @Transactional
+  public void record(Execution execution) {
+    if (null == execution.getEndDate() || !isFinished(execution.getStatus())) {
+      return;
+    }
+
+    byte[] requestBody = execution.getCompressedRequestBody();
+    boolean hasRequestBody = null != requestBody
+        && requestBody.length >= GzipUtils.SIZE_TRAILER_LENGTH;
+
+    long payloadSize = hasRequestBody ? GzipUtils.getUncompressedSize(requestBody) : 0;
+    long compressedPayloadSize = hasRequestBody ? requestBody.length : 0;
+    long duration = Duration
+        .between(execution.getStartDate(), execution.getEndDate())
+        .toMillis();
+
+    String programId = null == execution.getProgramId()
+        ? ""
+        : execution.getProgramId().toString();
+
+    entityManager
+        .createNativeQuery(UPSERT_STATUS_STATISTICS)
+        .setParameter("programId", programId)
+        .setParameter("targetUrl", execution.getTargetUrl())
+        .setParameter("status", execution.getStatus().name())
+        .setParameter("endDate", execution.getEndDate().toOffsetDateTime().toString())
+        .setParameter("payloadSize", payloadSize)
+        .setParameter("compressedPayloadSize", compressedPayloadSize)
+        .executeUpdate();
+
+    entityManager
+        .createNativeQuery(UPSERT_DURATION_BUCKET)
+        .setParameter("programId", programId)
+        .setParameter("targetUrl", execution.getTargetUrl())
+        .setParameter("bucket", DurationHistogram.bucketOf(duration))
+        .executeUpdate();
+  }
+
+  /**
+   * Retrieves statistics of finished executions for each program and target URL.
+   */
+  @Transactional(readOnly = true)
+  public List<ExecutionStatisticsDto> findAll() {
+    Map<Pair<String, String>, ExecutionStatisticsDto> statistics = new LinkedHashMap<>();
+
+    for (Object[] row : getResultList(SELECT_STATUS_STATISTICS)) {
+      Timestamp lastEndDate = (Timestamp) row[4];
+
+      getStatistics(statistics, row).addStatusStatistics(
+          ExecutionStatus.valueOf((String) row[2]),
+          ((Number) row[3]).longValue(),
+          null == lastEndDate
+              ? null
+              : ZonedDateTime.ofInstant(lastEndDate.toInstant(), ZoneOffset.UTC),
+          ((Number) row[5]).longValue(),
+          ((Number) row[6]).longValue(),
+          ((Number) row[7]).longValue());
+    }
+
+    for (Object[] row : getResultList(SELECT_DURATION_BUCKETS)) {
+      getStatistics(statistics, row)
+          .addDurations(((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+    }
+
+    return new ArrayList<>(statistics.values());
+  }
+
+  private boolean isFinished(ExecutionStatus status) {
+    return ExecutionStatus.SUCCESS == status || ExecutionStatus.ERROR == status;
+  }
+
+  private List<Object[]> getResultList(String sql) {
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = entityManager
+        .createNativeQuery(sql)
+        .getResultList();
+
+    return rows;
+  }
+
+  private ExecutionStatisticsDto getStatistics(
+      Map<Pair<String, String>, ExecutionStatisticsDto> statistics, Object[] row) {
+    String programId = (String) row[0];
+    String targetUrl = (String) row[1];
+
+    return statistics.computeIfAbsent(ImmutablePair.of(programId, targetUrl),
+        key -> new ExecutionStatisticsDto(
+            null == programId ? null : UUID.fromString(programId), targetUrl));
+  }
+
+}
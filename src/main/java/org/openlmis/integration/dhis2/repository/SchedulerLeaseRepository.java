@@ -0,0 +1,48 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import org.openlmis.integration.dhis2.domain.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+  /**
+   * Takes or extends the lease with the given name. The lease is taken only if nobody holds it or
+   * the lease of the current holder has expired. The database time is used so the clocks of the
+   * service instances do not have to be in sync. Returns 1 if the holder has the lease.
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO dhis2integration.scheduler_leases (name, holder, leaseUntil)"
+      + " VALUES (:name, :holder, NOW() + :leaseTime * INTERVAL '1 millisecond')"
+      + " ON CONFLICT (name) DO UPDATE"
+      + " SET holder = EXCLUDED.holder, leaseUntil = EXCLUDED.leaseUntil"
+      + " WHERE scheduler_leases.holder = EXCLUDED.holder"
+      + " OR scheduler_leases.leaseUntil < NOW()",
+      nativeQuery = true)
+  int acquire(@Param("name") String name, @Param("holder") String holder,
+      @Param("leaseTime") long leaseTime);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM SchedulerLease l WHERE l.name = :name AND l.holder = :holder")
+  int release(@Param("name") String name, @Param("holder") String holder);
+
+}
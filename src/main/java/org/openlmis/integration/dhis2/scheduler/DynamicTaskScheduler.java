@@ -18,9 +18,13 @@ package org.openlmis.integration.dhis2.scheduler;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 import org.openlmis.integration.dhis2.domain.Integration;
 import org.openlmis.integration.dhis2.repository.IntegrationRepository;
@@ -48,12 +52,18 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
   @Value("${dhis2.enableAutoSend}")
   private boolean enableAutoSend;
 
+  @Value("${dhis2.scheduler.poolSize}")
+  private int poolSize;
+
   @Autowired
   private PayloadService payloadService;
 
   @Autowired
   private IntegrationRepository integrationRepository;
 
+  @Autowired
+  private SchedulerLeaderElection leaderElection;
+
   @Autowired
   private PeriodReferenceDataService periodReferenceDataService;
 
@@ -62,6 +72,8 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
   private Clock clock;
   private TimeZone timeZone;
 
+  private final List<ScheduledFuture<?>> cronTasks = new ArrayList<>();
+
   /**
    * Creates new task by cron expressions from DB.
    */
@@ -70,42 +82,38 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
     this.taskRegistrar = taskRegistrar;
     this.taskRegistrar.setScheduler(poolScheduler());
 
-    refresh(true);
-  }
-
-  public void refresh() {
-    refresh(false);
+    refresh();
   }
 
-  private void refresh(boolean initialization) {
+  /**
+   * Replaces the cron tasks with new ones created from the current integrations. Only the cron
+   * tasks are rescheduled; the other tasks of the registrar, like the @Scheduled jobs, are not
+   * touched.
+   */
+  public synchronized void refresh() {
     if (!enableAutoSend) {
       LOGGER.warn("Auto sending data is disabled");
       return;
     }
 
-    LOGGER.info("Destroying current cron tasks");
-    taskRegistrar.destroy();
-    LOGGER.info("Destroyed current cron tasks");
+    LOGGER.info("Cancelling current cron tasks");
+    // a task that is sending data right now is allowed to finish
+    cronTasks.forEach(task -> task.cancel(false));
+    cronTasks.clear();
+    LOGGER.info("Cancelled current cron tasks");
 
     LOGGER.info("Create new cron tasks");
-    List<CronTask> tasks = integrationRepository
+    TaskScheduler scheduler = taskRegistrar.getScheduler();
+    integrationRepository
         .findAll()
         .stream()
         .collect(Collectors.groupingBy(Integration::getCronExpression))
         .entrySet()
         .stream()
         .map(this::createTask)
-        .collect(Collectors.toList());
+        .forEach(task -> cronTasks.add(scheduler.schedule(task.getRunnable(), task.getTrigger())));
 
-    taskRegistrar.setCronTasksList(tasks);
-    LOGGER.info("Set new cron tasks");
-
-    if (!initialization) {
-      // when the service is initialized by spring the following method does not need to be call
-      // because the framework will do this for us but the method needs to be called after each
-      // change in any integration entry.
-      taskRegistrar.afterPropertiesSet();
-    }
+    LOGGER.info("Scheduled {} new cron tasks", cronTasks.size());
   }
 
   private CronTask createTask(Map.Entry<String, List<Integration>> entry) {
@@ -114,7 +122,14 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
         entry.getKey(), entry.getValue().size());
 
     CronTrigger trigger = new CronTrigger(entry.getKey(), timeZone);
-    Runnable task = () -> sendData(entry.getValue());
+    Runnable task = () -> {
+      // all instances register the same tasks but only one of them should send data
+      if (leaderElection.isLeader()) {
+        sendData(entry.getValue());
+      } else {
+        LOGGER.debug("Skip >{}< cron expression, another instance sends data", entry.getKey());
+      }
+    };
 
     return new CronTask(task, trigger);
   }
@@ -128,7 +143,8 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
   private TaskScheduler poolScheduler() {
     ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
     scheduler.setThreadNamePrefix("ThreadPoolTaskScheduler");
-    scheduler.setPoolSize(1);
+    // a long running job, like the location synchronization, should not hold up the others
+    scheduler.setPoolSize(poolSize);
     scheduler.initialize();
 
     return scheduler;
@@ -140,31 +156,39 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
   private void sendData(List<Integration> integrations) {
     LOGGER.debug("Send data for {} integrations", integrations.size());
 
-    LocalDate now = LocalDate.now(clock);
-    LocalDate then;
-    long daysBetween;
+    // integrations for the same program share the period, so it is found only once
+    Map<UUID, ProcessingPeriodDto> periods = new HashMap<>();
+    // only requests from this run share request bodies, later runs build fresh ones
+    UUID batchId = UUID.randomUUID();
 
     for (Integration integration : integrations) {
-      // MALAWISUP-2518: scheduled integration works for all type of programs
-      ProcessingPeriodDto period = periodReferenceDataService.search(now,
-          integration.getProgramId()).get(0);
+      ProcessingPeriodDto period = periods
+          .computeIfAbsent(integration.getProgramId(), this::findPeriod);
+
+      sendData(integration, period, batchId);
+    }
+    LOGGER.debug("Sent data for {} integrations", integrations.size());
+  }
 
-      daysBetween = ChronoUnit.DAYS.between(period.getStartDate(), period.getEndDate());
-      then = now.minusDays(daysBetween);
+  private ProcessingPeriodDto findPeriod(UUID programId) {
+    LocalDate now = LocalDate.now(clock);
 
-      period = periodReferenceDataService.search(then,
-          integration.getProgramId()).get(0);
+    // MALAWISUP-2518: scheduled integration works for all type of programs
+    ProcessingPeriodDto period = periodReferenceDataService.search(now, programId).get(0);
 
-      LOGGER.trace("Days between: {}", daysBetween);
-      LOGGER.trace("Period starts: {}", period.getStartDate());
-      LOGGER.trace("period: {}", period.getName());
+    long daysBetween = ChronoUnit.DAYS.between(period.getStartDate(), period.getEndDate());
+    LocalDate then = now.minusDays(daysBetween);
 
-      sendData(integration, period);
-    }
-    LOGGER.debug("Sent data for {} integrations", integrations.size());
+    period = periodReferenceDataService.search(then, programId).get(0);
+
+    LOGGER.trace("Days between: {}", daysBetween);
+    LOGGER.trace("Period starts: {}", period.getStartDate());
+    LOGGER.trace("period: {}", period.getName());
+
+    return period;
   }
 
-  private void sendData(Integration integration, ProcessingPeriodDto period) {
+  private void sendData(Integration integration, ProcessingPeriodDto period, UUID batchId) {
     if (null == integration.getProgramId()) {
       LOGGER.info("Send data for all programs for {} period", period.getName());
     } else {
@@ -174,7 +198,7 @@ public class DynamicTaskScheduler implements SchedulingConfigurer {
       );
     }
 
-    PayloadRequest request = PayloadRequest.forAutomaticExecution(integration, period);
+    PayloadRequest request = PayloadRequest.forAutomaticExecution(integration, period, batchId);
     payloadService.postPayload(request);
   }
 
@@ -0,0 +1,96 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.scheduler;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.openlmis.integration.dhis2.repository.ExecutionPartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the monthly partitions of the execution history. Partitions for the current and the
+ * next month are created in advance, and partitions older than the retention period are dropped
+ * (or archived) as a whole, so old executions never have to be deleted row by row. Only the
+ * scheduler leader does the maintenance.
+ */
+@Component
+public class ExecutionPartitionMaintenance {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(ExecutionPartitionMaintenance.class);
+
+  static final int MONTHS_CREATED_AHEAD = 1;
+
+  @Value("${dhis2.executionPartitions.retentionMonths}")
+  private int retentionMonths;
+
+  @Value("${dhis2.executionPartitions.archiveSchema}")
+  private String archiveSchema;
+
+  @Autowired
+  private ExecutionPartitionRepository executionPartitionRepository;
+
+  @Autowired
+  private SchedulerLeaderElection schedulerLeaderElection;
+
+  @Autowired
+  private Clock clock;
+
+  /**
+   * Creates upcoming partitions and removes the expired ones. The retention period is counted in
+   * whole months (in UTC); zero or less keeps all partitions.
+   */
+  @Scheduled(initialDelayString = "${dhis2.executionPartitions.initialDelay}",
+      fixedDelayString = "${dhis2.executionPartitions.maintenanceDelay}")
+  public void maintainPartitions() {
+    if (!schedulerLeaderElection.isLeader()) {
+      return;
+    }
+
+    YearMonth currentMonth = YearMonth.from(clock.instant().atZone(ZoneOffset.UTC));
+
+    try {
+      for (int i = 0; i <= MONTHS_CREATED_AHEAD; ++i) {
+        executionPartitionRepository.createPartitions(currentMonth.plusMonths(i));
+      }
+
+      if (retentionMonths > 0) {
+        removeExpiredPartitions(currentMonth.minusMonths(retentionMonths));
+      }
+    } catch (DataAccessException exp) {
+      LOGGER.error("Unable to maintain partitions of the execution history", exp);
+    }
+  }
+
+  private void removeExpiredPartitions(YearMonth oldestKeptMonth) {
+    List<String> partitions = executionPartitionRepository.findPartitionsBefore(oldestKeptMonth);
+
+    for (String partition : partitions) {
+      executionPartitionRepository.removePartition(partition, archiveSchema);
+      LOGGER.info("Partition {} of the execution history has been {}", partition,
+          archiveSchema.isEmpty() ? "dropped" : "archived in " + archiveSchema);
+    }
+  }
+
+}
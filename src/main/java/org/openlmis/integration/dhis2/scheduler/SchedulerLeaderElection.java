@@ -0,0 +1,125 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.scheduler;
+
+import java.time.Clock;
+import java.time.Instant;
+import javax.annotation.PreDestroy;
+import org.openlmis.integration.dhis2.repository.SchedulerLeaseRepository;
+import org.openlmis.integration.dhis2.service.ExecutionQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses one instance of the service that fires the scheduled integrations. The leader holds
+ * a lease in the database and renews it regularly. When the leader stops, the lease expires and
+ * another instance takes it over.
+ */
+@Component
+public class SchedulerLeaderElection {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerLeaderElection.class);
+
+  static final String LEASE_NAME = "integration-scheduler";
+
+  @Value("${dhis2.scheduler.leaderElection.enabled}")
+  private boolean enabled;
+
+  @Value("${dhis2.scheduler.leaderElection.leaseTime}")
+  private long leaseTime;
+
+  @Value("${dhis2.scheduler.leaderElection.safetyMargin}")
+  private long safetyMargin;
+
+  @Autowired
+  private SchedulerLeaseRepository schedulerLeaseRepository;
+
+  @Autowired
+  private ExecutionQueue executionQueue;
+
+  @Autowired
+  private Clock clock;
+
+  private volatile Instant leaderUntil = Instant.MIN;
+
+  /**
+   * Checks if this instance should fire the scheduled integrations. The instance is the leader
+   * until its last renewal is older than the lease time minus the safety margin, even if the
+   * database is not available.
+   */
+  public boolean isLeader() {
+    return !enabled || clock.instant().isBefore(leaderUntil);
+  }
+
+  /**
+   * Takes or renews the lease. The database sets the lease end with its own clock, which may run
+   * at a slightly different pace than the clock of this instance. The local lease end is counted
+   * from the moment before the request was sent and ends the safety margin earlier, so this
+   * instance stops being the leader before another instance can take the lease over.
+   */
+  @Scheduled(fixedDelayString = "${dhis2.scheduler.leaderElection.renewDelay}")
+  public void renewLease() {
+    if (!enabled) {
+      return;
+    }
+
+    boolean wasLeader = isLeader();
+    Instant now = clock.instant();
+
+    try {
+      if (1 == schedulerLeaseRepository.acquire(LEASE_NAME, getHolder(), leaseTime)) {
+        leaderUntil = now.plusMillis(leaseTime - safetyMargin);
+      }
+    } catch (DataAccessException exp) {
+      LOGGER.error("Unable to renew the scheduler lease", exp);
+    }
+
+    boolean leader = isLeader();
+
+    if (leader != wasLeader) {
+      LOGGER.info(leader
+          ? "This instance fires scheduled integrations now"
+          : "This instance does not fire scheduled integrations anymore");
+    }
+  }
+
+  /**
+   * Gives up the lease so another instance can take it without waiting for the lease to expire.
+   */
+  @PreDestroy
+  public void releaseLease() {
+    if (!enabled || !isLeader()) {
+      return;
+    }
+
+    leaderUntil = Instant.MIN;
+
+    try {
+      schedulerLeaseRepository.release(LEASE_NAME, getHolder());
+    } catch (DataAccessException exp) {
+      LOGGER.warn("Unable to release the scheduler lease", exp);
+    }
+  }
+
+  private String getHolder() {
+    return executionQueue.getWorkerId();
+  }
+
+}
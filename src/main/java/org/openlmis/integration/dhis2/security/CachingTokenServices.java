@@ -0,0 +1,218 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.time.Clock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.AllArgsConstructor;
+import org.openlmis.integration.dhis2.service.ResponseCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Implementation of {@link ResourceServerTokenServices} that keeps results of token checks done
+ * by the given token services (usually remote ones), so the auth server is not asked about the
+ * same token on every request. A valid token is kept until it expires (the exp attribute, kept by
+ * {@link ExpirationAwareAccessTokenConverter}) but not longer than the max TTL, so a revoked
+ * token is rejected after at most that time. A rejected token is kept for the rejected TTL.
+ * Errors other than invalid tokens (like an unavailable auth server) are never kept. Least
+ * recently used tokens are removed first when the cache is full. The cache is disabled if the max
+ * size or the max TTL is not positive.
+ */
+public class CachingTokenServices implements ResourceServerTokenServices {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CachingTokenServices.class);
+
+  public static final String CACHE_NAME = "tokens";
+
+  private final ResourceServerTokenServices delegate;
+  private final Clock clock;
+  private final long maxSize;
+  private final long maxTtl;
+  private final long rejectedTtl;
+  private final Cache<String, TokenCheck> cache;
+
+  /**
+   * Creates token services that keep results of the given token services.
+   *
+   * @param delegate    token services that check tokens
+   * @param clock       clock used to find out if a kept result has expired
+   * @param maxSize     max number of kept tokens
+   * @param maxTtl      max time (in milliseconds) for which a valid token is kept
+   * @param rejectedTtl time (in milliseconds) for which a rejected token is kept
+   */
+  public CachingTokenServices(ResourceServerTokenServices delegate, Clock clock, long maxSize,
+      long maxTtl, long rejectedTtl) {
+    this.delegate = delegate;
+    this.clock = clock;
+    this.maxSize = maxSize;
+    this.maxTtl = maxTtl;
+    this.rejectedTtl = rejectedTtl;
+
+    boolean enabled = maxSize > 0 && maxTtl > 0;
+    LOGGER.info("Create the token cache (maxSize: {}, maxTtl: {} ms, rejectedTtl: {} ms, "
+        + "enabled: {})", maxSize, maxTtl, rejectedTtl, enabled);
+
+    CacheBuilder<Object, Object> builder = CacheBuilder
+        .newBuilder()
+        .recordStats()
+        .maximumSize(enabled ? maxSize : 0);
+
+    if (enabled) {
+      builder.expireAfterWrite(maxTtl, TimeUnit.MILLISECONDS);
+    }
+
+    this.cache = builder.build();
+  }
+
+  /**
+   * Returns the authentication for the given token. The kept one is used if it has not expired
+   * yet, otherwise the token is checked by the delegate. Concurrent requests with the same token
+   * wait for a single check.
+   */
+  @Override
+  public OAuth2Authentication loadAuthentication(String accessToken) {
+    TokenCheck check = getTokenCheck(accessToken);
+
+    if (check.isExpired(clock.millis())) {
+      // the result is not worth keeping, like a rejected token when the rejected TTL is zero
+      cache.asMap().remove(accessToken, check);
+    }
+
+    return check.getAuthentication();
+  }
+
+  @Override
+  public OAuth2AccessToken readAccessToken(String accessToken) {
+    return delegate.readAccessToken(accessToken);
+  }
+
+  /**
+   * Removes all kept tokens, so they are checked by the auth server again.
+   */
+  public void evictAll() {
+    LOGGER.info("Evict tokens from the token cache");
+    cache.invalidateAll();
+  }
+
+  /**
+   * Exports settings and statistics of the cache.
+   */
+  public <E extends ResponseCache.Exporter> E export(E exporter) {
+    CacheStats stats = cache.stats();
+
+    exporter.setName(CACHE_NAME);
+    exporter.setMaxSize(maxSize);
+    exporter.setExpireAfter(maxTtl);
+    exporter.setSize(cache.size());
+    exporter.setHitCount(stats.hitCount());
+    exporter.setMissCount(stats.missCount());
+    exporter.setEvictionCount(stats.evictionCount());
+
+    return exporter;
+  }
+
+  private TokenCheck getTokenCheck(String accessToken) {
+    AtomicReference<TokenCheck> loaded = new AtomicReference<>();
+    TokenCheck check;
+
+    try {
+      check = cache.get(accessToken, () -> {
+        loaded.set(checkToken(accessToken));
+        return loaded.get();
+      });
+    } catch (ExecutionException | UncheckedExecutionException exp) {
+      Throwable cause = exp.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new IllegalStateException(cause);
+    }
+
+    if (check == loaded.get() || !check.isExpired(clock.millis())) {
+      return check;
+    }
+
+    cache.asMap().remove(accessToken, check);
+    return getTokenCheck(accessToken);
+  }
+
+  private TokenCheck checkToken(String accessToken) {
+    long now = clock.millis();
+
+    try {
+      OAuth2Authentication authentication = delegate.loadAuthentication(accessToken);
+
+      if (null == authentication) {
+        throw new InvalidTokenException("Invalid access token");
+      }
+
+      return new TokenCheck(authentication, null, getExpiresAt(authentication, now));
+    } catch (InvalidTokenException exp) {
+      return new TokenCheck(null, exp, now + rejectedTtl);
+    }
+  }
+
+  private long getExpiresAt(OAuth2Authentication authentication, long now) {
+    long expiresAt = now + maxTtl;
+    Object expiration = authentication
+        .getOAuth2Request()
+        .getExtensions()
+        .get(AccessTokenConverter.EXP);
+
+    if (expiration instanceof Number) {
+      expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(((Number) expiration).longValue()));
+    }
+
+    return expiresAt;
+  }
+
+  @AllArgsConstructor
+  private static final class TokenCheck {
+    private final OAuth2Authentication authentication;
+    private final InvalidTokenException rejection;
+    private final long expiresAt;
+
+    boolean isExpired(long now) {
+      return expiresAt <= now;
+    }
+
+    // each request gets its own copy because request details are set on the authentication
+    OAuth2Authentication getAuthentication() {
+      if (null != rejection) {
+        throw new InvalidTokenException(rejection.getMessage());
+      }
+
+      OAuth2Request request = authentication.getOAuth2Request();
+      return new OAuth2Authentication(request, authentication.getUserAuthentication());
+    }
+  }
+
+}
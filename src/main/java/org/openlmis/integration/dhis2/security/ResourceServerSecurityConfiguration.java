@@ -16,6 +16,7 @@
 package org.openlmis.integration.dhis2.security;
 
 import java.io.IOException;
+import java.time.Clock;
 import java.util.Arrays;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -26,6 +27,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -38,6 +42,8 @@ import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -98,31 +104,57 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
    */
   @Bean
   public AccessTokenConverter accessTokenConverter() {
-    DefaultAccessTokenConverter defaultAccessTokenConverter = new DefaultAccessTokenConverter();
+    DefaultAccessTokenConverter defaultAccessTokenConverter =
+        new ExpirationAwareAccessTokenConverter();
     defaultAccessTokenConverter.setUserTokenConverter(new CustomUserAuthenticationConverter());
     return defaultAccessTokenConverter;
   }
 
   /**
-   * RemoteTokenServices bean initializer.
+   * Token services bean initializer. Tokens are checked by the auth server and results of checks
+   * are kept by {@link CachingTokenServices}.
    *
-   * @param checkTokenUrl url to check tokens against
-   * @param clientId      client's id
-   * @param clientSecret  client's secret
+   * @param checkTokenUrl  url to check tokens against
+   * @param clientId       client's id
+   * @param clientSecret   client's secret
+   * @param requestFactory factory of requests sent to the auth server
+   * @param clock          clock used to expire kept tokens
+   * @param maxSize        max number of kept tokens
+   * @param maxTtl         max time (in milliseconds) for which a valid token is kept
+   * @param rejectedTtl    time (in milliseconds) for which a rejected token is kept
    * @return token services
    */
   @Bean
   @Autowired
-  public RemoteTokenServices remoteTokenServices(@Value("${auth.server.url}") String checkTokenUrl,
+  public CachingTokenServices tokenServices(@Value("${auth.server.url}") String checkTokenUrl,
       @Value("${auth.server.clientId}") String clientId,
-      @Value("${auth.server.clientSecret}")
-          String clientSecret) {
+      @Value("${auth.server.clientSecret}") String clientSecret,
+      ClientHttpRequestFactory requestFactory, Clock clock,
+      @Value("${auth.tokenCache.maxSize}") long maxSize,
+      @Value("${auth.tokenCache.maxTtl}") long maxTtl,
+      @Value("${auth.tokenCache.rejectedTtl}") long rejectedTtl) {
     final RemoteTokenServices remoteTokenServices = new RemoteTokenServices();
     remoteTokenServices.setCheckTokenEndpointUrl(checkTokenUrl);
     remoteTokenServices.setClientId(clientId);
     remoteTokenServices.setClientSecret(clientSecret);
     remoteTokenServices.setAccessTokenConverter(accessTokenConverter());
-    return remoteTokenServices;
+    remoteTokenServices.setRestTemplate(createCheckTokenRestTemplate(requestFactory));
+    return new CachingTokenServices(remoteTokenServices, clock, maxSize, maxTtl, rejectedTtl);
+  }
+
+  private RestTemplate createCheckTokenRestTemplate(ClientHttpRequestFactory requestFactory) {
+    RestTemplate restTemplate = new RestTemplate(requestFactory);
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public void handleError(ClientHttpResponse response) throws IOException {
+        // the auth server responds with 400 to invalid tokens and the body tells the reason
+        if (response.getRawStatusCode() != HttpStatus.BAD_REQUEST.value()) {
+          super.handleError(response);
+        }
+      }
+    });
+
+    return restTemplate;
   }
 
   /**
@@ -18,14 +18,22 @@ package org.openlmis.integration.dhis2.service;
 import static org.openlmis.integration.dhis2.service.RequestHelper.createUri;
 import static org.openlmis.integration.dhis2.service.RequestHelper.splitRequest;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.openlmis.integration.dhis2.service.auth.AuthService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,7 +47,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
 public abstract class BaseCommunicationService<T> {
 
@@ -49,11 +56,24 @@ public abstract class BaseCommunicationService<T> {
   @Autowired
   private AuthService authService;
 
+  @Setter
+  @Autowired
+  private ResponseCache responseCache;
+
+  @Setter
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Value("${request.maxUrlLength}")
   private int maxUrlLength;
 
   @Setter
-  private RestOperations restTemplate = new RestTemplate();
+  @Autowired
+  private RestOperations restTemplate;
+
+  @Setter
+  @Autowired
+  private ReferenceDataRequestExecutor requestExecutor;
 
   protected abstract String getServiceUrl();
 
@@ -63,6 +83,14 @@ public abstract class BaseCommunicationService<T> {
 
   protected abstract Class<T[]> getArrayResultClass();
 
+  /**
+   * Returns the name of the response cache used by this service. By default it is the last
+   * segment of the resource URL, like programs for /api/programs/.
+   */
+  protected String getCacheName() {
+    return StringUtils.substringAfterLast(StringUtils.removeEnd(getUrl(), "/"), "/");
+  }
+
   /**
    * Return one object from service.
    *
@@ -73,10 +101,14 @@ public abstract class BaseCommunicationService<T> {
     RequestParameters parameters = RequestParameters.init();
     String url = getServiceUrl() + getUrl() + id.toString();
 
+    return cached(url, parameters, constructType(getResultClass()),
+        () -> doFindOne(url, parameters));
+  }
+
+  private T doFindOne(String url, RequestParameters parameters) {
     try {
-      ResponseEntity<T> responseEntity = restTemplate.exchange(
-          createUri(url, parameters), HttpMethod.GET, createEntity(),
-          getResultClass());
+      ResponseEntity<T> responseEntity = exchangeWithAuth(entity -> restTemplate.exchange(
+          createUri(url, parameters), HttpMethod.GET, entity, getResultClass()));
       return responseEntity.getBody();
     } catch (HttpStatusCodeException ex) {
       // rest template will handle 404 as an exception, instead of returning null
@@ -96,9 +128,9 @@ public abstract class BaseCommunicationService<T> {
   protected <P> P get(Class<P> type, String resourceUrl, RequestParameters parameters) {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
-    HttpEntity<Object> entity = createEntity();
     URI uri = createUri(url, parameters);
-    ResponseEntity<P> response = restTemplate.exchange(uri, HttpMethod.GET, entity, type);
+    ResponseEntity<P> response = exchangeWithAuth(
+        entity -> restTemplate.exchange(uri, HttpMethod.GET, entity, type));
 
     return response.getBody();
   }
@@ -111,10 +143,10 @@ public abstract class BaseCommunicationService<T> {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
     try {
-      ResponseEntity<T[]> responseEntity = doListRequest(
-          url, uriParameters, getArrayResultClass());
+      T[] body = cached(url, uriParameters, constructType(getArrayResultClass()),
+          () -> doListRequest(url, uriParameters, getArrayResultClass()).getBody());
 
-      return Lists.newArrayList(Arrays.asList(responseEntity.getBody()));
+      return Lists.newArrayList(Arrays.asList(body));
     } catch (HttpStatusCodeException ex) {
       throw buildDataRetrievalException(ex);
     }
@@ -130,9 +162,8 @@ public abstract class BaseCommunicationService<T> {
     String url = getServiceUrl() + getUrl() + "";
 
     try {
-      ResponseEntity<PageDto<T>> response = doPageRequest(url, parameters, getResultClass());
-      return response.getBody();
-
+      return cached(url, parameters, constructPageType(),
+          () -> doPageRequest(url, parameters, getResultClass()).getBody());
     } catch (HttpStatusCodeException ex) {
       throw buildDataRetrievalException(ex);
     }
@@ -140,13 +171,8 @@ public abstract class BaseCommunicationService<T> {
 
   private <E> ResponseEntity<E[]> doListRequest(String url, RequestParameters parameters,
       Class<E[]> type) {
-    HttpEntity<Object> entity = RequestHelper
-        .createEntity(RequestHeaders.init().setAuth(authService.obtainAccessToken()));
-    List<E[]> arrays = new ArrayList<>();
-
-    for (URI uri : splitRequest(url, parameters, maxUrlLength)) {
-      arrays.add(restTemplate.exchange(uri, HttpMethod.GET, entity, type).getBody());
-    }
+    List<E[]> arrays = exchangeAll(url, parameters, uri -> exchangeWithAuth(
+        entity -> restTemplate.exchange(uri, HttpMethod.GET, entity, type).getBody()));
 
     E[] body = Merger
         .ofArrays(arrays)
@@ -158,14 +184,11 @@ public abstract class BaseCommunicationService<T> {
 
   private <E> ResponseEntity<PageDto<E>> doPageRequest(String url, RequestParameters parameters,
       Class<E> type) {
-    HttpEntity<Object> entity = createEntity();
     ParameterizedTypeReference<PageDto<E>> parameterizedType =
         new DynamicPageTypeReference<>(type);
-    List<PageDto<E>> pages = new ArrayList<>();
-
-    for (URI uri : splitRequest(url, parameters, maxUrlLength)) {
-      pages.add(restTemplate.exchange(uri, HttpMethod.GET, entity, parameterizedType).getBody());
-    }
+    List<PageDto<E>> pages = exchangeAll(url, parameters, uri -> exchangeWithAuth(
+        entity -> restTemplate.exchange(uri, HttpMethod.GET, entity, parameterizedType)
+            .getBody()));
 
     PageDto<E> body = Merger
         .ofPages(pages)
@@ -175,15 +198,95 @@ public abstract class BaseCommunicationService<T> {
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
 
+  /**
+   * Sends a request for each part of the split request and returns the responses in the order of
+   * parts. Parts are sent at the same time by the request executor. They are sent one by one if
+   * there is no executor, like in services created outside of Spring.
+   */
+  private <R> List<R> exchangeAll(String url, RequestParameters parameters,
+      Function<URI, R> exchange) {
+    List<Supplier<R>> requests = Arrays
+        .stream(splitRequest(url, parameters, maxUrlLength))
+        .map(uri -> (Supplier<R>) () -> exchange.apply(uri))
+        .collect(Collectors.toList());
+
+    if (null == requestExecutor) {
+      return requests.stream().map(Supplier::get).collect(Collectors.toList());
+    }
+
+    return requestExecutor.invokeAll(getClass().getName(), requests);
+  }
+
+  /**
+   * Returns the response from the cache of this service or retrieves it with the given loader.
+   * Responses are kept serialized and each call gets its own copy, so a caller that changes the
+   * returned object doesn't change the response seen by other callers. Responses are not cached
+   * if there is no cache, like in services created outside of Spring.
+   */
+  private <R> R cached(String url, RequestParameters parameters, JavaType type,
+      Supplier<R> loader) {
+    if (null == responseCache) {
+      return loader.get();
+    }
+
+    byte[] response = responseCache.get(getCacheName(),
+        new ResponseCache.Key(url, parameters, type.getRawClass()),
+        () -> serialize(loader.get()));
+
+    return null == response ? null : deserialize(response, type);
+  }
+
+  private byte[] serialize(Object value) {
+    try {
+      return null == value ? null : objectMapper.writeValueAsBytes(value);
+    } catch (IOException exp) {
+      throw new UncheckedIOException(exp);
+    }
+  }
+
+  private <R> R deserialize(byte[] value, JavaType type) {
+    try {
+      return objectMapper.readValue(value, type);
+    } catch (IOException exp) {
+      throw new UncheckedIOException(exp);
+    }
+  }
+
+  private JavaType constructType(Class<?> type) {
+    return TypeFactory.defaultInstance().constructType(type);
+  }
+
+  private JavaType constructPageType() {
+    return TypeFactory.defaultInstance()
+        .constructParametricType(PageDto.class, getResultClass());
+  }
+
   private DataRetrievalException buildDataRetrievalException(HttpStatusCodeException ex) {
     return new DataRetrievalException(getResultClass().getSimpleName(), ex);
   }
 
-  private <E> HttpEntity<E> createEntity() {
-    return RequestHelper.createEntity(createHeadersWithAuth());
+  /**
+   * Sends a request with the cached access token. If the token is rejected before it expires, it
+   * is dropped and the request is sent once more with a new token.
+   */
+  private <R> R exchangeWithAuth(Function<HttpEntity<Object>, R> exchange) {
+    String token = authService.obtainAccessToken();
+
+    try {
+      return exchange.apply(createEntity(token));
+    } catch (HttpStatusCodeException ex) {
+      if (HttpStatus.UNAUTHORIZED != ex.getStatusCode()) {
+        throw ex;
+      }
+
+      logger.warn("The access token has been rejected, retrying with a new one");
+      authService.clearTokenCache(token);
+
+      return exchange.apply(createEntity(authService.obtainAccessToken()));
+    }
   }
 
-  private RequestHeaders createHeadersWithAuth() {
-    return RequestHeaders.init().setAuth(authService.obtainAccessToken());
+  private <E> HttpEntity<E> createEntity(String token) {
+    return RequestHelper.createEntity(RequestHeaders.init().setAuth(token));
   }
 }
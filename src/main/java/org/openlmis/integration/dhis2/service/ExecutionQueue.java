@@ -0,0 +1,173 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.openlmis.integration.dhis2.repository.ExecutionQueueRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps payload requests in the database until they are handled, so queued executions survive
+ * restarts and can be shared by many instances of the service.
+ */
+@Service
+public class ExecutionQueue implements InitializingBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionQueue.class);
+
+  @Autowired
+  private ExecutionQueueRepository executionQueueRepository;
+
+  @Autowired
+  private Clock clock;
+
+  @Value("${dhis2.executionQueue.leaseTime}")
+  private long leaseTime;
+
+  @Value("${dhis2.executionQueue.retryDelay}")
+  private long retryDelay;
+
+  @Getter
+  @Value("${dhis2.executionQueue.workerId}")
+  private String workerId;
+
+  @Override
+  public void afterPropertiesSet() {
+    if (StringUtils.isBlank(workerId)) {
+      workerId = getHostName() + "-" + UUID.randomUUID();
+    }
+
+    LOGGER.info("Execution queue worker id: {}", workerId);
+  }
+
+  /**
+   * Adds the given request to the end of the queue.
+   */
+  @Transactional
+  public ExecutionQueueItem enqueue(PayloadRequest payloadRequest) {
+    ExecutionQueueItem item = executionQueueRepository.save(payloadRequest.createQueueItem(clock));
+    LOGGER.debug("Queued payload request {} as {}", payloadRequest, item.getId());
+
+    return item;
+  }
+
+  /**
+   * Takes the next item from the queue, skipping targets that already have the lane limit of
+   * items in progress. The item stays in the database but other workers do not see it until the
+   * lease time passes or it is removed. The lease has to be renewed with
+   * {@link #renew(Collection)} while the item is handled.
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public Optional<ExecutionQueueItem> claimNext(int laneLimit) {
+    ZonedDateTime now = ZonedDateTime.now(clock);
+    String configurationId = executionQueueRepository.findNextAvailableLane(now, laneLimit);
+
+    if (null == configurationId) {
+      return Optional.empty();
+    }
+
+    // workers claim items for the same target one by one, otherwise each of them could count
+    // the items in progress before the others commit their claims and exceed the lane limit
+    executionQueueRepository.lockLane(configurationId);
+    ExecutionQueueItem item = executionQueueRepository
+        .findNextAvailableForUpdate(now, laneLimit, configurationId);
+
+    if (null == item) {
+      return Optional.empty();
+    }
+
+    item.lock(workerId, getLeaseEnd(now));
+
+    return Optional.of(executionQueueRepository.save(item));
+  }
+
+  /**
+   * Extends the lease of items with the given ids, as long as they are still locked by this
+   * worker. Returns the number of renewed items.
+   */
+  @Transactional
+  public int renew(Collection<UUID> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    return executionQueueRepository
+        .renewLocks(ids, workerId, getLeaseEnd(ZonedDateTime.now(clock)));
+  }
+
+  /**
+   * Removes the handled item from the queue. Nothing is removed if the lease has expired and the
+   * item has been taken by another worker.
+   */
+  @Transactional
+  public void remove(ExecutionQueueItem item) {
+    if (0 == executionQueueRepository.removeByIdAndLockedBy(item.getId(), workerId)) {
+      LOGGER.warn("Queued execution {} is no longer locked by {}", item.getId(), workerId);
+    }
+  }
+
+  /**
+   * Gives the claimed item back to the queue without handling it. The item is taken again after
+   * the retry delay, so it does not block the items behind it in the meantime.
+   */
+  @Transactional
+  public void release(ExecutionQueueItem item) {
+    ZonedDateTime availableFrom = ZonedDateTime.now(clock).plus(retryDelay, ChronoUnit.MILLIS);
+
+    if (0 == executionQueueRepository
+        .releaseByIdAndLockedBy(item.getId(), workerId, availableFrom)) {
+      LOGGER.warn("Queued execution {} is no longer locked by {}", item.getId(), workerId);
+    }
+  }
+
+  /**
+   * Retrieves items that wait for a worker, in the order they will be handled.
+   */
+  public List<ExecutionQueueItem> getWaitingItems() {
+    return executionQueueRepository.findAvailable(ZonedDateTime.now(clock));
+  }
+
+  private ZonedDateTime getLeaseEnd(ZonedDateTime now) {
+    return now.plus(leaseTime, ChronoUnit.MILLIS);
+  }
+
+  private String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException exp) {
+      LOGGER.warn("Unable to get the host name", exp);
+      return "worker";
+    }
+  }
+
+}
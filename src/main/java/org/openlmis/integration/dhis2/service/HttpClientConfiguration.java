@@ -0,0 +1,149 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Creates the HTTP client shared by all rest templates (reference data and auth services, token
+ * checks and payloads sent to targets), so connections (and TLS sessions) are pooled and reused
+ * instead of being opened for each request.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+  public static final String STREAMING_REST_TEMPLATE = "streamingRestTemplate";
+
+  @Value("${http.client.connectTimeout}")
+  private int connectTimeout;
+
+  @Value("${http.client.readTimeout}")
+  private int readTimeout;
+
+  @Value("${http.client.connectionRequestTimeout}")
+  private int connectionRequestTimeout;
+
+  @Value("${http.client.pool.maxTotal}")
+  private int poolMaxTotal;
+
+  @Value("${http.client.pool.maxPerRoute}")
+  private int poolMaxPerRoute;
+
+  @Value("${http.client.pool.idleTimeout}")
+  private long idleTimeout;
+
+  /**
+   * Creates the pool of connections of the shared HTTP client. Each route (target host) can have
+   * at most the max per route connections, so a slow target does not take the whole pool.
+   */
+  @Bean
+  public PoolingHttpClientConnectionManager httpConnectionManager() {
+    return createConnectionManager(poolMaxTotal, poolMaxPerRoute);
+  }
+
+  /**
+   * Creates the shared HTTP client. Connections are kept alive as long as the server allows it
+   * but no longer than the idle timeout.
+   */
+  @Bean
+  public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+    RequestConfig requestConfig = RequestConfig
+        .custom()
+        .setConnectTimeout(connectTimeout)
+        .setConnectionRequestTimeout(connectionRequestTimeout)
+        .setSocketTimeout(readTimeout)
+        .build();
+
+    return createHttpClient(httpConnectionManager, requestConfig, idleTimeout);
+  }
+
+  /**
+   * Creates the request factory based on the shared HTTP client. Request bodies are buffered.
+   */
+  @Bean
+  public ClientHttpRequestFactory httpRequestFactory(
+      @Qualifier("httpClient") CloseableHttpClient httpClient) {
+    return new HttpComponentsClientHttpRequestFactory(httpClient);
+  }
+
+  /**
+   * Creates the rest template used by reference data and auth services.
+   */
+  @Bean
+  @Primary
+  public RestTemplate restTemplate(ClientHttpRequestFactory httpRequestFactory) {
+    return new RestTemplate(httpRequestFactory);
+  }
+
+  /**
+   * Creates the rest template used to send payloads. A payload is streamed to the target so the
+   * request body is not buffered.
+   */
+  @Bean(name = STREAMING_REST_TEMPLATE)
+  public RestTemplate streamingRestTemplate(
+      @Qualifier("httpClient") CloseableHttpClient httpClient) {
+    HttpComponentsClientHttpRequestFactory requestFactory =
+        new HttpComponentsClientHttpRequestFactory(httpClient);
+    requestFactory.setBufferRequestBody(false);
+
+    return new RestTemplate(requestFactory);
+  }
+
+  /**
+   * Creates a pool of HTTP connections with the given limits.
+   */
+  public static PoolingHttpClientConnectionManager createConnectionManager(int maxTotal,
+      int maxPerRoute) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxTotal);
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+    return connectionManager;
+  }
+
+  /**
+   * Creates an HTTP client that takes connections from the given pool. Connections are kept
+   * alive as long as the server allows it but no longer than the idle timeout, and expired or
+   * idle ones are removed from the pool in the background.
+   */
+  public static CloseableHttpClient createHttpClient(
+      PoolingHttpClientConnectionManager connectionManager, RequestConfig requestConfig,
+      long idleTimeout) {
+    return HttpClients
+        .custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+        .evictExpiredConnections()
+        .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+        .disableCookieManagement()
+        .build();
+  }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hl7.fhir.r4.model.Location;
+import org.openlmis.integration.dhis2.domain.LocationFacilityMapping;
+import org.openlmis.integration.dhis2.domain.SynchronizationState;
+import org.openlmis.integration.dhis2.repository.LocationFacilityMappingRepository;
+import org.openlmis.integration.dhis2.repository.SynchronizationStateRepository;
+import org.openlmis.integration.dhis2.scheduler.SchedulerLeaderElection;
+import org.openlmis.integration.dhis2.service.fhir.LocationFhirService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a local copy of the FHIR Location to OpenLMIS facility relation so the payload builder
+ * does not have to ask the FHIR server for every location on every run. The mappings are kept up
+ * to date by a background synchronization based on the Location last updated date and missing
+ * entries are resolved from the FHIR server on demand. The point up to which the synchronization
+ * has been done is stored separately because mappings resolved on demand can be newer than the
+ * locations that have not been synchronized yet.
+ */
+@Service
+public class LocationFacilityMappingService {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(LocationFacilityMappingService.class);
+
+  static final String SYNCHRONIZATION_NAME = "locationFacilityMappings";
+
+  @Autowired
+  private LocationFacilityMappingRepository locationFacilityMappingRepository;
+
+  @Autowired
+  private SynchronizationStateRepository synchronizationStateRepository;
+
+  @Autowired
+  private LocationFhirService locationFhirService;
+
+  @Autowired
+  private SchedulerLeaderElection schedulerLeaderElection;
+
+  @Value("${service.url}")
+  private String serviceUrl;
+
+  @Value("${fhir.locationMapping.sync.enabled}")
+  private boolean syncEnabled;
+
+  /**
+   * Returns facility ids for the given location ids. Locations that are not mapped yet are
+   * retrieved from the FHIR server and stored for later use. Locations that do not represent any
+   * facility are not present in the result.
+   */
+  Map<String, UUID> getFacilityIds(Collection<String> locationIds) {
+    Map<String, UUID> facilityIds = Maps.newHashMap();
+    locationFacilityMappingRepository
+        .findByLocationIdIn(locationIds)
+        .forEach(mapping -> facilityIds.put(mapping.getLocationId(), mapping.getFacilityId()));
+
+    Set<String> missing = Sets.newHashSet(locationIds);
+    missing.removeAll(facilityIds.keySet());
+
+    if (!missing.isEmpty()) {
+      LOGGER.debug("Resolve {} unmapped locations from the FHIR server", missing.size());
+      List<LocationFacilityMapping> mappings = createMappings(
+          locationFhirService.getLocations(missing));
+
+      mappings.forEach(mapping -> facilityIds.put(mapping.getLocationId(),
+          mapping.getFacilityId()));
+      saveQuietly(mappings);
+    }
+
+    return facilityIds;
+  }
+
+  /**
+   * Returns id of the location that represents the given facility. If the mapping does not exist,
+   * the FHIR server is asked for the location with the facility identifier.
+   */
+  String getLocationId(UUID facilityId) {
+    LocationFacilityMapping mapping = locationFacilityMappingRepository
+        .findFirstByFacilityId(facilityId);
+
+    if (null != mapping) {
+      return mapping.getLocationId();
+    }
+
+    Location location = locationFhirService.findByIdentifier(serviceUrl, facilityId.toString());
+
+    if (null == location) {
+      return null;
+    }
+
+    saveQuietly(createMappings(Lists.newArrayList(location)));
+    return location.getIdElement().getIdPart();
+  }
+
+  /**
+   * Retrieves locations that have been changed since the last synchronization and updates the
+   * stored mappings. Only the scheduler leader synchronizes, so replicas don't repeat the same
+   * search and don't race on the stored synchronization state.
+   */
+  @Scheduled(initialDelayString = "${fhir.locationMapping.sync.initialDelay}",
+      fixedDelayString = "${fhir.locationMapping.sync.delay}")
+  public void synchronize() {
+    if (!syncEnabled || !schedulerLeaderElection.isLeader()) {
+      return;
+    }
+
+    try {
+      SynchronizationState state = synchronizationStateRepository.findOne(SYNCHRONIZATION_NAME);
+      ZonedDateTime lastUpdated = null == state ? null : state.getLastUpdated();
+      LOGGER.info("Synchronize location mappings updated since {}", lastUpdated);
+
+      AtomicReference<ZonedDateTime> synchronizedUntil = new AtomicReference<>(lastUpdated);
+      locationFhirService.forEachLocation(lastUpdated, locations -> {
+        synchronize(locations);
+        locations.forEach(location -> synchronizedUntil
+            .accumulateAndGet(getLastUpdated(location), this::getLater));
+      });
+
+      if (null != synchronizedUntil.get()) {
+        synchronizationStateRepository.save(
+            new SynchronizationState(SYNCHRONIZATION_NAME, synchronizedUntil.get()));
+      }
+
+      LOGGER.info("Synchronized location mappings updated until {}", synchronizedUntil.get());
+    } catch (RuntimeException exp) {
+      // the next run will start from the same point so nothing is lost
+      LOGGER.error("Can't synchronize location mappings", exp);
+    }
+  }
+
+  private void synchronize(List<Location> locations) {
+    List<LocationFacilityMapping> mappings = createMappings(locations);
+    locationFacilityMappingRepository.save(mappings);
+
+    // locations that no longer point to any facility should not be used
+    Set<String> unmapped = Sets.newHashSet();
+    locations.forEach(location -> unmapped.add(location.getIdElement().getIdPart()));
+    mappings.forEach(mapping -> unmapped.remove(mapping.getLocationId()));
+
+    if (!unmapped.isEmpty()) {
+      locationFacilityMappingRepository.deleteByLocationIdIn(unmapped);
+    }
+
+    LOGGER.debug("Synchronized {} location mappings, removed {}", mappings.size(),
+        unmapped.size());
+  }
+
+  private ZonedDateTime getLater(ZonedDateTime first, ZonedDateTime second) {
+    if (null == first) {
+      return second;
+    }
+
+    return null == second || first.isAfter(second) ? first : second;
+  }
+
+  private List<LocationFacilityMapping> createMappings(Collection<Location> locations) {
+    List<LocationFacilityMapping> mappings = Lists.newArrayList();
+
+    for (Location location : locations) {
+      getFacilityId(location).ifPresent(facilityId -> mappings.add(new LocationFacilityMapping(
+          location.getIdElement().getIdPart(), facilityId, getLastUpdated(location))));
+    }
+
+    return mappings;
+  }
+
+  private Optional<UUID> getFacilityId(Location location) {
+    return location.getIdentifier()
+        .stream()
+        .filter(item -> item.hasSystem())
+        .filter(item -> item.hasValue())
+        .filter(item -> item.getSystem().equalsIgnoreCase(serviceUrl))
+        .findFirst()
+        .map(item -> UUID.fromString(item.getValue()));
+  }
+
+  private ZonedDateTime getLastUpdated(Location location) {
+    if (!location.hasMeta() || null == location.getMeta().getLastUpdated()) {
+      return null;
+    }
+
+    return location.getMeta().getLastUpdated().toInstant().atZone(ZoneOffset.UTC);
+  }
+
+  private void saveQuietly(List<LocationFacilityMapping> mappings) {
+    try {
+      locationFacilityMappingRepository.save(mappings);
+    } catch (DataAccessException exp) {
+      // the mappings are only a shortcut, the payload can be built without them
+      LOGGER.warn("Can't store location mappings", exp);
+    }
+  }
+
+}
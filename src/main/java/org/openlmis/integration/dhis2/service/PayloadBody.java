@@ -0,0 +1,178 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Serialized request body kept as gzip compressed chunks. The JSON is written by a
+ * {@link JsonGenerator} straight into the compressed chunks and inflated again only while it is
+ * copied to the output stream, so the whole uncompressed body is never held in memory.
+ */
+final class PayloadBody {
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final List<byte[]> chunks;
+  private final long compressedSize;
+
+  private PayloadBody(List<byte[]> chunks, long compressedSize) {
+    this.chunks = Collections.unmodifiableList(chunks);
+    this.compressedSize = compressedSize;
+  }
+
+  /**
+   * Serializes the given value into a new body.
+   */
+  static PayloadBody write(ObjectMapper objectMapper, Object value) throws IOException {
+    ChunkOutputStream chunks = new ChunkOutputStream();
+
+    try (GZIPOutputStream gzip = new GZIPOutputStream(chunks, CHUNK_SIZE);
+         JsonGenerator generator = objectMapper
+             .getFactory()
+             .createGenerator(gzip, JsonEncoding.UTF8)) {
+      objectMapper.writeValue(generator, value);
+    }
+
+    return new PayloadBody(chunks.getChunks(), chunks.getSize());
+  }
+
+  long getCompressedSize() {
+    return compressedSize;
+  }
+
+  /**
+   * Returns the body as a single gzip compressed array.
+   */
+  byte[] toCompressedBytes() {
+    byte[] bytes = new byte[Math.toIntExact(compressedSize)];
+    int position = 0;
+
+    for (byte[] chunk : chunks) {
+      System.arraycopy(chunk, 0, bytes, position, chunk.length);
+      position += chunk.length;
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Copies the uncompressed body to the given stream.
+   */
+  void writeTo(OutputStream output) throws IOException {
+    try (InputStream input = openStream()) {
+      IOUtils.copy(input, output, CHUNK_SIZE);
+    }
+  }
+
+  /**
+   * Returns the uncompressed body as a string.
+   */
+  String asString() throws IOException {
+    try (InputStream input = openStream()) {
+      return IOUtils.toString(input, StandardCharsets.UTF_8);
+    }
+  }
+
+  private InputStream openStream() throws IOException {
+    List<InputStream> streams = new ArrayList<>(chunks.size());
+    chunks.forEach(chunk -> streams.add(new ByteArrayInputStream(chunk)));
+
+    return new GZIPInputStream(
+        new SequenceInputStream(Collections.enumeration(streams)), CHUNK_SIZE);
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+        .append("chunks", chunks.size())
+        .append("compressedSize", compressedSize)
+        .toString();
+  }
+
+  /**
+   * Collects written bytes in fixed size chunks, so the buffer is never copied when it grows.
+   */
+  private static final class ChunkOutputStream extends OutputStream {
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] current = new byte[CHUNK_SIZE];
+    private int position;
+    private long size;
+
+    @Override
+    public void write(int value) {
+      nextChunkIfFull();
+      current[position++] = (byte) value;
+      ++size;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      int written = 0;
+
+      while (written < length) {
+        nextChunkIfFull();
+
+        int count = Math.min(length - written, current.length - position);
+        System.arraycopy(bytes, offset + written, current, position, count);
+
+        position += count;
+        written += count;
+      }
+
+      size += length;
+    }
+
+    private void nextChunkIfFull() {
+      if (position == current.length) {
+        chunks.add(current);
+        current = new byte[CHUNK_SIZE];
+        position = 0;
+      }
+    }
+
+    List<byte[]> getChunks() {
+      List<byte[]> result = new ArrayList<>(chunks);
+
+      if (position > 0) {
+        byte[] last = new byte[position];
+        System.arraycopy(current, 0, last, 0, position);
+        result.add(last);
+      }
+
+      return result;
+    }
+
+    long getSize() {
+      return size;
+    }
+  }
+}
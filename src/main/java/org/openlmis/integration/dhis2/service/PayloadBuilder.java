@@ -19,6 +19,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,11 +28,9 @@ import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.IdType;
-import org.hl7.fhir.r4.model.Location;
 import org.hl7.fhir.r4.model.Measure;
 import org.hl7.fhir.r4.model.MeasureReport;
 import org.openlmis.integration.dhis2.Dhis2Configuration;
-import org.openlmis.integration.dhis2.service.fhir.LocationFhirService;
 import org.openlmis.integration.dhis2.service.fhir.MeasureFhirService;
 import org.openlmis.integration.dhis2.service.fhir.MeasureReportFhirService;
 import org.openlmis.integration.dhis2.service.referencedata.FacilityDto;
@@ -42,7 +41,6 @@ import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -61,14 +59,11 @@ class PayloadBuilder {
   private MeasureReportFhirService measureReportFhirService;
 
   @Autowired
-  private LocationFhirService locationFhirService;
+  private LocationFacilityMappingService locationFacilityMappingService;
 
   @Autowired
   private FacilityReferenceDataService facilityReferenceDataService;
 
-  @Value("${service.url}")
-  private String serviceUrl;
-
   Payload build(LocalDate startDate, LocalDate endDate, String programName, UUID facilityId) {
     X_LOGGER.entry(startDate, endDate, programName, facilityId);
 
@@ -115,20 +110,32 @@ class PayloadBuilder {
     String locationId = null;
 
     if (null != facilityId) {
-      locationId = locationFhirService
-          .findByIdentifier(serviceUrl, facilityId.toString())
-          .getIdElement()
-          .getIdPart();
+      locationId = locationFacilityMappingService.getLocationId(facilityId);
+
+      if (null == locationId) {
+        LOGGER.warn("Can't find location for facility {}", facilityId);
+        return Collections.emptySet();
+      }
     }
 
     return measureReportFhirService
         .getMeasureReports(measures, startDate, endDate, locationId)
         .stream()
         .filter(MeasureReport::hasGroup)
+        .filter(this::hasReporterReference)
         .filter(report -> null == programName || matchProgram(report, programName))
         .collect(Collectors.toSet());
   }
 
+  private boolean hasReporterReference(MeasureReport report) {
+    if (report.hasReporter() && report.getReporter().hasReference()) {
+      return true;
+    }
+
+    LOGGER.warn("Skipping report {} because it has no reporter reference", report.getId());
+    return false;
+  }
+
   private boolean matchProgram(MeasureReport report, String programName) {
     LOGGER.info("Checking if report {} is for program {}", report.getId(), programName);
     boolean result = report
@@ -165,23 +172,20 @@ class PayloadBuilder {
   }
 
   private Map<String, UUID> getFacilityIdsFromReports(Set<MeasureReport> measureReports) {
-    Map<String, UUID> facilityIds = Maps.newHashMap();
-    for (MeasureReport measureReport : measureReports) {
-      String reference = measureReport.getReporter().getReference();
+    // the same location could be referenced in different ways (relative and absolute reference)
+    Map<String, Set<String>> referencesByLocationId = measureReports
+        .stream()
+        .map(report -> report.getReporter().getReference())
+        .collect(Collectors.groupingBy(reference -> new IdType(reference).getIdPart(),
+            Collectors.toSet()));
 
-      if (facilityIds.containsKey(reference)) {
-        continue;
-      }
+    Map<String, UUID> facilityIdsByLocationId = locationFacilityMappingService
+        .getFacilityIds(referencesByLocationId.keySet());
 
-      Location location = locationFhirService.getLocation(reference);
-      location.getIdentifier()
-          .stream()
-          .filter(item -> item.hasSystem())
-          .filter(item -> item.hasValue())
-          .filter(item -> item.getSystem().equalsIgnoreCase(serviceUrl))
-          .findFirst()
-          .ifPresent(item -> facilityIds.put(reference, UUID.fromString(item.getValue())));
-    }
+    Map<String, UUID> facilityIds = Maps.newHashMap();
+    facilityIdsByLocationId.forEach((locationId, facilityId) -> referencesByLocationId
+        .getOrDefault(locationId, Collections.emptySet())
+        .forEach(reference -> facilityIds.put(reference, facilityId)));
 
     return facilityIds;
   }
@@ -0,0 +1,101 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps request bodies that were already built, so integrations that share the same program and
+ * period but send data to different targets build the payload only once. Bodies are shared only
+ * inside a single batch of requests queued by the scheduler, so a later run never gets data that
+ * was built for an earlier one. When several tasks ask for the same key at the same time, only one
+ * of them builds the payload and the others wait for the result.
+ */
+@Component
+public class PayloadCache implements InitializingBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PayloadCache.class);
+
+  @Value("${dhis2.payloadCache.maxSize}")
+  private long maxSize;
+
+  @Value("${dhis2.payloadCache.expireAfter}")
+  private long expireAfter;
+
+  private Cache<Key, PayloadBody> cache;
+
+  @Override
+  public void afterPropertiesSet() {
+    cache = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expireAfter, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the request body for the given key. If there is no such body, it is created by the
+   * given loader and stored for other tasks.
+   */
+  public PayloadBody get(Key key, Callable<PayloadBody> loader) {
+    try {
+      return cache.get(key, () -> {
+        LOGGER.debug("Build request body for {}", key);
+        return loader.call();
+      });
+    } catch (ExecutionException | UncheckedExecutionException exp) {
+      Throwable cause = exp.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Removes all stored request bodies.
+   */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  @ToString
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static final class Key {
+    private final UUID batchId;
+    private final UUID processingPeriodId;
+    private final UUID programId;
+    private final UUID facilityId;
+  }
+
+}
@@ -26,6 +26,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.openlmis.integration.dhis2.domain.Configuration;
 import org.openlmis.integration.dhis2.domain.ConfigurationAuthenticationDetails;
 import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
 import org.openlmis.integration.dhis2.domain.Integration;
 import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
 
@@ -49,16 +50,31 @@ public class PayloadRequest {
   @Getter
   private final UUID userId;
 
+  @Getter
+  private final UUID batchId;
+
+  /**
+   * Creates a request for an automatic execution. Requests created by the same scheduler run
+   * should have the same batch id, so they can share the request body.
+   */
   public static PayloadRequest forAutomaticExecution(Integration integration,
-      ProcessingPeriodDto period) {
+      ProcessingPeriodDto period, UUID batchId) {
     return new PayloadRequest(integration, null, period, null, false,
-        null);
+        null, batchId);
   }
 
   public static PayloadRequest forManualExecution(Integration integration, UUID facilityId,
       ProcessingPeriodDto period, String description, UUID userId) {
     return new PayloadRequest(integration, facilityId, period, description, true,
-        userId);
+        userId, null);
+  }
+
+  /**
+   * Recreates the request stored in the execution queue.
+   */
+  public static PayloadRequest fromQueueItem(ExecutionQueueItem item, ProcessingPeriodDto period) {
+    return new PayloadRequest(item.getIntegration(), item.getFacilityId(), period,
+        item.getDescription(), item.isManualExecution(), item.getUserId(), item.getBatchId());
   }
 
   public UUID getProgramId() {
@@ -74,6 +90,16 @@ public class PayloadRequest {
     }
   }
 
+  ExecutionQueueItem createQueueItem(Clock clock) {
+    if (manualExecution) {
+      return ExecutionQueueItem.forManualExecution(integration, facilityId, period.getId(),
+          description, userId, clock);
+    } else {
+      return ExecutionQueueItem.forAutomaticExecution(integration, period.getId(), batchId,
+          clock);
+    }
+  }
+
   public String getTargetUrl() {
     return integration.getTargetUrl();
   }
@@ -98,6 +124,7 @@ public class PayloadRequest {
         .append("description", description)
         .append("manualExecution", manualExecution)
         .append("userId", userId)
+        .append("batchId", batchId)
         .toString();
   }
 }
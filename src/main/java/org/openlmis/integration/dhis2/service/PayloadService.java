@@ -16,17 +16,32 @@
 package org.openlmis.integration.dhis2.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Sets;
 import java.time.Clock;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
 import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.integration.dhis2.service.referencedata.ProgramReferenceDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 @Service
-public class PayloadService {
+public class PayloadService implements InitializingBean, DisposableBean {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PayloadService.class);
 
@@ -36,9 +51,15 @@ public class PayloadService {
   @Autowired
   private ProgramReferenceDataService programReferenceDataService;
 
+  @Autowired
+  private PeriodReferenceDataService periodReferenceDataService;
+
   @Autowired
   private PayloadBuilder payloadBuilder;
 
+  @Autowired
+  private PayloadCache payloadCache;
+
   @Autowired
   private ObjectMapper objectMapper;
 
@@ -48,16 +69,134 @@ public class PayloadService {
   @Autowired
   private PostPayloadTaskExecutor postPayloadTaskExecutor;
 
+  @Autowired
+  private ExecutionQueue executionQueue;
+
+  @Value("${dhis2.executionQueue.worker.enabled}")
+  private boolean workerEnabled;
+
+  @Value("${dhis2.executionQueue.heartbeatDelay}")
+  private long heartbeatDelay;
+
+  private ThreadPoolTaskScheduler heartbeatScheduler;
+
+  private final Set<UUID> activeItems = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  @Qualifier(HttpClientConfiguration.STREAMING_REST_TEMPLATE)
+  private RestTemplate restTemplate;
+
+  /**
+   * Starts the heartbeat of the execution queue. It has its own thread, so long running jobs of
+   * the shared scheduler can't delay it until the leases of requests in progress expire.
+   */
+  @Override
+  public void afterPropertiesSet() {
+    if (!workerEnabled) {
+      return;
+    }
+
+    heartbeatScheduler = new ThreadPoolTaskScheduler();
+    heartbeatScheduler.setThreadNamePrefix("ExecutionQueueHeartbeat-");
+    heartbeatScheduler.setPoolSize(1);
+    heartbeatScheduler.initialize();
+    heartbeatScheduler.scheduleWithFixedDelay(this::sendHeartbeat, heartbeatDelay);
+  }
+
+  @Override
+  public void destroy() {
+    if (null != heartbeatScheduler) {
+      heartbeatScheduler.shutdown();
+    }
+  }
+
   /**
-   * Method is responsible for sending payload to Interop layer. Response is a status (202, 500 or
-   * 503), message and notificationsChannel.
+   * Method is responsible for sending payload to Interop layer. The request is stored in the
+   * execution queue and sent when one of the workers is free.
    */
   public void postPayload(PayloadRequest payloadRequest) {
     LOGGER.info("Post payload for request: {}", payloadRequest);
+    executionQueue.enqueue(payloadRequest);
+  }
+
+  /**
+   * Takes as many requests from the execution queue as there are free workers and starts them.
+   * Requests for a target that already has the max number of requests in progress wait, so other
+   * targets are not blocked by a slow one. Any instance with the worker mode enabled takes
+   * requests, no matter which instance queued them.
+   */
+  @Scheduled(fixedDelayString = "${dhis2.executionQueue.pollDelay}")
+  public void processQueue() {
+    if (!workerEnabled) {
+      return;
+    }
+
+    for (int free = postPayloadTaskExecutor.getAvailableCapacity(); free > 0; --free) {
+      Optional<ExecutionQueueItem> next = executionQueue
+          .claimNext(postPayloadTaskExecutor.getMaxPoolSizePerTarget());
+
+      if (!next.isPresent()) {
+        break;
+      }
+
+      ExecutionQueueItem item = next.get();
+      ProcessingPeriodDto period;
+
+      try {
+        period = periodReferenceDataService.findOne(item.getProcessingPeriodId());
+      } catch (RuntimeException exp) {
+        LOGGER.error("Can't retrieve processing period {}, queued execution {} will be retried",
+            item.getProcessingPeriodId(), item.getId(), exp);
+        executionQueue.release(item);
+        continue;
+      }
+
+      if (null == period) {
+        LOGGER.warn("Processing period {} does not exist, drop queued execution {}",
+            item.getProcessingPeriodId(), item.getId());
+        executionQueue.remove(item);
+        continue;
+      }
+
+      PostPayloadTask task = new PostPayloadTask(programReferenceDataService,
+          executionRepository, payloadBuilder, payloadCache, objectMapper, clock,
+          restTemplate, PayloadRequest.fromQueueItem(item, period));
+
+      activeItems.add(item.getId());
+
+      try {
+        postPayloadTaskExecutor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            activeItems.remove(item.getId());
+            executionQueue.remove(item);
+          }
+        });
+      } catch (TaskRejectedException exp) {
+        // the heartbeat must not keep the lease of an item that no worker handles
+        LOGGER.warn("Workers rejected queued execution {}, it will be retried", item.getId(),
+            exp);
+        activeItems.remove(item.getId());
+        executionQueue.release(item);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Renews the lease of requests handled by this instance. If the instance stops, the lease
+   * expires and the requests are taken by other instances.
+   */
+  public void sendHeartbeat() {
+    Set<UUID> ids = Sets.newHashSet(activeItems);
+
+    int renewed = executionQueue.renew(ids);
 
-    postPayloadTaskExecutor.execute(new PostPayloadTask(programReferenceDataService,
-        executionRepository, payloadBuilder, objectMapper, clock, new RestTemplate(),
-        payloadRequest));
+    if (renewed < ids.size()) {
+      LOGGER.warn("Renewed {} of {} queued executions handled by this instance",
+          renewed, ids.size());
+    }
   }
 
 }
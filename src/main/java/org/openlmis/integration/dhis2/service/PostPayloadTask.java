@@ -18,11 +18,11 @@ package org.openlmis.integration.dhis2.service;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.ZonedDateTime;
-import java.util.UUID;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.openlmis.integration.dhis2.domain.Execution;
@@ -33,22 +33,22 @@ import org.openlmis.integration.dhis2.service.referencedata.ProgramReferenceData
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
 @SuppressWarnings("PMD.TooManyMethods")
-public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
+public class PostPayloadTask implements Runnable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PostPayloadTask.class);
 
   private final ProgramReferenceDataService programReferenceDataService;
   private final ExecutionRepository executionRepository;
   private final PayloadBuilder payloadBuilder;
+  private final PayloadCache payloadCache;
   private final ObjectMapper objectMapper;
   private final Clock clock;
   private final RestTemplate restTemplate;
@@ -61,11 +61,12 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
    */
   public PostPayloadTask(ProgramReferenceDataService programReferenceDataService,
       ExecutionRepository executionRepository, PayloadBuilder payloadBuilder,
-      ObjectMapper objectMapper, Clock clock, RestTemplate restTemplate,
-      PayloadRequest payloadRequest) {
+      PayloadCache payloadCache, ObjectMapper objectMapper, Clock clock,
+      RestTemplate restTemplate, PayloadRequest payloadRequest) {
     this.programReferenceDataService = programReferenceDataService;
     this.executionRepository = executionRepository;
     this.payloadBuilder = payloadBuilder;
+    this.payloadCache = payloadCache;
     this.objectMapper = objectMapper;
     this.clock = clock;
     this.restTemplate = restTemplate;
@@ -82,47 +83,12 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
     profiler.setLogger(LOGGER);
 
     Execution execution = createExecution(payloadRequest, profiler);
-    String requestBody = createRequestBody(payloadRequest, execution, profiler);
+    PayloadBody requestBody = createRequestBody(payloadRequest, execution, profiler);
     sendRequestBody(payloadRequest, execution, requestBody, profiler);
 
     profiler.stop().log();
   }
 
-  @Override
-  public boolean equals(Object o) {
-    if (this == o) {
-      return true;
-    }
-
-    if (!(o instanceof PostPayloadTask)) {
-      return false;
-    }
-
-    PostPayloadTask that = (PostPayloadTask) o;
-
-    return new EqualsBuilder()
-        .append(payloadRequest.isManualExecution(), that.payloadRequest.isManualExecution())
-        .append(executionTime, that.executionTime)
-        .isEquals();
-  }
-
-  @Override
-  public int hashCode() {
-    return new HashCodeBuilder(17, 37)
-        .append(payloadRequest.isManualExecution())
-        .append(executionTime)
-        .toHashCode();
-  }
-
-  @Override
-  public int compareTo(PostPayloadTask other) {
-    if (this.payloadRequest.isManualExecution() == other.payloadRequest.isManualExecution()) {
-      return this.executionTime.compareTo(other.executionTime);
-    }
-
-    return payloadRequest.isManualExecution() ? 1 : -1;
-  }
-
   @Override
   public String toString() {
     return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
@@ -131,40 +97,27 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
         .toString();
   }
 
-  /**
-   * Exports the current task state.
-   */
-  public void export(Exporter exporter) {
-    exporter.setExecutionTime(executionTime);
-    exporter.setProcessingPeriodId(payloadRequest.getPeriod().getId());
-    exporter.setUserId(payloadRequest.getUserId());
-    exporter.setDescription(payloadRequest.getDescription());
-  }
-
   private Execution createExecution(PayloadRequest payloadRequest, Profiler profiler) {
     profiler.start("CREATE_EXECUTION");
     Execution execution = payloadRequest.createExecution(clock);
 
     profiler.start("SAVE_TO_DB");
-    executionRepository.saveAndFlush(execution);
+    executionRepository.save(execution);
 
     return execution;
   }
 
-  private String createRequestBody(PayloadRequest payloadRequest, Execution execution,
+  private PayloadBody createRequestBody(PayloadRequest payloadRequest, Execution execution,
       Profiler profiler) {
     try {
-      profiler.start("CREATE_PAYLOAD");
-      Payload payload = createPayload(payloadRequest);
-
-      profiler.start("CONVERT_PAYLOAD_TO_JSON");
-      String requestBody = objectMapper.writeValueAsString(payload);
+      profiler.start("GET_REQUEST_BODY");
+      PayloadBody requestBody = getRequestBody(payloadRequest);
 
       profiler.start("SET_REQUEST_BODY");
-      execution.setRequestBody(requestBody);
+      execution.setCompressedRequestBody(requestBody.toCompressedBytes());
 
       profiler.start("UPDATE_EXECUTION");
-      executionRepository.saveAndFlush(execution);
+      executionRepository.saveRequestBody(execution);
 
       return requestBody;
     } catch (Exception exp) {
@@ -172,6 +125,21 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
     }
   }
 
+  private PayloadBody getRequestBody(PayloadRequest request) throws IOException {
+    // manual executions are not part of any batch and always get fresh data
+    if (null == request.getBatchId()) {
+      return PayloadBody.write(objectMapper, createPayload(request));
+    }
+
+    return payloadCache.get(createCacheKey(request),
+        () -> PayloadBody.write(objectMapper, createPayload(request)));
+  }
+
+  private PayloadCache.Key createCacheKey(PayloadRequest request) {
+    return new PayloadCache.Key(request.getBatchId(), request.getPeriod().getId(),
+        request.getProgramId(), request.getFacilityId());
+  }
+
   private Payload createPayload(PayloadRequest request) {
     String programName = getProgramName(request);
     ProcessingPeriodDto period = request.getPeriod();
@@ -191,7 +159,7 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
   }
 
   private void sendRequestBody(PayloadRequest payloadRequest, Execution execution,
-      String requestBody, Profiler profiler) {
+      PayloadBody requestBody, Profiler profiler) {
     profiler.start("SEND_PAYLOAD");
     ExecutionResponse response = sendPayload(payloadRequest, requestBody);
 
@@ -199,21 +167,28 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
     execution.markAsDone(response, clock);
 
     profiler.start("UPDATE_EXECUTION");
-    executionRepository.saveAndFlush(execution);
+    executionRepository.saveResult(execution);
 
     LOGGER.info("Response status: {}; Message: {}", response.getStatusCode(), response.getBody());
   }
 
-  private ExecutionResponse sendPayload(PayloadRequest request, String body) {
+  private ExecutionResponse sendPayload(PayloadRequest request, PayloadBody body) {
     try {
-      RequestHeaders headers = setHeaders(request);
-      HttpEntity<String> entity = RequestHelper.createEntity(headers, body);
-
-      ResponseEntity<String> response = restTemplate
-          .exchange(request.getTargetUrl(), HttpMethod.POST, entity, String.class);
-
-      return new ExecutionResponse(ZonedDateTime.now(clock), response.getStatusCodeValue(),
-          response.getBody());
+      HttpHeaders headers = setHeaders(request).toHeaders();
+
+      return restTemplate.execute(request.getTargetUrl(), HttpMethod.POST,
+          outbound -> {
+            outbound.getHeaders().putAll(headers);
+
+            if (outbound instanceof StreamingHttpOutputMessage) {
+              ((StreamingHttpOutputMessage) outbound).setBody(body::writeTo);
+            } else {
+              body.writeTo(outbound.getBody());
+            }
+          },
+          response -> new ExecutionResponse(ZonedDateTime.now(clock),
+              response.getRawStatusCode(),
+              IOUtils.toString(response.getBody(), StandardCharsets.UTF_8)));
     } catch (RestClientResponseException exp) {
       return new ExecutionResponse(ZonedDateTime.now(clock), exp.getRawStatusCode(),
           exp.getResponseBodyAsString());
@@ -229,16 +204,4 @@ public class PostPayloadTask implements Runnable, Comparable<PostPayloadTask> {
         .set(HttpHeaders.AUTHORIZATION, request.getAuthorizationHeader())
         .set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
   }
-
-  public interface Exporter {
-
-    void setExecutionTime(ZonedDateTime executionTime);
-
-    void setProcessingPeriodId(UUID processingPeriodId);
-
-    void setUserId(UUID userId);
-
-    void setDescription(String description);
-
-  }
 }
@@ -15,10 +15,8 @@
 
 package org.openlmis.integration.dhis2.service;
 
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
@@ -27,21 +25,21 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "dhis2.postPayloadTaskExecutor")
 public class PostPayloadTaskExecutor extends ThreadPoolTaskExecutor {
 
-  @Override
-  protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
-    return new PriorityBlockingQueue<>(queueCapacity);
-  }
+  /**
+   * The max number of tasks sent to the same target at the same time, by all instances. The max
+   * pool size is the global cap for tasks handled by this instance.
+   */
+  @Getter
+  @Setter
+  private int maxPoolSizePerTarget = 1;
 
   /**
-   * Get the execution queue items.
+   * Get the number of tasks that can be started right away. Tasks wait in the execution queue
+   * rather than in memory, so only this number of tasks should be taken from the queue.
    */
-  public synchronized Set<PostPayloadTask> getQueueItems() {
-    return getThreadPoolExecutor()
-        .getQueue()
-        .stream()
-        .filter(runnable -> runnable instanceof PostPayloadTask)
-        .map(runnable -> (PostPayloadTask) runnable)
-        .collect(Collectors.toSet());
+  public int getAvailableCapacity() {
+    int busy = getActiveCount() + getThreadPoolExecutor().getQueue().size();
+    return Math.max(0, getMaxPoolSize() - busy);
   }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends parts of a reference data request (a request split because its URL was too long) at the
+ * same time. When the pool and its queue are full, the calling thread sends the part itself.
+ */
+@Component
+@ConfigurationProperties(prefix = "dhis2.referenceDataRequestExecutor")
+public class ReferenceDataRequestExecutor extends ThreadPoolTaskExecutor {
+
+  /**
+   * The max number of parts sent by a single service at the same time, no matter how many
+   * requests the service handles, so a single service does not take the whole pool.
+   */
+  @Getter
+  @Setter
+  private int maxRequestsPerService = 4;
+
+  private final ConcurrentMap<String, Semaphore> servicePermits = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new instance.
+   */
+  public ReferenceDataRequestExecutor() {
+    setThreadNamePrefix("reference-data-request-");
+    setRejectedExecutionHandler((task, executor) -> task.run());
+  }
+
+  /**
+   * Sends the given requests of the given service and returns their responses in the same order.
+   * If one of the requests fails, the requests that have not been finished yet are cancelled
+   * and the exception is thrown right away. A single request is sent by the calling thread.
+   */
+  public <R> List<R> invokeAll(String service, List<Supplier<R>> requests) {
+    if (requests.size() < 2) {
+      return requests.stream().map(Supplier::get).collect(Collectors.toList());
+    }
+
+    Semaphore permits = servicePermits
+        .computeIfAbsent(service, key -> new Semaphore(maxRequestsPerService));
+    BlockingQueue<Request<R>> finished = new LinkedBlockingQueue<>();
+    List<Request<R>> started = new ArrayList<>(requests.size());
+    List<R> responses = new ArrayList<>(Collections.nCopies(requests.size(), null));
+
+    try {
+      for (int done = 0; done < requests.size(); ++done) {
+        while (started.size() < requests.size() && permits.tryAcquire()) {
+          startNext(requests, started, permits, finished);
+        }
+
+        if (started.size() == done) {
+          // the service limit is taken by other calls, wait for them
+          permits.acquire();
+          startNext(requests, started, permits, finished);
+        }
+
+        Request<R> request = finished.take();
+        responses.set(request.index, getResponse(request));
+      }
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for reference data", exp);
+    } finally {
+      started.forEach(request -> request.cancel(true));
+    }
+
+    return responses;
+  }
+
+  private <R> void startNext(List<Supplier<R>> requests, List<Request<R>> started,
+      Semaphore permits, BlockingQueue<Request<R>> finished) {
+    int index = started.size();
+    Request<R> request = new Request<>(index, requests.get(index), permits, finished);
+
+    started.add(request);
+    execute(request);
+  }
+
+  private <R> R getResponse(Request<R> request) throws InterruptedException {
+    try {
+      return request.get();
+    } catch (ExecutionException exp) {
+      Throwable cause = exp.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new IllegalStateException(cause);
+    } catch (CancellationException exp) {
+      throw new IllegalStateException("Reference data request has been cancelled", exp);
+    }
+  }
+
+  // the permit is released when the request is finished, failed or cancelled before it started
+  private static final class Request<R> extends FutureTask<R> {
+    private final int index;
+    private final Semaphore permits;
+    private final BlockingQueue<Request<R>> finished;
+
+    Request(int index, Supplier<R> request, Semaphore permits,
+        BlockingQueue<Request<R>> finished) {
+      super(request::get);
+      this.index = index;
+      this.permits = permits;
+      this.finished = finished;
+    }
+
+    @Override
+    protected void done() {
+      permits.release();
+      finished.add(this);
+    }
+  }
+
+}
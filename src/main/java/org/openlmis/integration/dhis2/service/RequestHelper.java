@@ -18,9 +18,10 @@ package org.openlmis.integration.dhis2.service;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.stream.Stream;
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.http.HttpEntity;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.web.util.UriUtils;
@@ -40,15 +41,8 @@ public final class RequestHelper {
     RequestParameters
         .init()
         .setAll(parameters)
-        .forEach(e -> e.getValue().forEach(one -> {
-          try {
-            builder.queryParam(e.getKey(),
-                UriUtils.encodeQueryParam(String.valueOf(one),
-                    StandardCharsets.UTF_8.name()));
-          } catch (UnsupportedEncodingException ex) {
-            throw new EncodingException(ex);
-          }
-        }));
+        .forEach(e -> e.getValue().forEach(one ->
+            builder.queryParam(e.getKey(), encodeQueryParam(String.valueOf(one)))));
 
     return builder.build(true).toUri();
   }
@@ -65,27 +59,62 @@ public final class RequestHelper {
   }
 
   /**
-   * Split the given {@link RequestParameters} into smaller chunks.
+   * Splits the request with the given parameters into requests whose URLs are not longer than the
+   * given max length. Values of the parameter with the most values are packed into as few URLs
+   * as possible, in their order. Other parameters are sent in each URL. Each value is encoded
+   * only once, so the cost is linear in the length of the values. A URL is longer than the max
+   * length only if it cannot be split any further, like a URL with a single long value.
    */
   static URI[] splitRequest(String url, RequestParameters queryParams, int maxUrlLength) {
-    RequestParameters safeQueryParams = RequestParameters.init().setAll(queryParams);
-    URI uri = createUri(url, safeQueryParams);
+    Map.Entry<String, List<String>> chunked = null == queryParams
+        ? null
+        : queryParams.findLargest();
 
-    if (uri.toString().length() > maxUrlLength) {
-      Pair<RequestParameters, RequestParameters> split = safeQueryParams.split();
+    if (null == chunked) {
+      return new URI[]{createUri(url, queryParams)};
+    }
+
+    RequestParameters fixedParams = RequestParameters.init();
+    queryParams.forEach(entry -> {
+      if (!entry.getKey().equals(chunked.getKey())) {
+        fixedParams.set(entry.getKey(), entry.getValue());
+      }
+    });
+
+    String base = createUri(url, fixedParams).toString();
+    char separator = base.indexOf('?') < 0 ? '?' : '&';
+    // the base, the separator and at least one parameter are in each URL
+    int maxQueryLength = maxUrlLength - base.length() - 1;
+
+    Set<URI> uris = new LinkedHashSet<>();
+    StringBuilder query = new StringBuilder();
+
+    for (String value : chunked.getValue()) {
+      String parameter = chunked.getKey() + '=' + encodeQueryParam(value);
 
-      if (null != split.getLeft() && null != split.getRight()) {
-        URI[] left = splitRequest(url, split.getLeft(), maxUrlLength);
-        URI[] right = splitRequest(url, split.getRight(), maxUrlLength);
+      if (query.length() > 0 && query.length() + 1 + parameter.length() > maxQueryLength) {
+        uris.add(URI.create(base + separator + query));
+        query.setLength(0);
+      }
 
-        return Stream
-            .concat(Arrays.stream(left), Arrays.stream(right))
-            .distinct()
-            .toArray(URI[]::new);
+      if (query.length() > 0) {
+        query.append('&');
       }
+
+      query.append(parameter);
     }
 
-    return new URI[]{uri};
+    uris.add(URI.create(base + separator + query));
+
+    return uris.toArray(new URI[0]);
+  }
+
+  private static String encodeQueryParam(String value) {
+    try {
+      return UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException ex) {
+      throw new EncodingException(ex);
+    }
   }
 
 }
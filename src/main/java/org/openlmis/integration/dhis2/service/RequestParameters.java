@@ -25,7 +25,6 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import lombok.EqualsAndHashCode;
-import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -107,42 +106,20 @@ public final class RequestParameters {
   }
 
   /**
-   * Split this request parameters into two smaller chunks.
+   * Returns the first parameter with the most values or null if no parameter has more than one
+   * value.
    */
-  Pair<RequestParameters, RequestParameters> split() {
-    if (params.isEmpty()) {
-      return Pair.of(this, null);
-    }
-
-    Set<Map.Entry<String, List<String>>> entries = params.entrySet();
+  Map.Entry<String, List<String>> findLargest() {
+    Map.Entry<String, List<String>> largest = null;
 
-    if (entries.stream().noneMatch(entry -> entry.getValue().size() > 1)) {
-      return Pair.of(this, null);
-    }
+    for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+      int size = entry.getValue().size();
 
-    Map.Entry<String, List<String>> max = entries.iterator().next();
-    for (Map.Entry<String, List<String>> entry : entries) {
-      if (entry.getValue().size() > max.getValue().size()) {
-        max = entry;
+      if (size > 1 && (null == largest || size > largest.getValue().size())) {
+        largest = entry;
       }
     }
 
-    RequestParameters left = init().setAll(this);
-    RequestParameters right = init().setAll(this);
-
-    left.params.remove(max.getKey());
-    right.params.remove(max.getKey());
-
-    List<String> list = max.getValue();
-    int chunkSize = list.size() / 2;
-    int leftOver = list.size() % 2;
-
-    List<String> leftCollection = list.subList(0, chunkSize + leftOver);
-    List<String> rightCollection = list.subList(chunkSize + leftOver, list.size());
-
-    left.set(max.getKey(), leftCollection);
-    right.set(max.getKey(), rightCollection);
-
-    return Pair.of(left, right);
+    return largest;
   }
 }
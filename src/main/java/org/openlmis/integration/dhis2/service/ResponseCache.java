@@ -0,0 +1,213 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps responses of reference data requests, like GET requests sent by communication services
+ * or permission decisions based on them. Each service has its own
+ * named cache with its own expiration time and max size, set by the
+ * dhis2.responseCache.[name].expireAfter and dhis2.responseCache.[name].maxSize properties. If
+ * they are not set, the default values are used. A cache whose expiration time is not positive
+ * keeps nothing but it still counts misses. Least recently used responses are evicted first when
+ * a cache is full. Null responses (like not found resources) are never kept. Kept values are
+ * returned to every caller as they are, so they should not be changed. Communication services
+ * keep serialized responses and give each caller its own copy.
+ */
+@Component
+public class ResponseCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+  static final String PROPERTY_PREFIX = "dhis2.responseCache.";
+  static final String MAX_SIZE = ".maxSize";
+  static final String EXPIRE_AFTER = ".expireAfter";
+
+  @Autowired
+  private Environment environment;
+
+  @Value("${dhis2.responseCache.maxSize}")
+  private long defaultMaxSize;
+
+  @Value("${dhis2.responseCache.expireAfter}")
+  private long defaultExpireAfter;
+
+  private final ConcurrentMap<String, NamedCache> caches = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the response for the given key from the given cache. If there is no such response,
+   * it is retrieved by the given loader and kept in the cache.
+   */
+  public <V> V get(String cacheName, Object key, Supplier<V> loader) {
+    Cache<Object, Object> cache = getCache(cacheName).cache;
+
+    @SuppressWarnings("unchecked")
+    V value = (V) cache.getIfPresent(key);
+
+    if (null == value) {
+      value = loader.get();
+
+      if (null != value) {
+        cache.put(key, value);
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Removes all responses from the given cache. Nothing happens if the cache does not exist.
+   */
+  public void evict(String cacheName) {
+    NamedCache cache = caches.get(cacheName);
+
+    if (null != cache) {
+      LOGGER.info("Evict responses from the {} cache", cacheName);
+      cache.cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Removes the response for the given key from the given cache.
+   */
+  public void evict(String cacheName, Object key) {
+    NamedCache cache = caches.get(cacheName);
+
+    if (null != cache) {
+      cache.cache.invalidate(key);
+    }
+  }
+
+  /**
+   * Removes all responses from all caches.
+   */
+  public void evictAll() {
+    caches.keySet().forEach(this::evict);
+  }
+
+  /**
+   * Exports settings and statistics of all caches.
+   */
+  public <E extends Exporter> List<E> export(Supplier<E> factory) {
+    return caches
+        .values()
+        .stream()
+        .sorted((left, right) -> left.name.compareTo(right.name))
+        .map(cache -> {
+          E exporter = factory.get();
+          cache.export(exporter);
+          return exporter;
+        })
+        .collect(Collectors.toList());
+  }
+
+  private NamedCache getCache(String name) {
+    return caches.computeIfAbsent(name, this::createCache);
+  }
+
+  private NamedCache createCache(String name) {
+    long maxSize = environment
+        .getProperty(PROPERTY_PREFIX + name + MAX_SIZE, Long.class, defaultMaxSize);
+    long expireAfter = environment
+        .getProperty(PROPERTY_PREFIX + name + EXPIRE_AFTER, Long.class, defaultExpireAfter);
+
+    boolean enabled = maxSize > 0 && expireAfter > 0;
+    LOGGER.info("Create the {} response cache (maxSize: {}, expireAfter: {} ms, enabled: {})",
+        name, maxSize, expireAfter, enabled);
+
+    CacheBuilder<Object, Object> builder = CacheBuilder
+        .newBuilder()
+        .recordStats()
+        .maximumSize(enabled ? maxSize : 0);
+
+    if (enabled) {
+      builder.expireAfterWrite(expireAfter, TimeUnit.MILLISECONDS);
+    }
+
+    return new NamedCache(name, maxSize, expireAfter, builder.build());
+  }
+
+  public interface Exporter {
+
+    void setName(String name);
+
+    void setMaxSize(long maxSize);
+
+    void setExpireAfter(long expireAfter);
+
+    void setSize(long size);
+
+    void setHitCount(long hitCount);
+
+    void setMissCount(long missCount);
+
+    void setEvictionCount(long evictionCount);
+
+  }
+
+  /**
+   * Identifies a response by the URL, query parameters and the type it is read as.
+   */
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static final class Key {
+    private final String url;
+    private final RequestParameters parameters;
+    private final Class<?> type;
+  }
+
+  @AllArgsConstructor
+  private static final class NamedCache {
+    private final String name;
+    private final long maxSize;
+    private final long expireAfter;
+    private final Cache<Object, Object> cache;
+
+    void export(Exporter exporter) {
+      CacheStats stats = cache.stats();
+
+      exporter.setName(name);
+      exporter.setMaxSize(maxSize);
+      exporter.setExpireAfter(expireAfter);
+      exporter.setSize(cache.size());
+      exporter.setHitCount(stats.hitCount());
+      exporter.setMissCount(stats.missCount());
+      exporter.setEvictionCount(stats.evictionCount());
+    }
+  }
+
+}
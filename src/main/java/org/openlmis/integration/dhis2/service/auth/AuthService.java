@@ -17,9 +17,15 @@ package org.openlmis.integration.dhis2.service.auth;
 
 import static org.openlmis.integration.dhis2.service.RequestHelper.createUri;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.util.Map;
+import lombok.AllArgsConstructor;
 import org.apache.commons.codec.binary.Base64;
 import org.openlmis.integration.dhis2.service.RequestParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -27,12 +33,14 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 public class AuthService {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuthService.class);
+
   static final String ACCESS_TOKEN = "access_token";
+  static final String EXPIRES_IN = "expires_in";
 
   @Value("${auth.server.clientId}")
   private String clientId;
@@ -43,14 +51,61 @@ public class AuthService {
   @Value("${auth.server.authorizationUrl}")
   private String authorizationUrl;
 
-  private RestOperations restTemplate = new RestTemplate();
+  @Value("${auth.server.tokenRefreshMargin}")
+  private long tokenRefreshMargin;
+
+  @Autowired
+  private Clock clock;
+
+  @Autowired
+  private RestOperations restTemplate;
+
+  private volatile AccessToken accessToken;
 
   /**
-   * Retrieves access token from the auth service.
+   * Retrieves access token from the auth service. The token is reused until it is about to expire
+   * (the refresh margin before the expiration time returned by the auth service). Only one thread
+   * requests a new token, other threads wait for it.
    *
    * @return token.
    */
   public String obtainAccessToken() {
+    AccessToken token = accessToken;
+
+    if (null == token || token.isExpired(clock.instant())) {
+      synchronized (this) {
+        token = accessToken;
+
+        if (null == token || token.isExpired(clock.instant())) {
+          token = requestAccessToken();
+          accessToken = token;
+        }
+      }
+    }
+
+    return token.value;
+  }
+
+  /**
+   * Drops the cached token if it is the given one, so the next call of
+   * {@link #obtainAccessToken()} requests a new token. It should be called when a service rejects
+   * the token before it expires, like after the auth service has been restarted. A token that has
+   * already been replaced by another thread is kept.
+   *
+   * @param rejectedToken the token that has been rejected.
+   */
+  public void clearTokenCache(String rejectedToken) {
+    synchronized (this) {
+      AccessToken token = accessToken;
+
+      if (null != token && token.value.equals(rejectedToken)) {
+        LOGGER.info("The access token has been rejected, a new one will be requested");
+        accessToken = null;
+      }
+    }
+  }
+
+  private AccessToken requestAccessToken() {
     String plainCreds = clientId + ":" + clientSecret;
     byte[] plainCredsBytes = plainCreds.getBytes();
     byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
@@ -69,11 +124,31 @@ public class AuthService {
         createUri(authorizationUrl, params), HttpMethod.POST, request, Object.class
     );
 
-    return ((Map<String, String>) response.getBody()).get(ACCESS_TOKEN);
+    Map<String, Object> body = (Map<String, Object>) response.getBody();
+    Instant expiresAt = clock.instant();
+
+    if (null != body.get(EXPIRES_IN)) {
+      long expiresIn = Long.parseLong(String.valueOf(body.get(EXPIRES_IN)));
+      expiresAt = expiresAt.plusSeconds(Math.max(0, expiresIn - tokenRefreshMargin));
+    } else {
+      LOGGER.warn("The auth service did not return the token expiration time");
+    }
+
+    return new AccessToken((String) body.get(ACCESS_TOKEN), expiresAt);
   }
 
   void setRestTemplate(RestOperations restTemplate) {
     this.restTemplate = restTemplate;
   }
 
+  @AllArgsConstructor
+  private static final class AccessToken {
+    private final String value;
+    private final Instant expiresAt;
+
+    boolean isExpired(Instant now) {
+      return !now.isBefore(expiresAt);
+    }
+  }
+
 }
@@ -15,27 +15,52 @@
 
 package org.openlmis.integration.dhis2.service.fhir;
 
-import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.CacheControlDirective;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
 import ca.uhn.fhir.rest.client.interceptor.LoggingInterceptor;
+import ca.uhn.fhir.rest.gclient.IClientExecutable;
 import ca.uhn.fhir.rest.gclient.IQuery;
-import java.util.concurrent.TimeUnit;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.openlmis.integration.dhis2.service.auth.AuthService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
-abstract class BaseFhirService<T extends IBaseResource> implements InitializingBean {
+abstract class BaseFhirService<T extends IBaseResource> implements InitializingBean,
+    DisposableBean {
 
-  private static final int WAIT_TIME = (int) TimeUnit.MINUTES.toMillis(15);
+  // the resource path and the _id and _count parameter names with some margin
+  private static final int SEARCH_URL_OVERHEAD = 32;
+  // multiple _id values are separated by an encoded comma (%2C)
+  private static final int ID_SEPARATOR_LENGTH = 3;
+
+  // marks the end of the prefetched pages, compared by reference
+  private static final Bundle LAST_PAGE = new Bundle();
 
   @Value("${fhir.url}")
   private String fhirUrl;
@@ -46,13 +71,26 @@ abstract class BaseFhirService<T extends IBaseResource> implements InitializingB
   @Value("${fhir.logging.verbose}")
   private boolean loggingVerbose;
 
+  @Value("${request.maxUrlLength}")
+  private int maxUrlLength;
+
+  @Value("${fhir.search.pageSize}")
+  private int pageSize;
+
+  @Value("${fhir.search.prefetchDepth}")
+  private int prefetchDepth;
+
   @Autowired
   private AuthService authService;
 
+  @Autowired
+  private IRestfulClientFactory fhirClientFactory;
+
   private Logger logger;
 
   private IGenericClient client;
   private CacheControlDirective cacheControl;
+  private ExecutorService pageExecutor;
 
   private Class<T> resourceClass;
 
@@ -63,14 +101,7 @@ abstract class BaseFhirService<T extends IBaseResource> implements InitializingB
 
   @Override
   public void afterPropertiesSet() {
-    FhirContext fhirContext = FhirContext.forR4();
-
-    IRestfulClientFactory clientFactory = fhirContext.getRestfulClientFactory();
-    clientFactory.setConnectTimeout(WAIT_TIME);
-    clientFactory.setConnectionRequestTimeout(WAIT_TIME);
-    clientFactory.setSocketTimeout(WAIT_TIME);
-
-    client = clientFactory.newGenericClient(fhirUrl);
+    client = fhirClientFactory.newGenericClient(fhirUrl);
 
     if (loggingEnable) {
       LoggingInterceptor loggingInterceptor = new LoggingInterceptor(loggingVerbose);
@@ -83,14 +114,55 @@ abstract class BaseFhirService<T extends IBaseResource> implements InitializingB
 
     cacheControl = new CacheControlDirective();
     cacheControl.setNoCache(true);
+
+    pageExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat(resourceClass.getSimpleName().toLowerCase() + "-page-prefetch-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  @Override
+  public void destroy() {
+    pageExecutor.shutdownNow();
   }
 
   T getResource(String id) {
-    return client
+    return execute(client
         .read()
         .resource(resourceClass)
-        .withId(id)
-        .execute();
+        .withId(id));
+  }
+
+  /**
+   * Retrieves resources with the given ids. Instead of reading each resource separately, the ids
+   * are sent as a multi-value {@code _id} search which is split into several requests only if the
+   * URL would exceed the max URL length.
+   */
+  List<T> getResources(Collection<String> ids) {
+    List<T> resources = Lists.newArrayList();
+
+    for (List<String> chunk : splitIds(ids)) {
+      Bundle bundle = execute(searchResources()
+          .where(IAnyResource.RES_ID.exactly().codes(chunk)));
+
+      forEachBundle(bundle, page -> resources.addAll(getResources(page)));
+    }
+
+    return resources;
+  }
+
+  /**
+   * Passes all resources, page by page, to the given action. If the date is set, only resources
+   * updated at or after it are retrieved.
+   */
+  void forEachResource(ZonedDateTime updatedSince, Consumer<List<T>> action) {
+    IQuery<Bundle> query = searchResources();
+
+    if (null != updatedSince) {
+      query = query.lastUpdated(new DateRangeParam(Date.from(updatedSince.toInstant()), null));
+    }
+
+    forEachBundle(execute(query), page -> action.accept(getResources(page)));
   }
 
   IQuery<Bundle> searchResources() {
@@ -98,22 +170,143 @@ abstract class BaseFhirService<T extends IBaseResource> implements InitializingB
         .search()
         .forResource(resourceClass)
         .cacheControl(cacheControl)
-        .count(100)
+        .count(pageSize)
         .returnBundle(Bundle.class);
   }
 
+  /**
+   * Executes the given request. If the FHIR server rejects the access token before it expires,
+   * the token is dropped by the auth interceptor and the request is sent once more with a new one.
+   */
+  <R> R execute(IClientExecutable<?, R> request) {
+    try {
+      return request.execute();
+    } catch (AuthenticationException exp) {
+      log().warn("The access token has been rejected, retrying with a new one");
+      return request.execute();
+    }
+  }
+
   Logger log() {
     return logger;
   }
 
+  /**
+   * Passes the given bundle and all following pages to the action. When the prefetch depth is
+   * positive, next pages are loaded on a background thread while the action processes the current
+   * one; at most the prefetch depth of pages waits in memory for processing.
+   */
   void forEachBundle(Bundle bundle, Consumer<Bundle> action) {
-    Bundle page = bundle;
-    action.accept(page);
-
-    while (null != page.getLink(IBaseBundle.LINK_NEXT)) {
-      page = client.loadPage().next(page).execute();
+    if (prefetchDepth < 1) {
+      Bundle page = bundle;
       action.accept(page);
+
+      while (hasNextPage(page)) {
+        page = loadNextPage(page);
+        action.accept(page);
+      }
+
+      return;
     }
+
+    BlockingQueue<Bundle> pages = new ArrayBlockingQueue<>(prefetchDepth);
+    Future<?> prefetch = pageExecutor.submit(() -> prefetchPages(bundle, pages));
+
+    try {
+      action.accept(bundle);
+
+      for (Bundle page = pages.take(); LAST_PAGE != page; page = pages.take()) {
+        action.accept(page);
+      }
+
+      // rethrows an error that stopped prefetching
+      prefetch.get();
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the next page", exp);
+    } catch (ExecutionException exp) {
+      if (exp.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exp.getCause();
+      }
+
+      throw new IllegalStateException("Unable to load the next page", exp.getCause());
+    } finally {
+      prefetch.cancel(true);
+    }
+  }
+
+  private Void prefetchPages(Bundle bundle, BlockingQueue<Bundle> pages)
+      throws InterruptedException {
+    try {
+      Bundle page = bundle;
+
+      while (hasNextPage(page)) {
+        page = loadNextPage(page);
+        pages.put(page);
+      }
+    } catch (InterruptedException exp) {
+      // prefetching has been cancelled so nobody waits for the last page and the queue can
+      // be full; waiting for free space would block this thread forever
+      pages.offer(LAST_PAGE);
+      throw exp;
+    } catch (RuntimeException exp) {
+      pages.put(LAST_PAGE);
+      throw exp;
+    }
+
+    pages.put(LAST_PAGE);
+    return null;
+  }
+
+  private boolean hasNextPage(Bundle page) {
+    return null != page.getLink(IBaseBundle.LINK_NEXT);
+  }
+
+  private Bundle loadNextPage(Bundle page) {
+    return execute(client.loadPage().next(page));
+  }
+
+  private List<T> getResources(Bundle bundle) {
+    if (!bundle.hasEntry()) {
+      return Collections.emptyList();
+    }
+
+    return bundle
+        .getEntry()
+        .stream()
+        .filter(BundleEntryComponent::hasResource)
+        .map(BundleEntryComponent::getResource)
+        .filter(resourceClass::isInstance)
+        .map(resourceClass::cast)
+        .collect(Collectors.toList());
+  }
+
+  private List<List<String>> splitIds(Collection<String> ids) {
+    int baseLength = fhirUrl.length() + resourceClass.getSimpleName().length()
+        + SEARCH_URL_OVERHEAD;
+
+    List<List<String>> chunks = Lists.newArrayList();
+    List<String> chunk = Lists.newArrayList();
+    int length = baseLength;
+
+    for (String id : ids) {
+      int idLength = id.length() + ID_SEPARATOR_LENGTH;
+
+      if (!chunk.isEmpty() && length + idLength > maxUrlLength) {
+        chunks.add(chunk);
+        chunk = Lists.newArrayList();
+        length = baseLength;
+      }
+
+      chunk.add(id);
+      length += idLength;
+    }
+
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+
+    return chunks;
   }
 
 }
@@ -17,6 +17,7 @@ package org.openlmis.integration.dhis2.service.fhir;
 
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
 import ca.uhn.fhir.rest.client.interceptor.BearerTokenAuthInterceptor;
 import lombok.AllArgsConstructor;
 import org.openlmis.integration.dhis2.service.auth.AuthService;
@@ -25,12 +26,26 @@ import org.openlmis.integration.dhis2.service.auth.AuthService;
 final class DynamicBearerTokenAuthInterceptor extends BearerTokenAuthInterceptor {
   private AuthService authService;
 
+  // the request and its response are handled by the same thread
+  private final ThreadLocal<String> sentToken = new ThreadLocal<>();
+
   @Override
   public void interceptRequest(IHttpRequest theRequest) {
     String token = authService.obtainAccessToken();
+    sentToken.set(token);
     theRequest.addHeader(
         Constants.HEADER_AUTHORIZATION,
         Constants.HEADER_AUTHORIZATION_VALPREFIX_BEARER + token);
   }
 
+  @Override
+  public void interceptResponse(IHttpResponse theResponse) {
+    String token = sentToken.get();
+    sentToken.remove();
+
+    if (Constants.STATUS_HTTP_401_CLIENT_UNAUTHORIZED == theResponse.getStatus()) {
+      authService.clearTokenCache(token);
+    }
+  }
+
 }
@@ -0,0 +1,91 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service.fhir;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.client.apache.ApacheRestfulClientFactory;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.openlmis.integration.dhis2.service.HttpClientConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FhirClientConfiguration {
+
+  @Value("${fhir.client.timeout}")
+  private int timeout;
+
+  @Value("${fhir.client.pool.maxTotal}")
+  private int poolMaxTotal;
+
+  @Value("${fhir.client.pool.maxPerRoute}")
+  private int poolMaxPerRoute;
+
+  @Value("${fhir.client.pool.idleTimeout}")
+  private long idleTimeout;
+
+  @Value("${fhir.client.serverValidationMode}")
+  private ServerValidationModeEnum serverValidationMode;
+
+  /**
+   * Creates the R4 context shared by all FHIR services. Building the context scans the whole
+   * model so it should be done only once.
+   */
+  @Bean
+  public FhirContext fhirContext() {
+    return FhirContext.forR4();
+  }
+
+  /**
+   * Creates the HTTP client used by all FHIR clients. Connections are pooled and kept alive as
+   * long as the server allows it but no longer than the idle timeout.
+   */
+  @Bean
+  public CloseableHttpClient fhirHttpClient() {
+    RequestConfig requestConfig = RequestConfig
+        .custom()
+        .setConnectTimeout(timeout)
+        .setConnectionRequestTimeout(timeout)
+        .setSocketTimeout(timeout)
+        .build();
+
+    return HttpClientConfiguration.createHttpClient(
+        HttpClientConfiguration.createConnectionManager(poolMaxTotal, poolMaxPerRoute),
+        requestConfig, idleTimeout);
+  }
+
+  /**
+   * Creates the factory of FHIR clients. The factory is registered in the shared context and
+   * remembers which servers have already been validated. Timeouts and the pool are set in the
+   * shared HTTP client, the factory doesn't use its own settings once a client is given.
+   */
+  @Bean
+  public IRestfulClientFactory fhirClientFactory(FhirContext fhirContext,
+      @Qualifier("fhirHttpClient") CloseableHttpClient fhirHttpClient) {
+    ApacheRestfulClientFactory clientFactory = new ApacheRestfulClientFactory(fhirContext);
+    clientFactory.setServerValidationMode(serverValidationMode);
+    clientFactory.setHttpClient(fhirHttpClient);
+
+    fhirContext.setRestfulClientFactory(clientFactory);
+
+    return clientFactory;
+  }
+
+}
@@ -15,7 +15,10 @@
 
 package org.openlmis.integration.dhis2.service.fhir;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.Location;
@@ -45,14 +48,39 @@ public class LocationFhirService extends BaseFhirService<Location> {
     return resource;
   }
 
+  /**
+   * Finds locations with the given ids. All ids are resolved with as few search requests as
+   * possible.
+   */
+  public List<Location> getLocations(Collection<String> ids) {
+    log().debug("Get locations with ids {}", ids);
+    List<Location> locations = getResources(ids);
+
+    if (locations.size() < ids.size()) {
+      log().warn("Found only {} locations for {} ids", locations.size(), ids.size());
+    } else {
+      log().debug("Found {} locations", locations.size());
+    }
+
+    return locations;
+  }
+
+  /**
+   * Passes locations updated since the given date (or all locations if the date is not set) to
+   * the given action, one page at a time.
+   */
+  public void forEachLocation(ZonedDateTime updatedSince, Consumer<List<Location>> action) {
+    log().debug("Get locations updated since {}", updatedSince);
+    forEachResource(updatedSince, action);
+  }
+
   /**
    * Finds location by identifier.
    */
   public Location findByIdentifier(String system, String value) {
     log().debug("Try to find location with identifier with system {} and value {}", system, value);
-    Bundle bundle = searchResources()
-        .where(Location.IDENTIFIER.exactly().systemAndValues(system, value))
-        .execute();
+    Bundle bundle = execute(searchResources()
+        .where(Location.IDENTIFIER.exactly().systemAndValues(system, value)));
 
     List<BundleEntryComponent> entries = bundle.getEntry();
 
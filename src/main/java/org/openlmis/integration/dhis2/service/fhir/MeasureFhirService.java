@@ -38,9 +38,8 @@ public class MeasureFhirService extends BaseFhirService<Measure> {
    */
   public Set<Measure> getMeasures(Collection<String> names) {
     log().debug("Try to find measures with names {}", names);
-    Bundle bundle = searchResources()
-        .where(Measure.NAME.matchesExactly().values(Lists.newArrayList(names)))
-        .execute();
+    Bundle bundle = execute(searchResources()
+        .where(Measure.NAME.matchesExactly().values(Lists.newArrayList(names))));
 
     Set<Measure> measures = Sets.newHashSet();
     forEachBundle(bundle, page -> measures.addAll(getMeasures(page)));
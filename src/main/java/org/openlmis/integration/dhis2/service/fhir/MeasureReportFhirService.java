@@ -71,7 +71,7 @@ public class MeasureReportFhirService extends BaseFhirService<MeasureReport> {
               .hasId(locationId));
     }
 
-    Bundle bundle = query.execute();
+    Bundle bundle = execute(query);
 
     Set<MeasureReport> reports = Sets.newHashSet();
     forEachBundle(bundle, page -> reports.addAll(getReports(page)));
@@ -0,0 +1,101 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.util;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Log scale histogram buckets for durations in milliseconds. Each doubling of the duration is
+ * split into {@link #BUCKETS_PER_DOUBLING} buckets, so a percentile read from the histogram is
+ * at most about 19% above the real value. Durations longer than the upper bound of the last
+ * bucket (about 49 days) are counted in the last bucket.
+ */
+public final class DurationHistogram {
+
+  public static final int BUCKETS_PER_DOUBLING = 4;
+  public static final int MAX_BUCKET = 32 * BUCKETS_PER_DOUBLING;
+
+  // upper bound of a bucket is 2 to the power of bucket / BUCKETS_PER_DOUBLING, rounded up
+  private static final long[] UPPER_BOUNDS = new long[MAX_BUCKET + 1];
+
+  static {
+    for (int bucket = 0; bucket <= MAX_BUCKET; ++bucket) {
+      UPPER_BOUNDS[bucket] = (long) Math.ceil(Math.pow(2, bucket / (double) BUCKETS_PER_DOUBLING));
+    }
+  }
+
+  private DurationHistogram() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Finds the first bucket whose upper bound is not lower than the given duration.
+   */
+  public static int bucketOf(long millis) {
+    int low = 0;
+    int high = MAX_BUCKET;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (UPPER_BOUNDS[middle] < millis) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  public static long upperBoundOf(int bucket) {
+    return UPPER_BOUNDS[bucket];
+  }
+
+  /**
+   * Reads the given percentile from the histogram.
+   *
+   * @param counts    number of durations in each bucket
+   * @param percentile value between 0 (exclusive) and 1 (inclusive), like 0.95
+   * @return upper bound of the bucket with the percentile or null if the histogram is empty.
+   */
+  public static Long percentile(SortedMap<Integer, Long> counts, double percentile) {
+    long total = 0;
+
+    for (Long count : counts.values()) {
+      total += count;
+    }
+
+    if (total == 0) {
+      return null;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+
+    for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+      seen += entry.getValue();
+
+      if (seen >= rank) {
+        return upperBoundOf(entry.getKey());
+      }
+    }
+
+    return upperBoundOf(counts.lastKey());
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+
+public final class GzipUtils {
+
+  // gzip trailer ends with the size of the uncompressed data
+  public static final int SIZE_TRAILER_LENGTH = 4;
+
+  private GzipUtils() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Compresses the given text with gzip.
+   *
+   * @param value text that should be compressed
+   * @return gzip compressed UTF-8 bytes of the text or null if the text is null.
+   */
+  public static byte[] compress(String value) {
+    if (null == value) {
+      return null;
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(value.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException exp) {
+      throw new IllegalStateException(exp);
+    }
+
+    return output.toByteArray();
+  }
+
+  /**
+   * Decompresses the given gzip bytes into text.
+   *
+   * @param value gzip compressed UTF-8 bytes
+   * @return uncompressed text or null if the bytes are null.
+   */
+  public static String decompress(byte[] value) {
+    if (null == value) {
+      return null;
+    }
+
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(value))) {
+      return IOUtils.toString(input, StandardCharsets.UTF_8);
+    } catch (IOException exp) {
+      throw new IllegalStateException(exp);
+    }
+  }
+
+  /**
+   * Reads the size of the uncompressed data from the trailer at the end of the given gzip bytes.
+   * The trailer keeps the size modulo 2^32.
+   *
+   * @param value gzip compressed bytes or at least their last {@link #SIZE_TRAILER_LENGTH} bytes
+   */
+  public static long getUncompressedSize(byte[] value) {
+    int offset = value.length - SIZE_TRAILER_LENGTH;
+
+    // the size is stored as unsigned little endian integer
+    return (value[offset] & 0xFFL)
+        | (value[offset + 1] & 0xFFL) << 8
+        | (value[offset + 2] & 0xFFL) << 16
+        | (value[offset + 3] & 0xFFL) << 24;
+  }
+}
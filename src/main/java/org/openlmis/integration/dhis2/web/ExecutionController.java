@@ -17,29 +17,41 @@ package org.openlmis.integration.dhis2.web;
 
 import static org.openlmis.integration.dhis2.web.ExecutionController.RESOURCE_PATH;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import javax.servlet.http.HttpServletResponse;
 
 import org.openlmis.integration.dhis2.domain.Execution;
 import org.openlmis.integration.dhis2.domain.Integration;
 import org.openlmis.integration.dhis2.exception.NotFoundException;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
 import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.repository.ExecutionCursor;
 import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.repository.ExecutionSearchParams;
+import org.openlmis.integration.dhis2.repository.ExecutionStatisticsRepository;
 import org.openlmis.integration.dhis2.repository.IntegrationRepository;
 import org.openlmis.integration.dhis2.service.PayloadRequest;
 import org.openlmis.integration.dhis2.service.PayloadService;
 import org.openlmis.integration.dhis2.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
+import org.openlmis.integration.dhis2.util.Message;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -52,6 +64,12 @@ public class ExecutionController extends BaseController {
   public static final String RESOURCE_PATH = API_PATH + "/integrationExecutions";
   public static final String ID_URL = "/{id}";
   public static final String REQUEST_URL = ID_URL + "/request";
+  public static final String HISTORY_URL = "/history";
+  public static final String STATISTICS_URL = "/statistics";
+  public static final String EXPORT_URL = "/export";
+
+  static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+  static final int MAX_HISTORY_PAGE_SIZE = 500;
 
   @Autowired
   private PermissionService permissionService;
@@ -68,9 +86,18 @@ public class ExecutionController extends BaseController {
   @Autowired
   private ExecutionRepository executionRepository;
 
+  @Autowired
+  private ExecutionStatisticsRepository executionStatisticsRepository;
+
   @Autowired
   private AuthenticationHelper authenticationHelper;
 
+  @Autowired
+  private ExecutionRequestDownloader executionRequestDownloader;
+
+  @Autowired
+  private ExecutionHistoryExporter executionHistoryExporter;
+
   /**
    * This method is used to manual trigger Integration.
    */
@@ -110,8 +137,79 @@ public class ExecutionController extends BaseController {
   public Page<ExecutionDto> getAllHistoricalExecutions(Pageable pageable) {
     permissionService.canManageDhis2();
 
-    return executionRepository.findAllExcludingRequestBody(pageable)
-            .map(ExecutionDto::fromSqlMap);
+    return executionRepository.findAllExcludingRequestBody(pageable);
+  }
+
+  /**
+   * Searches historical executions, newest first. Pages are chained with cursors instead of page
+   * numbers so retrieving a page costs the same no matter how deep in the history it is. The
+   * total number of matching executions is counted only if the includeTotal flag is set.
+   *
+   * @param queryParams filters defined by {@link ExecutionSearchParams}.
+   * @param cursor      the nextCursor value from the previous page.
+   * @param size        max number of executions on the page.
+   */
+  @GetMapping(HISTORY_URL)
+  public ExecutionHistoryPage searchHistoricalExecutions(
+      @RequestParam MultiValueMap<String, String> queryParams,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "size", defaultValue = "" + DEFAULT_HISTORY_PAGE_SIZE) int size,
+      @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal) {
+    permissionService.canManageDhis2();
+
+    if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+      throw new ValidationMessageException(new Message(
+          MessageKeys.ERROR_EXECUTION_PAGE_SIZE_INVALID, MAX_HISTORY_PAGE_SIZE));
+    }
+
+    ExecutionSearchParams params = new ExecutionSearchParams(queryParams);
+    ExecutionCursor after = null == cursor ? null : ExecutionCursor.decode(cursor);
+
+    // one more execution is retrieved to check if there is a next page
+    List<ExecutionDto> content = executionRepository
+        .searchExcludingRequestBody(params, after, size + 1);
+
+    String nextCursor = null;
+
+    if (content.size() > size) {
+      content = content.subList(0, size);
+
+      ExecutionDto last = content.get(size - 1);
+      nextCursor = new ExecutionCursor(last.getStartDate(), last.getId()).encode();
+    }
+
+    Long totalElements = includeTotal ? executionRepository.countExecutions(params) : null;
+
+    return new ExecutionHistoryPage(content, nextCursor, totalElements);
+  }
+
+  /**
+   * Exports historical executions, newest first, as NDJSON or CSV. Executions are streamed from
+   * the database while the response is written, so exports of any size are not kept in memory.
+   *
+   * @param queryParams filters defined by {@link ExecutionSearchParams}.
+   * @param format      ndjson (default) or csv.
+   */
+  @GetMapping(EXPORT_URL)
+  public void exportHistoricalExecutions(
+      @RequestParam MultiValueMap<String, String> queryParams,
+      @RequestParam(value = "format", defaultValue = ExecutionHistoryExporter.NDJSON_FORMAT)
+          String format,
+      HttpServletResponse response) throws IOException {
+    permissionService.canManageDhis2();
+
+    executionHistoryExporter.export(new ExecutionSearchParams(queryParams), format, response);
+  }
+
+  /**
+   * Retrieves statistics of finished executions for each program and target URL. They are read
+   * from rollups updated when executions finish, so the execution history is not scanned.
+   */
+  @GetMapping(STATISTICS_URL)
+  public List<ExecutionStatisticsDto> getExecutionStatistics() {
+    permissionService.canManageDhis2();
+
+    return executionStatisticsRepository.findAll();
   }
 
   /**
@@ -129,17 +227,18 @@ public class ExecutionController extends BaseController {
   }
 
   /**
-   * Retrieves the request that has been used with the given execution.
+   * Retrieves the request that has been used with the given execution. The request is streamed
+   * from the database, gzip compressed if the client accepts it. A single byte range can be
+   * requested with the Range header.
    */
   @GetMapping(value = REQUEST_URL, produces = MediaType.APPLICATION_JSON_VALUE)
-  public String getExecutionRequest(@PathVariable("id") UUID id) {
+  public void getExecutionRequest(@PathVariable("id") UUID id,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      HttpServletResponse response) throws IOException {
     permissionService.canManageDhis2();
 
-    Execution execution = executionRepository.findOne(id);
-    if (execution == null) {
-      throw new NotFoundException(MessageKeys.ERROR_EXECUTION_NOT_FOUND);
-    }
-
-    return execution.getRequestBody();
+    executionRequestDownloader.download(id, acceptEncoding, range, response);
   }
 }
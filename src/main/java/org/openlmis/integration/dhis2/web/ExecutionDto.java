@@ -16,7 +16,6 @@
 package org.openlmis.integration.dhis2.web;
 
 import java.time.ZonedDateTime;
-import java.util.Map;
 import java.util.UUID;
 
 import lombok.AllArgsConstructor;
@@ -30,6 +29,7 @@ import org.codehaus.jackson.annotate.JsonSetter;
 import org.openlmis.integration.dhis2.domain.Execution;
 import org.openlmis.integration.dhis2.domain.ExecutionResponse;
 import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 
 
 /**
@@ -76,41 +76,22 @@ public final class ExecutionDto extends BaseDto implements Execution.Exporter {
   }
 
   /**
-   * Exporter for custom sql queries. Exports also ExecutionResponseDto
-   * @param map Properties needed to build proper dto
-   * @return Execution dto
+   * Creates a DTO straight from the columns of an execution and its response. It is used by
+   * JPQL constructor expressions so history queries don't have to create an entity or a map for
+   * every row. Response columns are null if the execution has no response yet.
    */
-  public static ExecutionDto fromSqlMap(Map<String, Object> map) {
-    ExecutionResponseDto executionResponse = null;
-
-    if (map.get("responseDate") != null
-         && map.get("statusCode") != null
-         && map.get("body") != null
-    ) {
-      executionResponse = new ExecutionResponseDto(
-              (ZonedDateTime) map.get("responseDate"),
-              (Integer) map.get("statusCode"),
-              (String) map.get("body")
-      );
+  public ExecutionDto(UUID id, boolean manualExecution, UUID programId, UUID facilityId,
+      UUID processingPeriodId, ExecutionStatus status, String description, String targetUrl,
+      ZonedDateTime startDate, ZonedDateTime endDate, UUID userId,
+      ZonedDateTime responseDate, Integer responseStatusCode, byte[] compressedResponseBody) {
+    this(manualExecution, programId, facilityId, processingPeriodId, status, description,
+        targetUrl, startDate, endDate, userId, null);
+    setId(id);
+
+    if (null != responseDate && null != responseStatusCode) {
+      response = new ExecutionResponseDto(responseDate, responseStatusCode,
+          GzipUtils.decompress(compressedResponseBody));
     }
-
-    ExecutionDto result = new ExecutionDto(
-            ((Boolean) map.get("manualExecution")),
-            ((UUID) map.get("programId")),
-            ((UUID) map.get("facilityId")),
-            ((UUID) map.get("processingPeriodId")),
-            ((ExecutionStatus) map.get("status")),
-            ((String) map.get("description")),
-            ((String) map.get("targetUrl")),
-            ((ZonedDateTime) map.get("startDate")),
-            ((ZonedDateTime) map.get("endDate")),
-            ((UUID) map.get("id")),
-            executionResponse
-    );
-
-    result.setId((UUID) map.get("id"));
-
-    return result;
   }
 
 }
@@ -0,0 +1,148 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.repository.ExecutionSearchParams;
+import org.openlmis.integration.dhis2.util.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams the execution history to the client as NDJSON (one JSON execution per line) or CSV.
+ * Executions are written as they are read from the database, so memory use doesn't depend on
+ * the size of the export.
+ */
+@Component
+class ExecutionHistoryExporter {
+
+  static final String NDJSON_FORMAT = "ndjson";
+  static final String CSV_FORMAT = "csv";
+  static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+  static final String CSV_CONTENT_TYPE = "text/csv";
+
+  private static final List<String> FORMATS = Arrays.asList(NDJSON_FORMAT, CSV_FORMAT);
+  private static final String FILE_NAME = "executions.";
+
+  static final String[] CSV_HEADERS = {"id", "manualExecution", "programId", "facilityId",
+      "processingPeriodId", "status", "description", "targetUrl", "startDate", "endDate",
+      "userId", "responseDate", "responseStatusCode", "responseBody"};
+
+  @Autowired
+  private ExecutionRepository executionRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Writes executions that match the given params to the response in the given format.
+   *
+   * @throws ValidationMessageException if the format is not supported.
+   */
+  void export(ExecutionSearchParams params, String format, HttpServletResponse response)
+      throws IOException {
+    if (!FORMATS.contains(format)) {
+      throw new ValidationMessageException(new Message(
+          MessageKeys.ERROR_EXECUTION_EXPORT_FORMAT_INVALID, format, String.join(", ", FORMATS)));
+    }
+
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"" + FILE_NAME + format + "\"");
+
+    try {
+      if (CSV_FORMAT.equals(format)) {
+        response.setContentType(CSV_CONTENT_TYPE);
+        writeCsv(params, response);
+      } else {
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        writeNdjson(params, response);
+      }
+    } catch (UncheckedIOException exp) {
+      throw exp.getCause();
+    }
+  }
+
+  private void writeNdjson(ExecutionSearchParams params, HttpServletResponse response)
+      throws IOException {
+    // the output is flushed when its buffer is full, not after every execution
+    ObjectWriter writer = objectMapper
+        .writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .without(SerializationFeature.INDENT_OUTPUT);
+
+    try (JsonGenerator generator = objectMapper
+        .getFactory()
+        .createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+      // lines are separated by new lines only
+      generator.setRootValueSeparator(null);
+
+      executionRepository.scrollExcludingRequestBody(params, execution -> {
+        try {
+          writer.writeValue(generator, execution);
+          generator.writeRaw('\n');
+        } catch (IOException exp) {
+          throw new UncheckedIOException(exp);
+        }
+      });
+    }
+  }
+
+  private void writeCsv(ExecutionSearchParams params, HttpServletResponse response)
+      throws IOException {
+    try (CSVPrinter printer = new CSVPrinter(
+        new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+        CSVFormat.DEFAULT.withHeader(CSV_HEADERS))) {
+      executionRepository.scrollExcludingRequestBody(params, execution -> {
+        try {
+          printer.printRecord(toCsvRecord(execution));
+        } catch (IOException exp) {
+          throw new UncheckedIOException(exp);
+        }
+      });
+    }
+  }
+
+  private Object[] toCsvRecord(ExecutionDto execution) {
+    ExecutionResponseDto response = execution.getResponse();
+
+    return new Object[]{execution.getId(), execution.isManualExecution(),
+        execution.getProgramId(), execution.getFacilityId(), execution.getProcessingPeriodId(),
+        execution.getStatus(), execution.getDescription(), execution.getTargetUrl(),
+        execution.getStartDate(), execution.getEndDate(), execution.getUserId(),
+        null == response ? null : response.getResponseDate(),
+        null == response ? null : response.getStatusCode(),
+        null == response ? null : response.getBody()};
+  }
+
+}
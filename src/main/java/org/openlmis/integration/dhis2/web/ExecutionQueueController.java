@@ -17,9 +17,9 @@ package org.openlmis.integration.dhis2.web;
 
 import static org.openlmis.integration.dhis2.web.ExecutionQueueController.RESOURCE_PATH;
 
-import java.util.Set;
+import java.util.List;
 import java.util.stream.Collectors;
-import org.openlmis.integration.dhis2.service.PostPayloadTaskExecutor;
+import org.openlmis.integration.dhis2.service.ExecutionQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -38,19 +38,19 @@ public class ExecutionQueueController extends BaseController {
   private PermissionService permissionService;
 
   @Autowired
-  private PostPayloadTaskExecutor postPayloadTaskExecutor;
+  private ExecutionQueue executionQueue;
 
   /**
    * Retrieves executions from the execution queue.
    */
   @GetMapping
-  public Set<PostPayloadTaskDto> getExecutionsInQueue() {
+  public List<PostPayloadTaskDto> getExecutionsInQueue() {
     permissionService.canManageDhis2();
-    return postPayloadTaskExecutor
-        .getQueueItems()
+    return executionQueue
+        .getWaitingItems()
         .stream()
         .map(PostPayloadTaskDto::newInstance)
-        .collect(Collectors.toSet());
+        .collect(Collectors.toList());
   }
 
 }
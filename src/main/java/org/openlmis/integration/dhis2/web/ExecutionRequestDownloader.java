@@ -0,0 +1,168 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openlmis.integration.dhis2.exception.NotFoundException;
+import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.repository.CompressedRequestBody;
+import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams request bodies of executions from the database to the client. The body is stored gzip
+ * compressed, so it is sent as it is if the client accepts gzip encoding. Otherwise it is
+ * decompressed while it is sent. A single byte range of the sent representation can be
+ * requested with the Range header.
+ */
+@Component
+class ExecutionRequestDownloader {
+
+  private static final String GZIP_ENCODING = "gzip";
+  private static final String BYTES_UNIT = "bytes";
+
+  @Autowired
+  private ExecutionRepository executionRepository;
+
+  /**
+   * Writes the request body of the given execution to the response.
+   *
+   * @throws NotFoundException if the execution does not exist.
+   */
+  void download(UUID id, String acceptEncoding, String rangeHeader,
+      HttpServletResponse response) throws IOException {
+    CompressedRequestBody body = executionRepository.findCompressedRequestBody(id);
+
+    if (null == body) {
+      throw new NotFoundException(MessageKeys.ERROR_EXECUTION_NOT_FOUND);
+    }
+
+    boolean compressed = acceptsGzip(acceptEncoding);
+    long size = compressed ? body.getSize() : getUncompressedSize(body);
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (compressed) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+    }
+
+    long start = 0;
+    long end = size - 1;
+
+    // several ranges are not supported so the whole body is sent instead
+    List<HttpRange> ranges = parseRanges(rangeHeader);
+
+    if (ranges.size() == 1) {
+      start = ranges.get(0).getRangeStart(size);
+      end = Math.min(ranges.get(0).getRangeEnd(size), size - 1);
+
+      if (start < 0 || start >= size) {
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+        return;
+      }
+
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+      response.setHeader(HttpHeaders.CONTENT_RANGE,
+          BYTES_UNIT + " " + start + "-" + end + "/" + size);
+    }
+
+    long length = end - start + 1;
+    response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length));
+
+    writeBody(body, compressed, start, length, response);
+  }
+
+  private void writeBody(CompressedRequestBody body, boolean compressed, long start,
+      long length, HttpServletResponse response) throws IOException {
+    if (compressed) {
+      try (InputStream input = executionRepository
+          .openCompressedRequestBody(body, start, length)) {
+        IOUtils.copyLarge(input, response.getOutputStream());
+      }
+    } else {
+      try (InputStream input = new GZIPInputStream(
+          executionRepository.openCompressedRequestBody(body, 0, body.getSize()))) {
+        IOUtils.copyLarge(input, response.getOutputStream(), start, length);
+      }
+    }
+  }
+
+  private long getUncompressedSize(CompressedRequestBody body) throws IOException {
+    byte[] trailer = new byte[GzipUtils.SIZE_TRAILER_LENGTH];
+
+    try (InputStream input = executionRepository.openCompressedRequestBody(body,
+        body.getSize() - GzipUtils.SIZE_TRAILER_LENGTH, GzipUtils.SIZE_TRAILER_LENGTH)) {
+      IOUtils.readFully(input, trailer);
+    }
+
+    return GzipUtils.getUncompressedSize(trailer);
+  }
+
+  private List<HttpRange> parseRanges(String rangeHeader) {
+    try {
+      return HttpRange.parseRanges(rangeHeader);
+    } catch (IllegalArgumentException exp) {
+      // a range header that cannot be parsed is ignored
+      return Collections.emptyList();
+    }
+  }
+
+  private boolean acceptsGzip(String acceptEncoding) {
+    if (StringUtils.isBlank(acceptEncoding)) {
+      return false;
+    }
+
+    for (String encoding : acceptEncoding.split(",")) {
+      String[] parts = encoding.trim().split(";");
+      String name = parts[0].trim();
+
+      if ((GZIP_ENCODING.equalsIgnoreCase(name) || "*".equals(name)) && !isExcluded(parts)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean isExcluded(String[] parts) {
+    for (int i = 1; i < parts.length; ++i) {
+      String parameter = parts[i].replace(" ", "");
+
+      if (parameter.matches("q=0(\\.0*)?")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.util.DurationHistogram;
+
+/**
+ * Statistics of finished executions for a program and a target URL. They are built from rollup
+ * rows, so durations are read from a histogram and payload sizes are kept as totals.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class ExecutionStatisticsDto {
+
+  private final UUID programId;
+  private final String targetUrl;
+  private final Map<ExecutionStatus, Long> executionCounts = new EnumMap<>(ExecutionStatus.class);
+  private ZonedDateTime lastSuccessDate;
+  private long maxPayloadSize;
+
+  @Getter(AccessLevel.NONE)
+  private final SortedMap<Integer, Long> durationBuckets = new TreeMap<>();
+
+  @Getter(AccessLevel.NONE)
+  private long totalPayloadSize;
+
+  @Getter(AccessLevel.NONE)
+  private long totalCompressedPayloadSize;
+
+  public ExecutionStatisticsDto(UUID programId, String targetUrl) {
+    this.programId = programId;
+    this.targetUrl = targetUrl;
+  }
+
+  /**
+   * Adds the rollup of executions that have finished with the given status.
+   */
+  public void addStatusStatistics(ExecutionStatus status, long executionCount,
+      ZonedDateTime lastEndDate, long totalPayloadSize, long maxPayloadSize,
+      long totalCompressedPayloadSize) {
+    executionCounts.merge(status, executionCount, Long::sum);
+
+    if (ExecutionStatus.SUCCESS == status && null != lastEndDate
+        && (null == lastSuccessDate || lastEndDate.isAfter(lastSuccessDate))) {
+      lastSuccessDate = lastEndDate;
+    }
+
+    this.totalPayloadSize += totalPayloadSize;
+    this.maxPayloadSize = Math.max(this.maxPayloadSize, maxPayloadSize);
+    this.totalCompressedPayloadSize += totalCompressedPayloadSize;
+  }
+
+  /**
+   * Adds the number of executions whose duration falls into the given histogram bucket.
+   */
+  public void addDurations(int bucket, long executionCount) {
+    durationBuckets.merge(bucket, executionCount, Long::sum);
+  }
+
+  /**
+   * Returns the median duration in milliseconds or null if there are no durations.
+   */
+  public Long getP50Duration() {
+    return DurationHistogram.percentile(durationBuckets, 0.5);
+  }
+
+  /**
+   * Returns the 95th percentile of durations in milliseconds or null if there are no durations.
+   */
+  public Long getP95Duration() {
+    return DurationHistogram.percentile(durationBuckets, 0.95);
+  }
+
+  /**
+   * Returns the average size of uncompressed payloads in bytes or null if there are no
+   * executions.
+   */
+  public Long getAveragePayloadSize() {
+    return average(totalPayloadSize);
+  }
+
+  /**
+   * Returns the average size of gzip compressed payloads in bytes or null if there are no
+   * executions.
+   */
+  public Long getAverageCompressedPayloadSize() {
+    return average(totalCompressedPayloadSize);
+  }
+
+  private Long average(long total) {
+    long count = 0;
+
+    for (Long executionCount : executionCounts.values()) {
+      count += executionCount;
+    }
+
+    return count == 0 ? null : total / count;
+  }
+
+}
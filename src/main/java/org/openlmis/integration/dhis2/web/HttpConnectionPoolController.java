@@ -0,0 +1,48 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.openlmis.integration.dhis2.web.HttpConnectionPoolController.RESOURCE_PATH;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(RESOURCE_PATH)
+public class HttpConnectionPoolController extends BaseController {
+
+  public static final String RESOURCE_PATH = API_PATH + "/httpConnectionPool";
+
+  @Autowired
+  private PermissionService permissionService;
+
+  @Autowired
+  private PoolingHttpClientConnectionManager httpConnectionManager;
+
+  /**
+   * Retrieves settings and the number of leased, pending and available connections of the pool
+   * of the shared HTTP client.
+   */
+  @GetMapping
+  public HttpConnectionPoolDto getHttpConnectionPool() {
+    permissionService.canManageDhis2();
+    return HttpConnectionPoolDto.newInstance(httpConnectionManager);
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Settings and statistics of the pool of connections of the shared HTTP client, in total and per
+ * route (target host).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class HttpConnectionPoolDto {
+  private int maxTotal;
+  private int defaultMaxPerRoute;
+  private int leased;
+  private int pending;
+  private int available;
+  private List<RouteDto> routes;
+
+  /**
+   * Creates new instance based on the current state of the given connection pool.
+   */
+  public static HttpConnectionPoolDto newInstance(PoolingHttpClientConnectionManager pool) {
+    PoolStats total = pool.getTotalStats();
+    List<RouteDto> routes = pool
+        .getRoutes()
+        .stream()
+        .map(route -> RouteDto.newInstance(route, pool.getStats(route)))
+        .sorted((left, right) -> left.route.compareTo(right.route))
+        .collect(Collectors.toList());
+
+    return new HttpConnectionPoolDto(total.getMax(), pool.getDefaultMaxPerRoute(),
+        total.getLeased(), total.getPending(), total.getAvailable(), routes);
+  }
+
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  @ToString
+  public static final class RouteDto {
+    private String route;
+    private int max;
+    private int leased;
+    private int pending;
+    private int available;
+
+    static RouteDto newInstance(HttpRoute route, PoolStats stats) {
+      return new RouteDto(route.getTargetHost().toURI(), stats.getMax(), stats.getLeased(),
+          stats.getPending(), stats.getAvailable());
+    }
+  }
+
+}
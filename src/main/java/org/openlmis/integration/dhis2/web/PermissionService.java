@@ -15,10 +15,14 @@
 
 package org.openlmis.integration.dhis2.web;
 
-import static org.apache.commons.lang3.BooleanUtils.isNotTrue;
+import static org.apache.commons.lang3.BooleanUtils.isTrue;
 
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.integration.dhis2.service.ResponseCache;
 import org.openlmis.integration.dhis2.service.ResultDto;
-import org.openlmis.integration.dhis2.service.referencedata.RightDto;
 import org.openlmis.integration.dhis2.service.referencedata.UserDto;
 import org.openlmis.integration.dhis2.service.referencedata.UserReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,9 +31,17 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Service;
 
+/**
+ * Checks rights of the current user. Decisions are kept in the permissions response cache for a
+ * short time, keyed by the user and the right name, so repeated calls from the same user do not
+ * go to the reference data service. Right ids never change, so they are kept for the lifetime of
+ * the process.
+ */
 @Service
 class PermissionService {
 
+  static final String PERMISSIONS_CACHE = "permissions";
+
   private static final String DHIS_2_MANAGEMENT = "DHIS2_MANAGEMENT";
 
   @Autowired
@@ -38,15 +50,29 @@ class PermissionService {
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @Autowired
+  private ResponseCache responseCache;
+
   @Value("${auth.server.clientId}")
   private String serviceTokenClientId;
 
+  private final ConcurrentMap<String, UUID> rightIds = new ConcurrentHashMap<>();
+
   void canManageDhis2() {
     if (hasNoPermission(DHIS_2_MANAGEMENT, true)) {
       throw new MissingPermissionException(DHIS_2_MANAGEMENT);
     }
   }
 
+  /**
+   * Removes cached decisions of the given user, so their rights are checked again.
+   */
+  void evictDecisions(UUID userId) {
+    rightIds
+        .keySet()
+        .forEach(rightName -> responseCache.evict(PERMISSIONS_CACHE, Pair.of(userId, rightName)));
+  }
+
   private boolean hasNoPermission(String rightName, boolean allowUsers) {
     OAuth2Authentication authentication = (OAuth2Authentication) SecurityContextHolder
         .getContext()
@@ -57,20 +83,28 @@ class PermissionService {
     }
 
     if (allowUsers) {
-      return isNotValidUserToken(rightName);
+      return isNotValidUserToken(authentication, rightName);
     }
 
     return true;
   }
 
-  private boolean isNotValidUserToken(String rightName) {
+  private boolean isNotValidUserToken(OAuth2Authentication authentication, String rightName) {
+    Boolean hasRight = responseCache.get(PERMISSIONS_CACHE,
+        Pair.of(authentication.getPrincipal(), rightName), () -> hasRight(rightName));
+
+    return !hasRight;
+  }
+
+  private Boolean hasRight(String rightName) {
     UserDto user = authenticationHelper.getCurrentUser();
-    RightDto right = authenticationHelper.getRight(rightName);
+    UUID rightId = rightIds.computeIfAbsent(rightName,
+        name -> authenticationHelper.getRight(name).getId());
     ResultDto<Boolean> result = userReferenceDataService.hasRight(
-        user.getId(), right.getId(), null, null, null
+        user.getId(), rightId, null, null, null
     );
 
-    return null == result || isNotTrue(result.getResult());
+    return null != result && isTrue(result.getResult());
   }
 
   private boolean isNotValidServiceToken(OAuth2Authentication authentication) {
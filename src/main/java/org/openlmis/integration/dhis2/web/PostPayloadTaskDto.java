@@ -23,7 +23,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
-import org.openlmis.integration.dhis2.service.PostPayloadTask;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
 
 @Getter
 @Setter
@@ -31,21 +31,20 @@ import org.openlmis.integration.dhis2.service.PostPayloadTask;
 @AllArgsConstructor
 @EqualsAndHashCode
 @ToString
-public final class PostPayloadTaskDto implements PostPayloadTask.Exporter {
+public final class PostPayloadTaskDto implements ExecutionQueueItem.Exporter {
   private ZonedDateTime executionTime;
   private UUID processingPeriodId;
   private UUID userId;
   private String description;
 
   /**
-   * Creates new instance based on {@link PostPayloadTask} object.
+   * Creates new instance based on {@link ExecutionQueueItem} object.
    */
-  public static PostPayloadTaskDto newInstance(PostPayloadTask task) {
+  public static PostPayloadTaskDto newInstance(ExecutionQueueItem item) {
     PostPayloadTaskDto dto = new PostPayloadTaskDto();
-    task.export(dto);
+    item.export(dto);
 
     return dto;
   }
 
-
 }
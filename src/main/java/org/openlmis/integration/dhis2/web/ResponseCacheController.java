@@ -0,0 +1,93 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.openlmis.integration.dhis2.web.ResponseCacheController.RESOURCE_PATH;
+
+import java.util.List;
+import org.openlmis.integration.dhis2.security.CachingTokenServices;
+import org.openlmis.integration.dhis2.service.ResponseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(RESOURCE_PATH)
+public class ResponseCacheController extends BaseController {
+
+  public static final String RESOURCE_PATH = API_PATH + "/responseCaches";
+  public static final String NAME_URL = "/{name}";
+
+  @Autowired
+  private PermissionService permissionService;
+
+  @Autowired
+  private ResponseCache responseCache;
+
+  @Autowired
+  private CachingTokenServices tokenServices;
+
+  /**
+   * Retrieves settings, sizes and hit/miss statistics of reference data response caches and the
+   * access token cache. Caches are kept in memory, so the values are only for the instance that
+   * handles the request.
+   */
+  @GetMapping
+  public List<ResponseCacheDto> getResponseCaches() {
+    permissionService.canManageDhis2();
+
+    List<ResponseCacheDto> caches = responseCache.export(ResponseCacheDto::new);
+    caches.add(tokenServices.export(new ResponseCacheDto()));
+
+    return caches;
+  }
+
+  /**
+   * Removes all responses from all caches, so reference data is retrieved again. Only caches of
+   * the instance that handles the request are cleared; other instances keep their responses until
+   * they expire.
+   */
+  @DeleteMapping
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void evictAll() {
+    permissionService.canManageDhis2();
+    responseCache.evictAll();
+    tokenServices.evictAll();
+  }
+
+  /**
+   * Removes all responses from the cache with the given name, like programs. The tokens name
+   * stands for the access token cache. Like {@link #evictAll()}, only the cache of the instance
+   * that handles the request is cleared.
+   */
+  @DeleteMapping(NAME_URL)
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void evict(@PathVariable("name") String name) {
+    permissionService.canManageDhis2();
+
+    if (CachingTokenServices.CACHE_NAME.equals(name)) {
+      tokenServices.evictAll();
+    } else {
+      responseCache.evict(name);
+    }
+  }
+
+}
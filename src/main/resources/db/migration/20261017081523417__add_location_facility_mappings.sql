@@ -0,0 +1,12 @@
+CREATE TABLE location_facility_mappings (
+  locationId TEXT NOT NULL,
+  facilityId UUID NOT NULL,
+  lastUpdated TIMESTAMP WITH TIME ZONE,
+  CONSTRAINT location_facility_mapping_pkey PRIMARY KEY (locationId)
+);
+
+CREATE INDEX location_facility_mapping_facilityid_idx
+  ON location_facility_mappings(facilityId);
+
+CREATE INDEX location_facility_mapping_lastupdated_idx
+  ON location_facility_mappings(lastUpdated);
@@ -0,0 +1,16 @@
+CREATE TABLE execution_queue (
+  id UUID NOT NULL,
+  integrationId UUID NOT NULL,
+  facilityId UUID,
+  processingPeriodId UUID NOT NULL,
+  description TEXT,
+  manualExecution BOOLEAN NOT NULL,
+  userId UUID,
+  queuedDate TIMESTAMP WITH TIME ZONE NOT NULL,
+  lockedUntil TIMESTAMP WITH TIME ZONE,
+  CONSTRAINT execution_queue_pkey PRIMARY KEY (id),
+  CONSTRAINT execution_queue_integration_fkey FOREIGN KEY (integrationId)
+    REFERENCES integrations(id) ON DELETE CASCADE
+);
+
+CREATE INDEX execution_queue_order_idx ON execution_queue(manualExecution, queuedDate);
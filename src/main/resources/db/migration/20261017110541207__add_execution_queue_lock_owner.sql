@@ -0,0 +1 @@
+ALTER TABLE execution_queue ADD COLUMN lockedBy TEXT;
@@ -0,0 +1,6 @@
+CREATE TABLE scheduler_leases (
+  name TEXT NOT NULL,
+  holder TEXT NOT NULL,
+  leaseUntil TIMESTAMP WITH TIME ZONE NOT NULL,
+  CONSTRAINT scheduler_lease_pkey PRIMARY KEY (name)
+);
@@ -0,0 +1,3 @@
+ALTER TABLE executions ADD COLUMN compressedRequestBody BYTEA;
+
+ALTER TABLE execution_responses ADD COLUMN compressedBody BYTEA;
@@ -0,0 +1,7 @@
+ALTER TABLE executions DROP COLUMN requestBody;
+ALTER TABLE executions RENAME COLUMN compressedRequestBody TO requestBody;
+ALTER TABLE executions ALTER COLUMN requestBody SET NOT NULL;
+
+ALTER TABLE execution_responses DROP COLUMN body;
+ALTER TABLE execution_responses RENAME COLUMN compressedBody TO body;
+ALTER TABLE execution_responses ALTER COLUMN body SET NOT NULL;
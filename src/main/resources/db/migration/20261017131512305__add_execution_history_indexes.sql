@@ -0,0 +1,14 @@
+-- executions are always listed from the newest one and the id is used as a tie-breaker,
+-- so every index ends with startDate and id to serve both filtering and keyset pagination
+CREATE INDEX executions_startdate_id_idx ON executions(startDate DESC, id DESC);
+
+CREATE INDEX executions_status_startdate_id_idx
+  ON executions(status, startDate DESC, id DESC);
+CREATE INDEX executions_programid_startdate_id_idx
+  ON executions(programId, startDate DESC, id DESC);
+CREATE INDEX executions_facilityid_startdate_id_idx
+  ON executions(facilityId, startDate DESC, id DESC);
+CREATE INDEX executions_processingperiodid_startdate_id_idx
+  ON executions(processingPeriodId, startDate DESC, id DESC);
+CREATE INDEX executions_manualexecution_startdate_id_idx
+  ON executions(manualExecution, startDate DESC, id DESC);
@@ -0,0 +1,150 @@
+-- Executions and their responses are split into monthly partitions. Postgres 9.6 has no
+-- declarative partitioning, so the partitions inherit from the original tables, which stay
+-- empty. Executions are partitioned by startDate and responses by responseDate (months are
+-- counted in UTC). Whole partitions can be dropped or archived by the retention job.
+
+-- a response and its execution can be in partitions of different months
+ALTER TABLE execution_responses DROP CONSTRAINT execution_response_fkey;
+
+-- Creates the partition of the given parent table for the given month if it does not exist yet
+-- and returns its name. The partition gets the columns, constraints and indexes of the parent.
+CREATE FUNCTION create_monthly_partition(parent TEXT, partition_column TEXT, month DATE)
+RETURNS TEXT AS $$
+DECLARE
+  month_start DATE := date_trunc('month', month)::DATE;
+  partition_name TEXT := parent || '_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+  IF to_regclass('dhis2integration.' || partition_name) IS NULL THEN
+    BEGIN
+      EXECUTE format('CREATE TABLE dhis2integration.%I ('
+          || 'LIKE dhis2integration.%I'
+          || ' INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES, '
+          || 'CHECK (%I >= %L::TIMESTAMPTZ AND %I < %L::TIMESTAMPTZ)'
+          || ') INHERITS (dhis2integration.%I)',
+          partition_name, parent,
+          partition_column, month_start::TIMESTAMP AT TIME ZONE 'UTC',
+          partition_column, (month_start + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC',
+          parent);
+    EXCEPTION WHEN duplicate_table OR unique_violation THEN
+      -- the partition has been created by a concurrent transaction
+      NULL;
+    END;
+  END IF;
+
+  RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removes the given partition from its parent. It is dropped if no archive schema is given,
+-- otherwise it is moved to the archive schema.
+CREATE FUNCTION remove_monthly_partition(partition_name TEXT, archive_schema TEXT)
+RETURNS TEXT AS $$
+DECLARE
+  parent TEXT;
+BEGIN
+  SELECT p.relname INTO parent
+  FROM pg_inherits AS i
+    JOIN pg_class AS c ON c.oid = i.inhrelid
+    JOIN pg_class AS p ON p.oid = i.inhparent
+    JOIN pg_namespace AS n ON n.oid = c.relnamespace
+  WHERE n.nspname = 'dhis2integration' AND c.relname = partition_name;
+
+  IF parent IS NULL THEN
+    RETURN NULL;
+  END IF;
+
+  IF archive_schema IS NULL OR archive_schema = '' THEN
+    EXECUTE format('DROP TABLE dhis2integration.%I', partition_name);
+  ELSE
+    EXECUTE format('CREATE SCHEMA IF NOT EXISTS %I', archive_schema);
+    EXECUTE format('ALTER TABLE dhis2integration.%I NO INHERIT dhis2integration.%I',
+        partition_name, parent);
+    EXECUTE format('ALTER TABLE dhis2integration.%I SET SCHEMA %I',
+        partition_name, archive_schema);
+  END IF;
+
+  RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Puts a new row into the partition of its month. The row is also inserted into the parent
+-- (and removed from it right away by remove_from_parent) so the INSERT reports one row and
+-- Hibernate does not treat it as a failed insert.
+CREATE FUNCTION insert_into_monthly_partition()
+RETURNS TRIGGER AS $$
+DECLARE
+  partition_column TEXT := TG_ARGV[0];
+  partition_value TIMESTAMPTZ;
+  partition_name TEXT;
+BEGIN
+  EXECUTE format('SELECT ($1).%I', partition_column) INTO partition_value USING NEW;
+
+  partition_name := dhis2integration.create_monthly_partition(TG_TABLE_NAME, partition_column,
+      (partition_value AT TIME ZONE 'UTC')::DATE);
+
+  EXECUTE format('INSERT INTO dhis2integration.%I SELECT ($1).*', partition_name) USING NEW;
+
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION remove_from_parent()
+RETURNS TRIGGER AS $$
+BEGIN
+  EXECUTE format('DELETE FROM ONLY dhis2integration.%I WHERE id = $1', TG_TABLE_NAME)
+      USING NEW.id;
+
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- move existing rows into partitions
+DO $$
+DECLARE
+  month DATE;
+  partition_name TEXT;
+BEGIN
+  FOR month IN
+    SELECT DISTINCT date_trunc('month', startDate AT TIME ZONE 'UTC')::DATE
+    FROM ONLY dhis2integration.executions
+  LOOP
+    partition_name := dhis2integration.create_monthly_partition('executions',
+        'startdate', month);
+    EXECUTE format('INSERT INTO dhis2integration.%I'
+        || ' SELECT * FROM ONLY dhis2integration.executions'
+        || ' WHERE date_trunc(''month'', startDate AT TIME ZONE ''UTC'')::DATE = $1',
+        partition_name) USING month;
+  END LOOP;
+
+  FOR month IN
+    SELECT DISTINCT date_trunc('month', responseDate AT TIME ZONE 'UTC')::DATE
+    FROM ONLY dhis2integration.execution_responses
+  LOOP
+    partition_name := dhis2integration.create_monthly_partition('execution_responses',
+        'responsedate', month);
+    EXECUTE format('INSERT INTO dhis2integration.%I'
+        || ' SELECT * FROM ONLY dhis2integration.execution_responses'
+        || ' WHERE date_trunc(''month'', responseDate AT TIME ZONE ''UTC'')::DATE = $1',
+        partition_name) USING month;
+  END LOOP;
+END;
+$$;
+
+TRUNCATE ONLY execution_responses;
+TRUNCATE ONLY executions;
+
+CREATE TRIGGER executions_insert_into_partition
+  BEFORE INSERT ON executions
+  FOR EACH ROW EXECUTE PROCEDURE insert_into_monthly_partition('startdate');
+
+CREATE TRIGGER executions_remove_from_parent
+  AFTER INSERT ON executions
+  FOR EACH ROW EXECUTE PROCEDURE remove_from_parent();
+
+CREATE TRIGGER execution_responses_insert_into_partition
+  BEFORE INSERT ON execution_responses
+  FOR EACH ROW EXECUTE PROCEDURE insert_into_monthly_partition('responsedate');
+
+CREATE TRIGGER execution_responses_remove_from_parent
+  AFTER INSERT ON execution_responses
+  FOR EACH ROW EXECUTE PROCEDURE remove_from_parent();
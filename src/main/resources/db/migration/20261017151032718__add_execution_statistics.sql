@@ -0,0 +1,62 @@
+-- Statistics of finished executions are rolled up per program and target URL when an execution
+-- is done, so they can be read without scanning the execution history. Executions without a
+-- program share the rollup rows with a NULL program, so unique keys use a placeholder for it.
+CREATE TABLE execution_statistics (
+  programId UUID,
+  targetUrl TEXT NOT NULL,
+  status VARCHAR(255) NOT NULL,
+  executionCount BIGINT NOT NULL,
+  lastEndDate TIMESTAMP WITH TIME ZONE,
+  totalPayloadSize BIGINT NOT NULL,
+  maxPayloadSize BIGINT NOT NULL,
+  totalCompressedPayloadSize BIGINT NOT NULL
+);
+
+CREATE UNIQUE INDEX execution_statistics_unq ON execution_statistics (
+  COALESCE(programId, CAST('00000000-0000-0000-0000-000000000000' AS UUID)), targetUrl, status);
+
+-- Durations are counted in a log scale histogram, see DurationHistogram for bucket bounds.
+CREATE TABLE execution_duration_buckets (
+  programId UUID,
+  targetUrl TEXT NOT NULL,
+  bucket INTEGER NOT NULL,
+  executionCount BIGINT NOT NULL
+);
+
+CREATE UNIQUE INDEX execution_duration_buckets_unq ON execution_duration_buckets (
+  COALESCE(programId, CAST('00000000-0000-0000-0000-000000000000' AS UUID)), targetUrl, bucket);
+
+-- Roll up executions that have already finished. The uncompressed payload size is read from
+-- the gzip trailer (the last 4 bytes, little endian) of the request body.
+INSERT INTO execution_statistics (programId, targetUrl, status, executionCount, lastEndDate,
+    totalPayloadSize, maxPayloadSize, totalCompressedPayloadSize)
+SELECT programId, targetUrl, status, COUNT(*), MAX(endDate),
+    COALESCE(SUM(payloadSize), 0), COALESCE(MAX(payloadSize), 0),
+    COALESCE(SUM(compressedPayloadSize), 0)
+FROM (
+  SELECT programId, targetUrl, status, endDate,
+      octet_length(requestBody) AS compressedPayloadSize,
+      CASE WHEN octet_length(requestBody) >= 4 THEN
+        CAST(get_byte(requestBody, octet_length(requestBody) - 4) AS BIGINT)
+        + CAST(get_byte(requestBody, octet_length(requestBody) - 3) AS BIGINT) * 256
+        + CAST(get_byte(requestBody, octet_length(requestBody) - 2) AS BIGINT) * 65536
+        + CAST(get_byte(requestBody, octet_length(requestBody) - 1) AS BIGINT) * 16777216
+      END AS payloadSize
+  FROM executions
+  WHERE status IN ('SUCCESS', 'ERROR') AND endDate IS NOT NULL
+) AS finished
+GROUP BY programId, targetUrl, status;
+
+-- the bucket is the first one whose upper bound (2 to the power of bucket / 4, rounded up)
+-- is not lower than the duration in milliseconds
+INSERT INTO execution_duration_buckets (programId, targetUrl, bucket, executionCount)
+SELECT e.programId, e.targetUrl, b.bucket, COUNT(*)
+FROM executions AS e
+  CROSS JOIN LATERAL (
+    SELECT COALESCE(MIN(s.bucket), 128) AS bucket
+    FROM generate_series(0, 128) AS s(bucket)
+    WHERE ceil(power(2, s.bucket / 4.0))
+        >= floor(EXTRACT(EPOCH FROM e.endDate - e.startDate) * 1000)
+  ) AS b
+WHERE e.status IN ('SUCCESS', 'ERROR') AND e.endDate IS NOT NULL
+GROUP BY e.programId, e.targetUrl, b.bucket;
@@ -0,0 +1,5 @@
+CREATE TABLE synchronization_states (
+  name TEXT NOT NULL,
+  lastUpdated TIMESTAMP WITH TIME ZONE NOT NULL,
+  CONSTRAINT synchronization_state_pkey PRIMARY KEY (name)
+);
@@ -0,0 +1 @@
+DROP INDEX IF EXISTS location_facility_mapping_lastupdated_idx;
@@ -15,6 +15,7 @@
 
 package org.openlmis.integration.dhis2;
 
+import java.util.UUID;
 import lombok.EqualsAndHashCode;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.OAuth2Request;
@@ -28,31 +29,35 @@ public class OAuth2AuthenticationDataBuilder {
     return new DummyOAuth2Authentication(CLIENT_CLIENT_ID, "admin");
   }
 
+  public OAuth2Authentication buildUserAuthentication(UUID userId) {
+    return new DummyOAuth2Authentication(CLIENT_CLIENT_ID, userId);
+  }
+
   public OAuth2Authentication buildServiceAuthentication() {
     return new DummyOAuth2Authentication(SERVICE_CLIENT_ID);
   }
 
   @EqualsAndHashCode(callSuper = false)
   private static final class DummyOAuth2Authentication extends OAuth2Authentication {
-    private String username;
+    private Object principal;
 
     private DummyOAuth2Authentication(String clientId) {
       this(clientId, null);
     }
 
-    private DummyOAuth2Authentication(String clientId, String username) {
+    private DummyOAuth2Authentication(String clientId, Object principal) {
       super(new OAuth2Request(null, clientId, null, true, null, null, null, null, null), null);
-      this.username = username;
+      this.principal = principal;
     }
 
     @Override
     public boolean isClientOnly() {
-      return null == username;
+      return null == principal;
     }
 
     @Override
     public Object getPrincipal() {
-      return username;
+      return principal;
     }
   }
 
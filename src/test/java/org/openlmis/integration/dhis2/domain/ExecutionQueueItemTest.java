@@ -0,0 +1,128 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.ToStringTestUtils;
+import org.openlmis.integration.dhis2.web.PostPayloadTaskDto;
+
+public class ExecutionQueueItemTest {
+
+  private static final Integration INTEGRATION = new IntegrationDataBuilder().build();
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+
+  private static final UUID FACILITY_ID = UUID.randomUUID();
+  private static final UUID PROCESSING_PERIOD_ID = UUID.randomUUID();
+  private static final String DESCRIPTION = "test-description";
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final UUID BATCH_ID = UUID.randomUUID();
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(ExecutionQueueItem.class)
+        .withRedefinedSuperclass()
+        .withPrefabValues(Integration.class,
+            new IntegrationDataBuilder().build(), new IntegrationDataBuilder().build())
+        .suppress(Warning.NONFINAL_FIELDS)
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    ExecutionQueueItem item = new ExecutionQueueItem();
+    ToStringTestUtils.verify(ExecutionQueueItem.class, item);
+  }
+
+  @Test
+  public void shouldCreateInstanceForAutomaticExecution() {
+    // when
+    ExecutionQueueItem item = ExecutionQueueItem
+        .forAutomaticExecution(INTEGRATION, PROCESSING_PERIOD_ID, BATCH_ID, CLOCK);
+
+    // then
+    assertThat(item.getIntegration()).isEqualTo(INTEGRATION);
+    assertThat(item.getFacilityId()).isNull();
+    assertThat(item.getProcessingPeriodId()).isEqualTo(PROCESSING_PERIOD_ID);
+    assertThat(item.getDescription()).isNull();
+    assertThat(item.isManualExecution()).isFalse();
+    assertThat(item.getUserId()).isNull();
+    assertThat(item.getBatchId()).isEqualTo(BATCH_ID);
+    assertThat(item.getQueuedDate()).isEqualTo(ZonedDateTime.now(CLOCK));
+    assertThat(item.getLockedUntil()).isNull();
+    assertThat(item.getLockedBy()).isNull();
+  }
+
+  @Test
+  public void shouldCreateInstanceForManualExecution() {
+    // when
+    ExecutionQueueItem item = ExecutionQueueItem.forManualExecution(INTEGRATION, FACILITY_ID,
+        PROCESSING_PERIOD_ID, DESCRIPTION, USER_ID, CLOCK);
+
+    // then
+    assertThat(item.getIntegration()).isEqualTo(INTEGRATION);
+    assertThat(item.getFacilityId()).isEqualTo(FACILITY_ID);
+    assertThat(item.getProcessingPeriodId()).isEqualTo(PROCESSING_PERIOD_ID);
+    assertThat(item.getDescription()).isEqualTo(DESCRIPTION);
+    assertThat(item.isManualExecution()).isTrue();
+    assertThat(item.getUserId()).isEqualTo(USER_ID);
+    assertThat(item.getBatchId()).isNull();
+    assertThat(item.getQueuedDate()).isEqualTo(ZonedDateTime.now(CLOCK));
+    assertThat(item.getLockedUntil()).isNull();
+    assertThat(item.getLockedBy()).isNull();
+  }
+
+  @Test
+  public void shouldLock() {
+    // given
+    ExecutionQueueItem item = ExecutionQueueItem
+        .forAutomaticExecution(INTEGRATION, PROCESSING_PERIOD_ID, BATCH_ID, CLOCK);
+    ZonedDateTime lockedUntil = ZonedDateTime.now(CLOCK).plusHours(1);
+
+    // when
+    item.lock("worker", lockedUntil);
+
+    // then
+    assertThat(item.getLockedBy()).isEqualTo("worker");
+    assertThat(item.getLockedUntil()).isEqualTo(lockedUntil);
+  }
+
+  @Test
+  public void shouldExport() {
+    // given
+    ExecutionQueueItem item = ExecutionQueueItem.forManualExecution(INTEGRATION, FACILITY_ID,
+        PROCESSING_PERIOD_ID, DESCRIPTION, USER_ID, CLOCK);
+
+    // when
+    PostPayloadTaskDto exporter = new PostPayloadTaskDto();
+    item.export(exporter);
+
+    // then
+    assertThat(exporter.getExecutionTime()).isEqualTo(ZonedDateTime.now(CLOCK));
+    assertThat(exporter.getProcessingPeriodId()).isEqualTo(PROCESSING_PERIOD_ID);
+    assertThat(exporter.getUserId()).isEqualTo(USER_ID);
+    assertThat(exporter.getDescription()).isEqualTo(DESCRIPTION);
+  }
+}
@@ -34,6 +34,7 @@ import org.junit.Test;
 import org.openlmis.integration.dhis2.ExecutionResponseDataBuilder;
 import org.openlmis.integration.dhis2.IntegrationDataBuilder;
 import org.openlmis.integration.dhis2.ToStringTestUtils;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 
 public class ExecutionTest {
 
@@ -131,6 +132,25 @@ public class ExecutionTest {
     assertThat(exporter.getStatus()).isEqualTo(ExecutionStatus.PENDING);
   }
 
+  @Test
+  public void shouldSetCompressedRequestBody() {
+    // given
+    Execution execution = Execution
+        .forAutomaticExecution(INTEGRATION, PROCESSING_PERIOD_ID, CLOCK);
+    String requestBody = "{\"reporting-period\":\"201901\"}";
+
+    // when
+    execution.setCompressedRequestBody(GzipUtils.compress(requestBody));
+
+    // then
+    TestExecution exporter = new TestExecution();
+    execution.export(exporter);
+
+    assertThat(execution.getRequestBody()).isEqualTo(requestBody);
+    assertThat(execution.getCompressedRequestBody()).isEqualTo(GzipUtils.compress(requestBody));
+    assertThat(exporter.getStatus()).isEqualTo(ExecutionStatus.PENDING);
+  }
+
   @Test
   public void shouldMarkAsDone() {
     // given
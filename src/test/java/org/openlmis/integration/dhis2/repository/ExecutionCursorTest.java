@@ -0,0 +1,82 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+import org.openlmis.integration.dhis2.i18n.MessageKeys;
+
+public class ExecutionCursorTest {
+
+  private static final ZonedDateTime START_DATE =
+      ZonedDateTime.of(2019, 10, 1, 12, 30, 15, 123456000, ZoneOffset.UTC);
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(ExecutionCursor.class)
+        .verify();
+  }
+
+  @Test
+  public void shouldEncodeAndDecodeCursor() {
+    ExecutionCursor cursor = new ExecutionCursor(START_DATE, UUID.randomUUID());
+
+    String encoded = cursor.encode();
+
+    assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    assertThat(ExecutionCursor.decode(encoded)).isEqualTo(cursor);
+  }
+
+  @Test
+  public void shouldDecodeStartDateInUtc() {
+    UUID id = UUID.randomUUID();
+    ExecutionCursor cursor = new ExecutionCursor(
+        START_DATE.withZoneSameInstant(ZoneOffset.ofHours(2)), id);
+
+    ExecutionCursor decoded = ExecutionCursor.decode(cursor.encode());
+
+    assertThat(decoded.getStartDate()).isEqualTo(START_DATE);
+    assertThat(decoded.getId()).isEqualTo(id);
+  }
+
+  @Test
+  public void shouldThrowExceptionIfCursorIsNotBase64() {
+    Throwable throwable = catchThrowable(() -> ExecutionCursor.decode("not a cursor!"));
+
+    assertThat(throwable)
+        .isInstanceOf(ValidationMessageException.class)
+        .hasMessageContaining(MessageKeys.ERROR_EXECUTION_CURSOR_INVALID);
+  }
+
+  @Test
+  public void shouldThrowExceptionIfCursorHasInvalidParts() {
+    String encoded = new ExecutionCursor(START_DATE, UUID.randomUUID()).encode();
+
+    Throwable throwable = catchThrowable(() -> ExecutionCursor.decode(encoded.substring(4)));
+
+    assertThat(throwable)
+        .isInstanceOf(ValidationMessageException.class)
+        .hasMessageContaining(MessageKeys.ERROR_EXECUTION_CURSOR_INVALID);
+  }
+}
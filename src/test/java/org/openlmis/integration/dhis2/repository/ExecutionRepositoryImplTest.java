@@ -0,0 +1,125 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+
+public class ExecutionRepositoryImplTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private EntityManager entityManager;
+
+  @Mock
+  private ExecutionStatisticsRepository executionStatisticsRepository;
+
+  @Mock
+  private Query query;
+
+  @InjectMocks
+  private ExecutionRepositoryImpl repository;
+
+  private Execution execution;
+
+  @Before
+  public void setUp() {
+    given(entityManager.createQuery(anyString())).willReturn(query);
+    given(query.setParameter(anyString(), any())).willReturn(query);
+
+    execution = Execution.forAutomaticExecution(new IntegrationDataBuilder().build(), null,
+        CLOCK);
+    execution.setRequestBody("{}");
+    execution.markAsDone(new ExecutionResponse(ZonedDateTime.now(CLOCK), 200, "ok"), CLOCK);
+  }
+
+  @Test
+  public void shouldSaveRequestBody() {
+    // given
+    given(query.executeUpdate()).willReturn(1);
+
+    // when
+    repository.saveRequestBody(execution);
+
+    // then
+    verify(query).setParameter("startDate", execution.getStartDate());
+  }
+
+  @Test
+  public void shouldThrowExceptionIfRequestBodyHasNotBeenSaved() {
+    // given
+    given(query.executeUpdate()).willReturn(0);
+
+    // when
+    Throwable thrown = catchThrowable(() -> repository.saveRequestBody(execution));
+
+    // then
+    assertThat(thrown).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldSaveResultWithResponseAndStatistics() {
+    // given
+    given(query.executeUpdate()).willReturn(1);
+
+    // when
+    repository.saveResult(execution);
+
+    // then
+    verify(entityManager).persist(execution.getResponse());
+    verify(executionStatisticsRepository).record(execution);
+  }
+
+  @Test
+  public void shouldNotWriteResponseNorStatisticsIfResultHasNotBeenSaved() {
+    // given
+    given(query.executeUpdate()).willReturn(0);
+
+    // when
+    Throwable thrown = catchThrowable(() -> repository.saveResult(execution));
+
+    // then
+    assertThat(thrown).isInstanceOf(IllegalStateException.class);
+    verify(entityManager, never()).persist(any());
+    verify(executionStatisticsRepository, never()).record(any(Execution.class));
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+public class ExecutionSearchParamsTest {
+
+  private MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(ExecutionSearchParams.class)
+        .verify();
+  }
+
+  @Test
+  public void shouldParseQueryParams() {
+    UUID programId = UUID.randomUUID();
+    UUID facilityId = UUID.randomUUID();
+    UUID periodId = UUID.randomUUID();
+
+    queryParams.add(ExecutionSearchParams.STATUS, "ERROR");
+    queryParams.add(ExecutionSearchParams.PROGRAM_ID, programId.toString());
+    queryParams.add(ExecutionSearchParams.FACILITY_ID, facilityId.toString());
+    queryParams.add(ExecutionSearchParams.PROCESSING_PERIOD_ID, periodId.toString());
+    queryParams.add(ExecutionSearchParams.MANUAL_EXECUTION, "true");
+    queryParams.add(ExecutionSearchParams.START_DATE_FROM, "2019-10-01T00:00:00Z");
+    queryParams.add(ExecutionSearchParams.START_DATE_TO, "2019-10-31T23:59:59+02:00");
+
+    ExecutionSearchParams params = new ExecutionSearchParams(queryParams);
+
+    assertThat(params.getStatus()).isEqualTo(ExecutionStatus.ERROR);
+    assertThat(params.getProgramId()).isEqualTo(programId);
+    assertThat(params.getFacilityId()).isEqualTo(facilityId);
+    assertThat(params.getProcessingPeriodId()).isEqualTo(periodId);
+    assertThat(params.getManualExecution()).isTrue();
+    assertThat(params.getStartDateFrom())
+        .isEqualTo(ZonedDateTime.of(2019, 10, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+    assertThat(params.getStartDateTo())
+        .isEqualTo(ZonedDateTime.of(2019, 10, 31, 23, 59, 59, 0, ZoneOffset.ofHours(2)));
+  }
+
+  @Test
+  public void shouldIgnoreMissingAndUnknownQueryParams() {
+    queryParams.add("cursor", "abc");
+    queryParams.add("size", "10");
+
+    ExecutionSearchParams params = new ExecutionSearchParams(queryParams);
+
+    assertThat(params.getStatus()).isNull();
+    assertThat(params.getProgramId()).isNull();
+    assertThat(params.getFacilityId()).isNull();
+    assertThat(params.getProcessingPeriodId()).isNull();
+    assertThat(params.getManualExecution()).isNull();
+    assertThat(params.getStartDateFrom()).isNull();
+    assertThat(params.getStartDateTo()).isNull();
+  }
+
+  @Test
+  public void shouldThrowExceptionIfStatusIsInvalid() {
+    verifyInvalidParam(ExecutionSearchParams.STATUS, "DONE");
+  }
+
+  @Test
+  public void shouldThrowExceptionIfIdIsInvalid() {
+    verifyInvalidParam(ExecutionSearchParams.PROGRAM_ID, "program");
+  }
+
+  @Test
+  public void shouldThrowExceptionIfFlagIsInvalid() {
+    verifyInvalidParam(ExecutionSearchParams.MANUAL_EXECUTION, "yes");
+  }
+
+  @Test
+  public void shouldThrowExceptionIfDateIsInvalid() {
+    verifyInvalidParam(ExecutionSearchParams.START_DATE_FROM, "2019-10-01");
+  }
+
+  private void verifyInvalidParam(String name, String value) {
+    queryParams.add(name, value);
+
+    Throwable throwable = catchThrowable(() -> new ExecutionSearchParams(queryParams));
+
+    assertThat(throwable)
+        .isInstanceOf(ValidationMessageException.class)
+        .hasMessageContaining(MessageKeys.ERROR_EXECUTION_SEARCH_PARAM_INVALID);
+  }
+}
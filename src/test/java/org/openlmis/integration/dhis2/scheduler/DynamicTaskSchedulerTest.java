@@ -0,0 +1,115 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.scheduler;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.concurrent.ScheduledFuture;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.repository.IntegrationRepository;
+import org.openlmis.integration.dhis2.service.PayloadService;
+import org.openlmis.integration.dhis2.service.referencedata.PeriodReferenceDataService;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class DynamicTaskSchedulerTest {
+
+  private static final long FIXED_DELAY = 60000;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private PayloadService payloadService;
+
+  @Mock
+  private IntegrationRepository integrationRepository;
+
+  @Mock
+  private SchedulerLeaderElection leaderElection;
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private TaskScheduler taskScheduler;
+
+  @Mock
+  private ScheduledFuture<?> cronTask;
+
+  @InjectMocks
+  private DynamicTaskScheduler dynamicTaskScheduler;
+
+  private Runnable fixedDelayJob = mock(Runnable.class);
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(dynamicTaskScheduler, "enableAutoSend", true);
+    ReflectionTestUtils.setField(dynamicTaskScheduler, "poolSize", 1);
+    dynamicTaskScheduler.setClock(Clock.systemUTC());
+
+    // there are no integrations when the application starts
+    given(integrationRepository.findAll())
+        .willReturn(Collections.emptyList())
+        .willReturn(Collections.singletonList(new IntegrationDataBuilder().build()));
+
+    doReturn(cronTask).when(taskScheduler).schedule(any(Runnable.class), any(Trigger.class));
+
+    // the same steps are done by spring for @Scheduled methods
+    ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+    registrar.addFixedDelayTask(fixedDelayJob, FIXED_DELAY);
+    dynamicTaskScheduler.configureTasks(registrar);
+    registrar.setTaskScheduler(taskScheduler);
+    registrar.afterPropertiesSet();
+  }
+
+  @Test
+  public void shouldScheduleFixedDelayTasksOnlyOnce() {
+    // when
+    dynamicTaskScheduler.refresh();
+    dynamicTaskScheduler.refresh();
+
+    // then
+    verify(taskScheduler, times(1)).scheduleWithFixedDelay(fixedDelayJob, FIXED_DELAY);
+  }
+
+  @Test
+  public void shouldReplaceCronTasks() {
+    // when
+    dynamicTaskScheduler.refresh();
+    dynamicTaskScheduler.refresh();
+
+    // then
+    verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Trigger.class));
+    verify(cronTask).cancel(false);
+  }
+
+}
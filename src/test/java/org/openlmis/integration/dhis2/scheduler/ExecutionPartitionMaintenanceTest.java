@@ -0,0 +1,139 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.scheduler;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.repository.ExecutionPartitionRepository;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ExecutionPartitionMaintenanceTest {
+
+  // still October in UTC, already November in the clock zone
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-31T23:30:00Z"),
+      ZoneId.of("Africa/Maseru"));
+  private static final YearMonth CURRENT_MONTH = YearMonth.of(2026, 10);
+  private static final String ARCHIVE_SCHEMA = "dhis2integration_archive";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private ExecutionPartitionRepository executionPartitionRepository;
+
+  @Mock
+  private SchedulerLeaderElection schedulerLeaderElection;
+
+  @InjectMocks
+  private ExecutionPartitionMaintenance maintenance;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(maintenance, "clock", CLOCK);
+    ReflectionTestUtils.setField(maintenance, "retentionMonths", 0);
+    ReflectionTestUtils.setField(maintenance, "archiveSchema", "");
+
+    given(schedulerLeaderElection.isLeader()).willReturn(true);
+  }
+
+  @Test
+  public void shouldCreatePartitionsForCurrentAndNextMonth() {
+    maintenance.maintainPartitions();
+
+    verify(executionPartitionRepository).createPartitions(CURRENT_MONTH);
+    verify(executionPartitionRepository).createPartitions(CURRENT_MONTH.plusMonths(1));
+  }
+
+  @Test
+  public void shouldKeepAllPartitionsIfRetentionIsDisabled() {
+    maintenance.maintainPartitions();
+
+    verify(executionPartitionRepository, never()).findPartitionsBefore(any(YearMonth.class));
+    verify(executionPartitionRepository, never()).removePartition(anyString(), anyString());
+  }
+
+  @Test
+  public void shouldDropExpiredPartitions() {
+    // given
+    ReflectionTestUtils.setField(maintenance, "retentionMonths", 12);
+    given(executionPartitionRepository.findPartitionsBefore(CURRENT_MONTH.minusMonths(12)))
+        .willReturn(Arrays.asList("execution_responses_p202509", "executions_p202509"));
+
+    // when
+    maintenance.maintainPartitions();
+
+    // then
+    verify(executionPartitionRepository).removePartition("execution_responses_p202509", "");
+    verify(executionPartitionRepository).removePartition("executions_p202509", "");
+  }
+
+  @Test
+  public void shouldArchiveExpiredPartitions() {
+    // given
+    ReflectionTestUtils.setField(maintenance, "retentionMonths", 1);
+    ReflectionTestUtils.setField(maintenance, "archiveSchema", ARCHIVE_SCHEMA);
+    given(executionPartitionRepository.findPartitionsBefore(CURRENT_MONTH.minusMonths(1)))
+        .willReturn(Arrays.asList("executions_p202608"));
+
+    // when
+    maintenance.maintainPartitions();
+
+    // then
+    verify(executionPartitionRepository).removePartition("executions_p202608", ARCHIVE_SCHEMA);
+  }
+
+  @Test
+  public void shouldNotMaintainPartitionsIfInstanceIsNotLeader() {
+    given(schedulerLeaderElection.isLeader()).willReturn(false);
+
+    maintenance.maintainPartitions();
+
+    verifyZeroInteractions(executionPartitionRepository);
+  }
+
+  @Test
+  public void shouldNotRemovePartitionsIfTheyCannotBeCreated() {
+    // given
+    ReflectionTestUtils.setField(maintenance, "retentionMonths", 12);
+    willThrow(new QueryTimeoutException("timeout"))
+        .given(executionPartitionRepository).createPartitions(CURRENT_MONTH);
+
+    // when
+    maintenance.maintainPartitions();
+
+    // then
+    verify(executionPartitionRepository, never()).findPartitionsBefore(any(YearMonth.class));
+  }
+}
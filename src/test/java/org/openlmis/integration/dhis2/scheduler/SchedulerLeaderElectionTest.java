@@ -0,0 +1,163 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.repository.SchedulerLeaseRepository;
+import org.openlmis.integration.dhis2.service.ExecutionQueue;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SchedulerLeaderElectionTest {
+
+  private static final Instant NOW = Instant.parse("2026-10-17T10:00:00Z");
+  private static final long LEASE_TIME = 60000;
+  private static final long SAFETY_MARGIN = 5000;
+  private static final String HOLDER = "worker-1";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private SchedulerLeaseRepository schedulerLeaseRepository;
+
+  @Mock
+  private ExecutionQueue executionQueue;
+
+  @InjectMocks
+  private SchedulerLeaderElection leaderElection;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(leaderElection, "enabled", true);
+    ReflectionTestUtils.setField(leaderElection, "leaseTime", LEASE_TIME);
+    ReflectionTestUtils.setField(leaderElection, "safetyMargin", SAFETY_MARGIN);
+    setNow(NOW);
+
+    given(executionQueue.getWorkerId()).willReturn(HOLDER);
+  }
+
+  @Test
+  public void shouldNotBeLeaderBeforeLeaseIsTaken() {
+    assertThat(leaderElection.isLeader()).isFalse();
+  }
+
+  @Test
+  public void shouldBeLeaderIfLeaseIsTaken() {
+    // given
+    given(schedulerLeaseRepository
+        .acquire(SchedulerLeaderElection.LEASE_NAME, HOLDER, LEASE_TIME)).willReturn(1);
+
+    // when
+    leaderElection.renewLease();
+
+    // then
+    assertThat(leaderElection.isLeader()).isTrue();
+  }
+
+  @Test
+  public void shouldNotBeLeaderIfLeaseIsHeldByAnotherInstance() {
+    // given
+    given(schedulerLeaseRepository
+        .acquire(SchedulerLeaderElection.LEASE_NAME, HOLDER, LEASE_TIME)).willReturn(0);
+
+    // when
+    leaderElection.renewLease();
+
+    // then
+    assertThat(leaderElection.isLeader()).isFalse();
+  }
+
+  @Test
+  public void shouldStopBeingLeaderIfLeaseCannotBeRenewed() {
+    // given
+    given(schedulerLeaseRepository
+        .acquire(SchedulerLeaderElection.LEASE_NAME, HOLDER, LEASE_TIME)).willReturn(1);
+    leaderElection.renewLease();
+
+    given(schedulerLeaseRepository
+        .acquire(SchedulerLeaderElection.LEASE_NAME, HOLDER, LEASE_TIME))
+        .willThrow(new QueryTimeoutException("timeout"));
+
+    // when
+    setNow(NOW.plusMillis(LEASE_TIME / 2));
+    leaderElection.renewLease();
+    boolean leaderBeforeExpiration = leaderElection.isLeader();
+
+    setNow(NOW.plusMillis(LEASE_TIME - SAFETY_MARGIN));
+    boolean leaderAfterExpiration = leaderElection.isLeader();
+
+    // then
+    assertThat(leaderBeforeExpiration).isTrue();
+    assertThat(leaderAfterExpiration).isFalse();
+  }
+
+  @Test
+  public void shouldAlwaysBeLeaderIfElectionIsDisabled() {
+    // given
+    ReflectionTestUtils.setField(leaderElection, "enabled", false);
+
+    // when
+    leaderElection.renewLease();
+
+    // then
+    assertThat(leaderElection.isLeader()).isTrue();
+    verifyZeroInteractions(schedulerLeaseRepository);
+  }
+
+  @Test
+  public void shouldReleaseLease() {
+    // given
+    given(schedulerLeaseRepository
+        .acquire(SchedulerLeaderElection.LEASE_NAME, HOLDER, LEASE_TIME)).willReturn(1);
+    leaderElection.renewLease();
+
+    // when
+    leaderElection.releaseLease();
+
+    // then
+    assertThat(leaderElection.isLeader()).isFalse();
+    verify(schedulerLeaseRepository).release(SchedulerLeaderElection.LEASE_NAME, HOLDER);
+  }
+
+  @Test
+  public void shouldNotReleaseLeaseIfNotLeader() {
+    // when
+    leaderElection.releaseLease();
+
+    // then
+    verify(schedulerLeaseRepository, never()).release(anyString(), anyString());
+  }
+
+  private void setNow(Instant now) {
+    ReflectionTestUtils.setField(leaderElection, "clock", Clock.fixed(now, ZoneOffset.UTC));
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.Serializable;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.integration.dhis2.web.ResponseCacheDto;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.web.client.ResourceAccessException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingTokenServicesTest {
+
+  private static final String TOKEN = "token";
+  private static final String OTHER_TOKEN = "other-token";
+  private static final long NOW = TimeUnit.SECONDS.toMillis(1_500_000_000L);
+  private static final long MAX_SIZE = 10;
+  private static final long MAX_TTL = 60_000;
+  private static final long REJECTED_TTL = 5_000;
+
+  @Mock
+  private ResourceServerTokenServices delegate;
+
+  @Mock
+  private Clock clock;
+
+  private CachingTokenServices tokenServices;
+
+  @Before
+  public void setUp() {
+    given(clock.millis()).willReturn(NOW);
+    tokenServices = new CachingTokenServices(delegate, clock, MAX_SIZE, MAX_TTL, REJECTED_TTL);
+  }
+
+  @Test
+  public void shouldCheckTokenOnlyOnce() {
+    OAuth2Authentication authentication = authentication(null);
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication);
+
+    tokenServices.loadAuthentication(TOKEN);
+    OAuth2Authentication result = tokenServices.loadAuthentication(TOKEN);
+
+    assertThat(result.getPrincipal()).isEqualTo(authentication.getPrincipal());
+    assertThat(result.getOAuth2Request()).isEqualTo(authentication.getOAuth2Request());
+    verify(delegate).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldReturnNewAuthenticationForEachRequest() {
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(null));
+
+    OAuth2Authentication first = tokenServices.loadAuthentication(TOKEN);
+    first.setDetails("details");
+
+    OAuth2Authentication second = tokenServices.loadAuthentication(TOKEN);
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getDetails()).isNull();
+  }
+
+  @Test
+  public void shouldCheckTokensSeparately() {
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(null));
+    given(delegate.loadAuthentication(OTHER_TOKEN)).willReturn(authentication(null));
+
+    tokenServices.loadAuthentication(TOKEN);
+    tokenServices.loadAuthentication(OTHER_TOKEN);
+
+    verify(delegate).loadAuthentication(TOKEN);
+    verify(delegate).loadAuthentication(OTHER_TOKEN);
+  }
+
+  @Test
+  public void shouldCheckTokenAgainAfterItExpires() {
+    long expiration = TimeUnit.MILLISECONDS.toSeconds(NOW) + 10;
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(expiration));
+
+    tokenServices.loadAuthentication(TOKEN);
+    given(clock.millis()).willReturn(NOW + 9_999);
+    tokenServices.loadAuthentication(TOKEN);
+    given(clock.millis()).willReturn(NOW + 10_000);
+    tokenServices.loadAuthentication(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldCheckTokenAgainAfterMaxTtl() {
+    long expiration = TimeUnit.MILLISECONDS.toSeconds(NOW + 10 * MAX_TTL);
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(expiration));
+
+    tokenServices.loadAuthentication(TOKEN);
+    given(clock.millis()).willReturn(NOW + MAX_TTL);
+    tokenServices.loadAuthentication(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldKeepRejectedToken() {
+    given(delegate.loadAuthentication(TOKEN)).willThrow(new InvalidTokenException("invalid"));
+
+    loadRejected(TOKEN);
+    given(clock.millis()).willReturn(NOW + REJECTED_TTL - 1);
+    InvalidTokenException exception = loadRejected(TOKEN);
+
+    assertThat(exception.getMessage()).isEqualTo("invalid");
+    verify(delegate).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldCheckRejectedTokenAgainAfterRejectedTtl() {
+    given(delegate.loadAuthentication(TOKEN)).willThrow(new InvalidTokenException("invalid"));
+
+    loadRejected(TOKEN);
+    given(clock.millis()).willReturn(NOW + REJECTED_TTL);
+    loadRejected(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldNotKeepRejectedTokenIfRejectedTtlIsNotPositive() {
+    tokenServices = new CachingTokenServices(delegate, clock, MAX_SIZE, MAX_TTL, 0);
+    given(delegate.loadAuthentication(TOKEN)).willThrow(new InvalidTokenException("invalid"));
+
+    loadRejected(TOKEN);
+    loadRejected(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldNotKeepOtherErrors() {
+    given(delegate.loadAuthentication(TOKEN))
+        .willThrow(new ResourceAccessException("auth is not available"))
+        .willReturn(authentication(null));
+
+    try {
+      tokenServices.loadAuthentication(TOKEN);
+    } catch (ResourceAccessException exp) {
+      assertThat(exp.getMessage()).isEqualTo("auth is not available");
+    }
+
+    assertThat(tokenServices.loadAuthentication(TOKEN)).isNotNull();
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldNotKeepTokensIfCacheIsDisabled() {
+    tokenServices = new CachingTokenServices(delegate, clock, MAX_SIZE, 0, REJECTED_TTL);
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(null));
+
+    tokenServices.loadAuthentication(TOKEN);
+    tokenServices.loadAuthentication(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldCheckTokenAgainAfterEviction() {
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(null));
+
+    tokenServices.loadAuthentication(TOKEN);
+    tokenServices.evictAll();
+    tokenServices.loadAuthentication(TOKEN);
+
+    verify(delegate, times(2)).loadAuthentication(TOKEN);
+  }
+
+  @Test
+  public void shouldExportSettingsAndStatistics() {
+    given(delegate.loadAuthentication(TOKEN)).willReturn(authentication(null));
+
+    tokenServices.loadAuthentication(TOKEN);
+    tokenServices.loadAuthentication(TOKEN);
+
+    ResponseCacheDto dto = tokenServices.export(new ResponseCacheDto());
+
+    assertThat(dto.getName()).isEqualTo(CachingTokenServices.CACHE_NAME);
+    assertThat(dto.getMaxSize()).isEqualTo(MAX_SIZE);
+    assertThat(dto.getExpireAfter()).isEqualTo(MAX_TTL);
+    assertThat(dto.getSize()).isEqualTo(1);
+    assertThat(dto.getHitCount()).isEqualTo(1);
+    assertThat(dto.getMissCount()).isEqualTo(1);
+  }
+
+  private InvalidTokenException loadRejected(String token) {
+    try {
+      tokenServices.loadAuthentication(token);
+    } catch (InvalidTokenException exp) {
+      return exp;
+    }
+
+    throw new AssertionError("Token should be rejected");
+  }
+
+  private OAuth2Authentication authentication(Long expiration) {
+    Map<String, Serializable> extensions = null == expiration
+        ? Collections.emptyMap()
+        : ImmutableMap.of(AccessTokenConverter.EXP, expiration);
+
+    OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "user-client",
+        Collections.emptyList(), true, Collections.emptySet(), Collections.emptySet(), null,
+        Collections.emptySet(), extensions);
+
+    return new OAuth2Authentication(request,
+        new UsernamePasswordAuthenticationToken(UUID.randomUUID(), "N/A"));
+  }
+
+}
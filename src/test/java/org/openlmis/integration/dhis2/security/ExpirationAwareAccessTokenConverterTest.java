@@ -0,0 +1,64 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openlmis.integration.dhis2.security.CustomUserAuthenticationConverter.REFERENCE_DATA_USER_ID;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+
+public class ExpirationAwareAccessTokenConverterTest {
+
+  private static final String CLIENT_ID = "user-client";
+
+  private ExpirationAwareAccessTokenConverter converter = new ExpirationAwareAccessTokenConverter();
+  private UUID userId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    converter.setUserTokenConverter(new CustomUserAuthenticationConverter());
+  }
+
+  @Test
+  public void shouldKeepExpirationInRequestExtensions() {
+    OAuth2Authentication authentication = converter.extractAuthentication(ImmutableMap.of(
+        AccessTokenConverter.CLIENT_ID, CLIENT_ID,
+        REFERENCE_DATA_USER_ID, userId.toString(),
+        AccessTokenConverter.EXP, 1_500_000_000));
+
+    assertThat(authentication.getOAuth2Request().getExtensions())
+        .containsEntry(AccessTokenConverter.EXP, 1_500_000_000L);
+    assertThat(authentication.getOAuth2Request().getClientId()).isEqualTo(CLIENT_ID);
+    assertThat(authentication.getPrincipal()).isEqualTo(userId);
+  }
+
+  @Test
+  public void shouldNotSetExpirationIfTokenHasNone() {
+    OAuth2Authentication authentication = converter.extractAuthentication(ImmutableMap.of(
+        AccessTokenConverter.CLIENT_ID, CLIENT_ID,
+        REFERENCE_DATA_USER_ID, userId.toString()));
+
+    assertThat(authentication.getOAuth2Request().getExtensions())
+        .doesNotContainKey(AccessTokenConverter.EXP);
+    assertThat(authentication.getPrincipal()).isEqualTo(userId);
+  }
+
+}
@@ -15,13 +15,16 @@
 
 package org.openlmis.integration.dhis2.service;
 
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
@@ -29,9 +32,12 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.ImmutableList;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -56,6 +62,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
@@ -152,6 +159,100 @@ public abstract class BaseCommunicationServiceTest<T> {
     service.findOne(id);
   }
 
+  @Test
+  public void shouldServeFoundEntityFromCache() {
+    // given
+    UUID id = UUID.randomUUID();
+    service.setResponseCache(createResponseCache());
+
+    // when
+    T instance = mockResponseEntityAndGetDto();
+    T found = service.findOne(id);
+    T cached = service.findOne(id);
+
+    // then
+    assertThat(found, is(instance));
+    assertThat(cached, is(instance));
+
+    verify(restTemplate, times(1)).exchange(any(URI.class), any(HttpMethod.class),
+        any(HttpEntity.class), eq(getService().getResultClass()));
+  }
+
+  @Test
+  public void shouldReturnCopyOfCachedEntity() {
+    // given
+    UUID id = UUID.randomUUID();
+    service.setResponseCache(createResponseCache());
+
+    // when
+    mockResponseEntityAndGetDto();
+    T found = service.findOne(id);
+    T cached = service.findOne(id);
+
+    // then
+    assertThat(cached, is(found));
+    assertThat(cached, is(not(sameInstance(found))));
+  }
+
+  @Test
+  public void shouldNotCacheEntityThatCannotBeFound() {
+    // given
+    UUID id = UUID.randomUUID();
+    service.setResponseCache(createResponseCache());
+
+    // when
+    mockRequestFail(HttpStatus.NOT_FOUND);
+
+    service.findOne(id);
+    T found = service.findOne(id);
+
+    // then
+    assertThat(found, is(nullValue()));
+
+    verify(restTemplate, times(2)).exchange(any(URI.class), any(HttpMethod.class),
+        any(HttpEntity.class), eq(getService().getResultClass()));
+  }
+
+  @Test
+  public void shouldRetryWithNewTokenIfTokenHasBeenRejected() {
+    // given
+    UUID id = UUID.randomUUID();
+    ResponseEntity<T> response = mock(ResponseEntity.class);
+    T instance = generateInstance();
+    doReturn(instance).when(response).getBody();
+
+    when(restTemplate.exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class),
+        eq(getService().getResultClass())))
+        .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))
+        .thenReturn(response);
+
+    // when
+    T found = service.findOne(id);
+
+    // then
+    assertThat(found, is(instance));
+
+    verify(authService).clearTokenCache(TOKEN);
+    verify(restTemplate, times(2)).exchange(any(URI.class), any(HttpMethod.class),
+        any(HttpEntity.class), eq(getService().getResultClass()));
+  }
+
+  @Test
+  public void shouldRetryRejectedTokenOnlyOnce() {
+    // given
+    UUID id = UUID.randomUUID();
+
+    // when
+    mockRequestFail(HttpStatus.UNAUTHORIZED);
+
+    Throwable thrown = catchThrowable(() -> service.findOne(id));
+
+    // then
+    assertThat(thrown, is(instanceOf(DataRetrievalException.class)));
+    verify(restTemplate, times(2)).exchange(any(URI.class), any(HttpMethod.class),
+        any(HttpEntity.class), eq(getService().getResultClass()));
+  }
+
   protected abstract T generateInstance();
 
   protected abstract BaseCommunicationService<T> getService();
@@ -160,12 +261,22 @@ public abstract class BaseCommunicationServiceTest<T> {
     BaseCommunicationService<T> service = getService();
     service.setRestTemplate(restTemplate);
     service.setAuthService(authService);
+    service.setObjectMapper(new ObjectMapper().registerModule(new JavaTimeModule()));
 
     ReflectionTestUtils.setField(service, "maxUrlLength", 2000);
 
     return service;
   }
 
+  protected ResponseCache createResponseCache() {
+    ResponseCache responseCache = new ResponseCache();
+    ReflectionTestUtils.setField(responseCache, "environment", new MockEnvironment());
+    ReflectionTestUtils.setField(responseCache, "defaultMaxSize", 10L);
+    ReflectionTestUtils.setField(responseCache, "defaultExpireAfter", 60000L);
+
+    return responseCache;
+  }
+
   private void mockAuth() {
     when(authService.obtainAccessToken()).thenReturn(TOKEN);
   }
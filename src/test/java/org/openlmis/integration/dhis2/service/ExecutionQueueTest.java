@@ -0,0 +1,234 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.openlmis.integration.dhis2.domain.Integration;
+import org.openlmis.integration.dhis2.repository.ExecutionQueueRepository;
+import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ExecutionQueueTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+  private static final ZonedDateTime NOW = ZonedDateTime.now(CLOCK);
+  private static final long LEASE_TIME = 60000;
+  private static final long RETRY_DELAY = 300000;
+  private static final String WORKER_ID = "worker-1";
+
+  private static final Integration INTEGRATION = new IntegrationDataBuilder().build();
+  private static final String LANE = INTEGRATION.getConfiguration().getId().toString();
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private ExecutionQueueRepository executionQueueRepository;
+
+  @InjectMocks
+  private ExecutionQueue executionQueue;
+
+  private ExecutionQueueItem item = ExecutionQueueItem
+      .forAutomaticExecution(INTEGRATION, UUID.randomUUID(), UUID.randomUUID(), CLOCK);
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(executionQueue, "clock", CLOCK);
+    ReflectionTestUtils.setField(executionQueue, "leaseTime", LEASE_TIME);
+    ReflectionTestUtils.setField(executionQueue, "retryDelay", RETRY_DELAY);
+    ReflectionTestUtils.setField(executionQueue, "workerId", WORKER_ID);
+
+    given(executionQueueRepository.save(any(ExecutionQueueItem.class)))
+        .willAnswer(invocation -> invocation.getArguments()[0]);
+  }
+
+  @Test
+  public void shouldEnqueueRequest() {
+    // given
+    ProcessingPeriodDto period = new ProcessingPeriodDto();
+    period.setId(UUID.randomUUID());
+
+    UUID facilityId = UUID.randomUUID();
+    UUID userId = UUID.randomUUID();
+    PayloadRequest request = PayloadRequest
+        .forManualExecution(INTEGRATION, facilityId, period, "description", userId);
+
+    // when
+    ExecutionQueueItem queued = executionQueue.enqueue(request);
+
+    // then
+    verify(executionQueueRepository).save(queued);
+
+    assertThat(queued.getIntegration()).isEqualTo(INTEGRATION);
+    assertThat(queued.getFacilityId()).isEqualTo(facilityId);
+    assertThat(queued.getProcessingPeriodId()).isEqualTo(period.getId());
+    assertThat(queued.getDescription()).isEqualTo("description");
+    assertThat(queued.isManualExecution()).isTrue();
+    assertThat(queued.getUserId()).isEqualTo(userId);
+    assertThat(queued.getQueuedDate()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void shouldLockClaimedItem() {
+    // given
+    given(executionQueueRepository.findNextAvailableLane(NOW, 2)).willReturn(LANE);
+    given(executionQueueRepository.findNextAvailableForUpdate(NOW, 2, LANE)).willReturn(item);
+
+    // when
+    Optional<ExecutionQueueItem> claimed = executionQueue.claimNext(2);
+
+    // then
+    InOrder order = inOrder(executionQueueRepository);
+    order.verify(executionQueueRepository).lockLane(LANE);
+    order.verify(executionQueueRepository).findNextAvailableForUpdate(NOW, 2, LANE);
+
+    assertThat(claimed.get()).isEqualTo(item);
+    assertThat(item.getLockedUntil()).isEqualTo(NOW.plusMinutes(1));
+    assertThat(item.getLockedBy()).isEqualTo(WORKER_ID);
+  }
+
+  @Test
+  public void shouldReturnEmptyValueIfThereIsNoAvailableItem() {
+    // when
+    Optional<ExecutionQueueItem> claimed = executionQueue.claimNext(2);
+
+    // then
+    assertThat(claimed.isPresent()).isFalse();
+    verify(executionQueueRepository, never()).lockLane(anyString());
+  }
+
+  @Test
+  public void shouldReturnEmptyValueIfLaneIsFullAfterItIsLocked() {
+    // given
+    given(executionQueueRepository.findNextAvailableLane(NOW, 2)).willReturn(LANE);
+
+    // when
+    Optional<ExecutionQueueItem> claimed = executionQueue.claimNext(2);
+
+    // then
+    assertThat(claimed.isPresent()).isFalse();
+    verify(executionQueueRepository).lockLane(LANE);
+  }
+
+  @Test
+  public void shouldRemoveItem() {
+    // given
+    item.setId(UUID.randomUUID());
+
+    // when
+    executionQueue.remove(item);
+
+    // then
+    verify(executionQueueRepository).removeByIdAndLockedBy(item.getId(), WORKER_ID);
+  }
+
+  @Test
+  public void shouldReleaseItemUntilRetryDelayPasses() {
+    // given
+    item.setId(UUID.randomUUID());
+
+    // when
+    executionQueue.release(item);
+
+    // then
+    verify(executionQueueRepository)
+        .releaseByIdAndLockedBy(item.getId(), WORKER_ID, NOW.plusMinutes(5));
+  }
+
+  @Test
+  public void shouldRenewLeaseOfItemsLockedByThisWorker() {
+    // given
+    Set<UUID> ids = Sets.newHashSet(UUID.randomUUID(), UUID.randomUUID());
+    given(executionQueueRepository.renewLocks(ids, WORKER_ID, NOW.plusMinutes(1))).willReturn(2);
+
+    // when
+    int renewed = executionQueue.renew(ids);
+
+    // then
+    assertThat(renewed).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotRenewLeaseIfThereAreNoItems() {
+    // when
+    int renewed = executionQueue.renew(Collections.emptySet());
+
+    // then
+    assertThat(renewed).isEqualTo(0);
+    verifyZeroInteractions(executionQueueRepository);
+  }
+
+  @Test
+  public void shouldGenerateWorkerIdIfItIsNotSet() {
+    // given
+    ReflectionTestUtils.setField(executionQueue, "workerId", "");
+
+    // when
+    executionQueue.afterPropertiesSet();
+
+    // then
+    assertThat(executionQueue.getWorkerId()).isNotBlank();
+  }
+
+  @Test
+  public void shouldKeepConfiguredWorkerId() {
+    // when
+    executionQueue.afterPropertiesSet();
+
+    // then
+    assertThat(executionQueue.getWorkerId()).isEqualTo(WORKER_ID);
+  }
+
+  @Test
+  public void shouldReturnWaitingItems() {
+    // given
+    given(executionQueueRepository.findAvailable(NOW)).willReturn(Lists.newArrayList(item));
+
+    // when
+    List<ExecutionQueueItem> waiting = executionQueue.getWaitingItems();
+
+    // then
+    assertThat(waiting).containsExactly(item);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+public class HttpClientConfigurationTest {
+
+  private HttpClientConfiguration configuration = new HttpClientConfiguration();
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(configuration, "connectTimeout", 1000);
+    ReflectionTestUtils.setField(configuration, "readTimeout", 2000);
+    ReflectionTestUtils.setField(configuration, "connectionRequestTimeout", 3000);
+    ReflectionTestUtils.setField(configuration, "poolMaxTotal", 10);
+    ReflectionTestUtils.setField(configuration, "poolMaxPerRoute", 5);
+    ReflectionTestUtils.setField(configuration, "idleTimeout", 3000L);
+
+    connectionManager = configuration.httpConnectionManager();
+    httpClient = configuration.httpClient(connectionManager);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    httpClient.close();
+  }
+
+  @Test
+  public void shouldLimitConnectionPool() {
+    assertThat(connectionManager.getMaxTotal()).isEqualTo(10);
+    assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(5);
+  }
+
+  @Test
+  public void shouldApplyTimeoutsToSharedClient() {
+    // when
+    RequestConfig config = ((Configurable) httpClient).getConfig();
+
+    // then
+    assertThat(config.getConnectTimeout()).isEqualTo(1000);
+    assertThat(config.getSocketTimeout()).isEqualTo(2000);
+    assertThat(config.getConnectionRequestTimeout()).isEqualTo(3000);
+  }
+
+  @Test
+  public void shouldCreateRestTemplateBasedOnSharedClient() {
+    // given
+    ClientHttpRequestFactory requestFactory = configuration.httpRequestFactory(httpClient);
+
+    // when
+    RestTemplate restTemplate = configuration.restTemplate(requestFactory);
+
+    // then
+    assertThat(restTemplate.getRequestFactory()).isSameAs(requestFactory);
+    assertThat(((HttpComponentsClientHttpRequestFactory) requestFactory).getHttpClient())
+        .isSameAs(httpClient);
+    assertThat(ReflectionTestUtils.getField(requestFactory, "bufferRequestBody"))
+        .isEqualTo(true);
+  }
+
+  @Test
+  public void shouldCreateStreamingRestTemplateBasedOnSharedClient() {
+    // when
+    RestTemplate restTemplate = configuration.streamingRestTemplate(httpClient);
+
+    // then
+    ClientHttpRequestFactory requestFactory = restTemplate.getRequestFactory();
+    assertThat(requestFactory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+    assertThat(((HttpComponentsClientHttpRequestFactory) requestFactory).getHttpClient())
+        .isSameAs(httpClient);
+    assertThat(ReflectionTestUtils.getField(requestFactory, "bufferRequestBody"))
+        .isEqualTo(false);
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.google.common.collect.Sets;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.assertj.core.util.Lists;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Location;
+import org.hl7.fhir.r4.model.Meta;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.domain.LocationFacilityMapping;
+import org.openlmis.integration.dhis2.domain.SynchronizationState;
+import org.openlmis.integration.dhis2.repository.LocationFacilityMappingRepository;
+import org.openlmis.integration.dhis2.repository.SynchronizationStateRepository;
+import org.openlmis.integration.dhis2.scheduler.SchedulerLeaderElection;
+import org.openlmis.integration.dhis2.service.fhir.LocationFhirService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class LocationFacilityMappingServiceTest {
+
+  private static final String SERVICE_URL = "http://localhost";
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private LocationFacilityMappingRepository locationFacilityMappingRepository;
+
+  @Mock
+  private SynchronizationStateRepository synchronizationStateRepository;
+
+  @Mock
+  private LocationFhirService locationFhirService;
+
+  @Mock
+  private SchedulerLeaderElection schedulerLeaderElection;
+
+  @InjectMocks
+  private LocationFacilityMappingService service;
+
+  @Captor
+  private ArgumentCaptor<List<LocationFacilityMapping>> mappingsCaptor;
+
+  @Captor
+  private ArgumentCaptor<SynchronizationState> stateCaptor;
+
+  private UUID facilityId = UUID.randomUUID();
+  private Location location = createLocation(facilityId);
+  private String locationId = location.getIdElement().getIdPart();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(service, "serviceUrl", SERVICE_URL);
+    ReflectionTestUtils.setField(service, "syncEnabled", true);
+    given(schedulerLeaderElection.isLeader()).willReturn(true);
+  }
+
+  @Test
+  public void shouldReturnStoredFacilityIds() {
+    // given
+    given(locationFacilityMappingRepository.findByLocationIdIn(Sets.newHashSet(locationId)))
+        .willReturn(Lists.newArrayList(new LocationFacilityMapping(locationId, facilityId, null)));
+
+    // when
+    Map<String, UUID> facilityIds = service.getFacilityIds(Sets.newHashSet(locationId));
+
+    // then
+    assertThat(facilityIds).containsEntry(locationId, facilityId);
+    verifyZeroInteractions(locationFhirService);
+  }
+
+  @Test
+  public void shouldResolveMissingFacilityIdsFromFhirServer() {
+    // given
+    given(locationFhirService.getLocations(Sets.newHashSet(locationId)))
+        .willReturn(Lists.newArrayList(location));
+
+    // when
+    Map<String, UUID> facilityIds = service.getFacilityIds(Sets.newHashSet(locationId));
+
+    // then
+    assertThat(facilityIds).containsEntry(locationId, facilityId);
+
+    verify(locationFacilityMappingRepository).save(mappingsCaptor.capture());
+    assertThat(mappingsCaptor.getValue())
+        .containsExactly(new LocationFacilityMapping(locationId, facilityId, null));
+  }
+
+  @Test
+  public void shouldReturnStoredLocationId() {
+    // given
+    given(locationFacilityMappingRepository.findFirstByFacilityId(facilityId))
+        .willReturn(new LocationFacilityMapping(locationId, facilityId, null));
+
+    // when
+    String found = service.getLocationId(facilityId);
+
+    // then
+    assertThat(found).isEqualTo(locationId);
+    verifyZeroInteractions(locationFhirService);
+  }
+
+  @Test
+  public void shouldResolveMissingLocationIdFromFhirServer() {
+    // given
+    given(locationFhirService.findByIdentifier(SERVICE_URL, facilityId.toString()))
+        .willReturn(location);
+
+    // when
+    String found = service.getLocationId(facilityId);
+
+    // then
+    assertThat(found).isEqualTo(locationId);
+    verify(locationFacilityMappingRepository).save(anyListOf(LocationFacilityMapping.class));
+  }
+
+  @Test
+  public void shouldReturnNullIfThereIsNoLocationForFacility() {
+    // when
+    String found = service.getLocationId(facilityId);
+
+    // then
+    assertThat(found).isNull();
+    verify(locationFacilityMappingRepository, never())
+        .save(anyListOf(LocationFacilityMapping.class));
+  }
+
+  @Test
+  public void shouldSynchronizeLocationsUpdatedSinceLastSynchronization() {
+    // given
+    ZonedDateTime lastUpdated = ZonedDateTime.now().minusDays(1);
+    given(synchronizationStateRepository
+        .findOne(LocationFacilityMappingService.SYNCHRONIZATION_NAME))
+        .willReturn(new SynchronizationState(
+            LocationFacilityMappingService.SYNCHRONIZATION_NAME, lastUpdated));
+
+    location.setMeta(new Meta().setLastUpdated(new Date()));
+    Location removed = createLocation(null);
+    mockLocations(lastUpdated, location, removed);
+
+    // when
+    service.synchronize();
+
+    // then
+    verify(locationFacilityMappingRepository).save(mappingsCaptor.capture());
+    assertThat(mappingsCaptor.getValue()).hasSize(1);
+    assertThat(mappingsCaptor.getValue().get(0))
+        .hasFieldOrPropertyWithValue("locationId", locationId)
+        .hasFieldOrPropertyWithValue("facilityId", facilityId);
+    assertThat(mappingsCaptor.getValue().get(0).getLastUpdated()).isNotNull();
+
+    verify(locationFacilityMappingRepository)
+        .deleteByLocationIdIn(Sets.newHashSet(removed.getIdElement().getIdPart()));
+  }
+
+  @Test
+  public void shouldStoreLastUpdatedDateOfSynchronizedLocations() {
+    // given
+    Date newest = new Date();
+
+    location.setMeta(new Meta().setLastUpdated(Date.from(newest.toInstant().minusSeconds(60))));
+    Location removed = createLocation(null);
+    removed.setMeta(new Meta().setLastUpdated(newest));
+    mockLocations(null, location, removed);
+
+    // when
+    service.synchronize();
+
+    // then
+    verify(synchronizationStateRepository).save(stateCaptor.capture());
+    assertThat(stateCaptor.getValue().getName())
+        .isEqualTo(LocationFacilityMappingService.SYNCHRONIZATION_NAME);
+    assertThat(stateCaptor.getValue().getLastUpdated().toInstant())
+        .isEqualTo(newest.toInstant());
+  }
+
+  @Test
+  public void shouldNotUseMappingsResolvedOnDemandAsSynchronizationPoint() {
+    // given
+    location.setMeta(new Meta().setLastUpdated(new Date()));
+    given(locationFhirService.findByIdentifier(SERVICE_URL, facilityId.toString()))
+        .willReturn(location);
+    service.getLocationId(facilityId);
+
+    // when
+    service.synchronize();
+
+    // then
+    verify(locationFhirService).forEachLocation(isNull(ZonedDateTime.class), any(Consumer.class));
+    verify(synchronizationStateRepository, never()).save(any(SynchronizationState.class));
+  }
+
+  @Test
+  public void shouldNotSynchronizeIfDisabled() {
+    // given
+    ReflectionTestUtils.setField(service, "syncEnabled", false);
+
+    // when
+    service.synchronize();
+
+    // then
+    verifyZeroInteractions(locationFhirService, locationFacilityMappingRepository,
+        synchronizationStateRepository);
+  }
+
+  @Test
+  public void shouldNotSynchronizeIfInstanceIsNotLeader() {
+    // given
+    given(schedulerLeaderElection.isLeader()).willReturn(false);
+
+    // when
+    service.synchronize();
+
+    // then
+    verifyZeroInteractions(locationFhirService, locationFacilityMappingRepository,
+        synchronizationStateRepository);
+  }
+
+  private void mockLocations(ZonedDateTime lastUpdated, Location... locations) {
+    willAnswer(invocation -> {
+      Consumer<List<Location>> action = (Consumer<List<Location>>) invocation.getArguments()[1];
+      action.accept(Lists.newArrayList(locations));
+      return null;
+    }).given(locationFhirService).forEachLocation(eq(lastUpdated), any(Consumer.class));
+  }
+
+  private Location createLocation(UUID facilityId) {
+    Location location = new Location();
+    location.setId(new IdType(Location.class.getSimpleName(), UUID.randomUUID().toString()));
+    if (null != facilityId) {
+      location.addIdentifier(new Identifier()
+          .setSystem(SERVICE_URL)
+          .setValue(facilityId.toString()));
+    }
+
+    return location;
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+
+public class PayloadBodyTest {
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void shouldWriteValueAsJson() throws IOException {
+    // given
+    List<String> value = new ArrayList<>();
+    value.add("first");
+    value.add("second");
+
+    // when
+    PayloadBody body = PayloadBody.write(objectMapper, value);
+
+    // then
+    assertThat(body.asString()).isEqualTo(objectMapper.writeValueAsString(value));
+  }
+
+  @Test
+  public void shouldCopyUncompressedBodyToStream() throws IOException {
+    // given
+    List<String> value = createLargeValue();
+    PayloadBody body = PayloadBody.write(objectMapper, value);
+
+    // when
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    body.writeTo(output);
+
+    // then
+    assertThat(output.toString(StandardCharsets.UTF_8.name()))
+        .isEqualTo(objectMapper.writeValueAsString(value));
+  }
+
+  @Test
+  public void shouldKeepBodyCompressed() throws IOException {
+    // given
+    List<String> value = createLargeValue();
+
+    // when
+    PayloadBody body = PayloadBody.write(objectMapper, value);
+
+    // then
+    assertThat(body.getCompressedSize())
+        .isLessThan(objectMapper.writeValueAsBytes(value).length);
+  }
+
+  @Test
+  public void shouldSplitBodyIntoChunks() throws IOException {
+    // given
+    List<String> value = new ArrayList<>();
+
+    for (int i = 0; i < 10000; ++i) {
+      value.add(UUID.randomUUID().toString());
+    }
+
+    // when
+    PayloadBody body = PayloadBody.write(objectMapper, value);
+
+    // then
+    assertThat(body.getCompressedSize()).isGreaterThan(PayloadBody.CHUNK_SIZE);
+    assertThat(body.asString()).isEqualTo(objectMapper.writeValueAsString(value));
+  }
+
+  @Test
+  public void shouldReturnBodyAsSingleCompressedArray() throws IOException {
+    // given
+    List<String> value = new ArrayList<>();
+
+    for (int i = 0; i < 10000; ++i) {
+      value.add(UUID.randomUUID().toString());
+    }
+
+    PayloadBody body = PayloadBody.write(objectMapper, value);
+
+    // when
+    byte[] compressed = body.toCompressedBytes();
+
+    // then
+    assertThat(compressed.length).isEqualTo((int) body.getCompressedSize());
+    assertThat(GzipUtils.decompress(compressed))
+        .isEqualTo(objectMapper.writeValueAsString(value));
+  }
+
+  private List<String> createLargeValue() {
+    List<String> value = new ArrayList<>();
+
+    for (int i = 0; i < 10000; ++i) {
+      value.add("facility-" + i);
+    }
+
+    return value;
+  }
+}
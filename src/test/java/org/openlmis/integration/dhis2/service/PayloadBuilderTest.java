@@ -20,7 +20,10 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.time.LocalDate;
 import java.util.List;
@@ -52,12 +55,10 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.integration.dhis2.Dhis2Configuration;
 import org.openlmis.integration.dhis2.ObjectGenerator;
-import org.openlmis.integration.dhis2.service.fhir.LocationFhirService;
 import org.openlmis.integration.dhis2.service.fhir.MeasureFhirService;
 import org.openlmis.integration.dhis2.service.fhir.MeasureReportFhirService;
 import org.openlmis.integration.dhis2.service.referencedata.FacilityDto;
 import org.openlmis.integration.dhis2.service.referencedata.FacilityReferenceDataService;
-import org.springframework.test.util.ReflectionTestUtils;
 
 @SuppressWarnings("PMD.TooManyMethods")
 public class PayloadBuilderTest {
@@ -103,7 +104,7 @@ public class PayloadBuilderTest {
   private MeasureReportFhirService measureReportFhirService;
 
   @Mock
-  private LocationFhirService locationFhirService;
+  private LocationFacilityMappingService locationFacilityMappingService;
 
   @Mock
   private FacilityReferenceDataService facilityReferenceDataService;
@@ -117,8 +118,6 @@ public class PayloadBuilderTest {
   public void setUp() {
     prepareFhirResources();
 
-    ReflectionTestUtils.setField(builder, "serviceUrl", SERVICE_URL);
-
     given(dhis2Configuration.getMeasureCodes()).willReturn(MEASURE_CODES);
 
     given(dhis2Configuration.getMeasureMapping(MEASURE_CODE_1)).willReturn(MEASURE_SUFFIX_1);
@@ -250,6 +249,64 @@ public class PayloadBuilderTest {
     ));
   }
 
+  @Test
+  public void shouldResolveAllReportersWithSingleCall() {
+    // when
+    builder.build(START_DATE, END_DATE, null, null);
+
+    // then
+    verify(locationFacilityMappingService).getFacilityIds(anyCollectionOf(String.class));
+  }
+
+  @Test
+  public void shouldBuildEmptyPayloadIfFacilityHasNoLocation() {
+    // given
+    UUID facilityId = UUID.randomUUID();
+
+    // when
+    Payload payload = builder.build(START_DATE, END_DATE, null, facilityId);
+
+    // then
+    assertThat(payload.getFacilities()).isEmpty();
+    verify(measureReportFhirService, never())
+        .getMeasureReports(anySetOf(Measure.class), eq(START_DATE), eq(END_DATE), eq(null));
+  }
+
+  @Test
+  public void shouldSkipReportsWithoutReporterReference() {
+    // given
+    FacilityDto facility = facilities.get(0);
+    String locationId = locationFacilityMappingService.getLocationId(facility.getId());
+    Measure measure = measureFhirService.getMeasures(MEASURE_CODES).iterator().next();
+
+    Location location = new Location();
+    location.setId(new IdType(Location.class.getSimpleName(), locationId));
+
+    MeasureReport valid = createMeasureReport(measure, location, PROGRAM, PRODUCT_CODE,
+        PRODUCT_VALUE);
+
+    MeasureReport withoutReporter = createMeasureReport(measure, location, PROGRAM, PRODUCT_CODE,
+        PRODUCT_VALUE);
+    withoutReporter.setReporter(null);
+
+    MeasureReport withoutReference = createMeasureReport(measure, location, PROGRAM,
+        PRODUCT_CODE, PRODUCT_VALUE);
+    withoutReference.setReporter(new Reference());
+
+    given(measureReportFhirService
+        .getMeasureReports(anySetOf(Measure.class), eq(START_DATE), eq(END_DATE),
+            eq(locationId)))
+        .willReturn(Sets.newHashSet(valid, withoutReporter, withoutReference));
+
+    // when
+    Payload payload = builder.build(START_DATE, END_DATE, PROGRAM, facility.getId());
+
+    // then
+    assertThat(payload.getFacilities())
+        .extracting(PayloadFacility::getFacilityCode)
+        .containsExactly(facility.getCode());
+  }
+
   private void assertPayloadFacility(Set<PayloadFacilityValue> values,
       List<ProductDetails> productDetails) {
     assertThat(values).hasSize(productDetails.size());
@@ -281,6 +338,14 @@ public class PayloadBuilderTest {
     Location location2 = createLocation(facilities.get(1));
     Location location3 = createLocation(facilities.get(2));
 
+    Map<String, UUID> facilityIds = Maps.newHashMap();
+    facilityIds.put(location1.getIdElement().getIdPart(), facilities.get(0).getId());
+    facilityIds.put(location2.getIdElement().getIdPart(), facilities.get(1).getId());
+    facilityIds.put(location3.getIdElement().getIdPart(), facilities.get(2).getId());
+
+    given(locationFacilityMappingService.getFacilityIds(anyCollectionOf(String.class)))
+        .willReturn(facilityIds);
+
     MeasureReport report1 = createMeasureReport(measure1, location1, PROGRAM, PRODUCT_CODE,
         PRODUCT_VALUE);
     MeasureReport report2 = createMeasureReport(measure1, location1, ANOTHER_PROGRAM,
@@ -341,9 +406,8 @@ public class PayloadBuilderTest {
     location.setId(new IdType(Location.class.getSimpleName(), UUID.randomUUID().toString()));
     location.setIdentifier(identifiers);
 
-    given(locationFhirService.getLocation(location.getId())).willReturn(location);
-    given(locationFhirService.findByIdentifier(SERVICE_URL, facility.getId().toString()))
-        .willReturn(location);
+    given(locationFacilityMappingService.getLocationId(facility.getId()))
+        .willReturn(location.getIdElement().getIdPart());
 
     return location;
   }
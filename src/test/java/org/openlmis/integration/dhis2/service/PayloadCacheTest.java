@@ -0,0 +1,156 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PayloadCacheTest {
+
+  private static final UUID BATCH_ID = UUID.randomUUID();
+  private static final UUID PERIOD_ID = UUID.randomUUID();
+  private static final UUID PROGRAM_ID = UUID.randomUUID();
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static final PayloadCache.Key KEY = new PayloadCache.Key(BATCH_ID, PERIOD_ID,
+      PROGRAM_ID, null);
+
+  private PayloadCache payloadCache = new PayloadCache();
+  private AtomicInteger builds = new AtomicInteger();
+  private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(payloadCache, "maxSize", 10L);
+    ReflectionTestUtils.setField(payloadCache, "expireAfter", 60000L);
+    payloadCache.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldBuildRequestBodyOnceForTheSameKey() throws IOException {
+    // when
+    PayloadBody first = payloadCache.get(KEY, this::build);
+    PayloadBody second = payloadCache.get(new PayloadCache.Key(BATCH_ID, PERIOD_ID,
+        PROGRAM_ID, null), this::build);
+
+    // then
+    assertThat(first.asString()).isEqualTo("1");
+    assertThat(second.asString()).isEqualTo("1");
+    assertThat(builds.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldBuildRequestBodyForEachKey() throws IOException {
+    // when
+    PayloadBody first = payloadCache.get(KEY, this::build);
+    PayloadBody second = payloadCache.get(new PayloadCache.Key(BATCH_ID, PERIOD_ID,
+        null, null), this::build);
+
+    // then
+    assertThat(first.asString()).isEqualTo("1");
+    assertThat(second.asString()).isEqualTo("2");
+  }
+
+  @Test
+  public void shouldLetConcurrentTasksWaitForTheSameBuild() throws Exception {
+    // given
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<PayloadBody> first = executor.submit(() -> payloadCache.get(KEY, () -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return build();
+    }));
+
+    started.await(5, TimeUnit.SECONDS);
+    Future<PayloadBody> second = executor.submit(() -> payloadCache.get(KEY, this::build));
+
+    // when
+    release.countDown();
+
+    // then
+    assertThat(first.get(5, TimeUnit.SECONDS).asString()).isEqualTo("1");
+    assertThat(second.get(5, TimeUnit.SECONDS).asString()).isEqualTo("1");
+    assertThat(builds.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldBuildRequestBodyAgainAfterClear() throws IOException {
+    // given
+    payloadCache.get(KEY, this::build);
+
+    // when
+    payloadCache.clear();
+    PayloadBody body = payloadCache.get(KEY, this::build);
+
+    // then
+    assertThat(body.asString()).isEqualTo("2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRethrowRuntimeExceptionFromLoader() {
+    payloadCache.get(KEY, () -> {
+      throw new IllegalArgumentException();
+    });
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldWrapCheckedExceptionFromLoader() {
+    payloadCache.get(KEY, () -> {
+      throw new Exception();
+    });
+  }
+
+  @Test
+  public void shouldNotKeepFailedBuilds() throws IOException {
+    // given
+    Throwable thrown = catchThrowable(() -> payloadCache.get(KEY, () -> {
+      throw new IllegalArgumentException();
+    }));
+    assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+
+    // when
+    PayloadBody body = payloadCache.get(KEY, this::build);
+
+    // then
+    assertThat(body.asString()).isEqualTo("1");
+  }
+
+  private PayloadBody build() throws IOException {
+    return PayloadBody.write(OBJECT_MAPPER, builds.incrementAndGet());
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.IntegrationDataBuilder;
+import org.openlmis.integration.dhis2.domain.ExecutionQueueItem;
+import org.openlmis.integration.dhis2.domain.Integration;
+import org.openlmis.integration.dhis2.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.integration.dhis2.service.referencedata.ProcessingPeriodDto;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PayloadServiceTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+  private static final Integration INTEGRATION = new IntegrationDataBuilder().build();
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private PostPayloadTaskExecutor postPayloadTaskExecutor;
+
+  @Mock
+  private ExecutionQueue executionQueue;
+
+  @InjectMocks
+  private PayloadService payloadService;
+
+  @Captor
+  private ArgumentCaptor<Runnable> taskCaptor;
+
+  private ProcessingPeriodDto period = new ProcessingPeriodDto();
+  private ExecutionQueueItem item;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(payloadService, "clock", CLOCK);
+    ReflectionTestUtils.setField(payloadService, "workerEnabled", true);
+
+    period.setId(UUID.randomUUID());
+    item = ExecutionQueueItem
+        .forAutomaticExecution(INTEGRATION, period.getId(), UUID.randomUUID(), CLOCK);
+    item.setId(UUID.randomUUID());
+
+    given(postPayloadTaskExecutor.getAvailableCapacity()).willReturn(2);
+    given(postPayloadTaskExecutor.getMaxPoolSizePerTarget()).willReturn(1);
+    given(executionQueue.claimNext(1)).willReturn(Optional.of(item), Optional.empty());
+  }
+
+  @Test
+  public void shouldQueuePayloadRequest() {
+    // given
+    PayloadRequest request = PayloadRequest
+        .forAutomaticExecution(INTEGRATION, period, UUID.randomUUID());
+
+    // when
+    payloadService.postPayload(request);
+
+    // then
+    verify(executionQueue).enqueue(request);
+    verify(postPayloadTaskExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldStartTasksForClaimedItems() {
+    // given
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+
+    // when
+    payloadService.processQueue();
+
+    // then
+    verify(postPayloadTaskExecutor).execute(taskCaptor.capture());
+    verify(executionQueue, never()).remove(item);
+  }
+
+  @Test
+  public void shouldNotTakeMoreItemsThanThereAreFreeWorkers() {
+    // given
+    ExecutionQueueItem other = ExecutionQueueItem
+        .forAutomaticExecution(INTEGRATION, period.getId(), UUID.randomUUID(), CLOCK);
+    other.setId(UUID.randomUUID());
+    given(executionQueue.claimNext(1)).willReturn(Optional.of(item), Optional.of(other));
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+
+    // when
+    payloadService.processQueue();
+
+    // then
+    verify(executionQueue, times(2)).claimNext(1);
+    verify(postPayloadTaskExecutor, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldRemoveItemFromQueueWhenTaskIsDone() {
+    // given
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+    payloadService.processQueue();
+    verify(postPayloadTaskExecutor).execute(taskCaptor.capture());
+
+    // when
+    // the task fails because its dependencies are not mocked
+    Throwable thrown = catchThrowable(() -> taskCaptor.getValue().run());
+
+    // then
+    assertThat(thrown).isInstanceOf(RuntimeException.class);
+    verify(executionQueue).remove(item);
+  }
+
+  @Test
+  public void shouldDropItemIfPeriodDoesNotExist() {
+    // when
+    payloadService.processQueue();
+
+    // then
+    verify(executionQueue).remove(item);
+    verify(postPayloadTaskExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldReleaseItemIfPeriodCannotBeRetrieved() {
+    // given
+    ExecutionQueueItem other = ExecutionQueueItem
+        .forAutomaticExecution(INTEGRATION, UUID.randomUUID(), UUID.randomUUID(), CLOCK);
+    other.setId(UUID.randomUUID());
+    given(executionQueue.claimNext(1)).willReturn(Optional.of(other), Optional.of(item));
+
+    given(periodReferenceDataService.findOne(other.getProcessingPeriodId()))
+        .willThrow(new IllegalStateException("reference data"));
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+
+    // when
+    payloadService.processQueue();
+
+    // then
+    verify(executionQueue).release(other);
+    verify(executionQueue, never()).remove(other);
+    verify(postPayloadTaskExecutor).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldReleaseItemIfWorkersRejectTask() {
+    // given
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+    willThrow(new TaskRejectedException("saturated"))
+        .given(postPayloadTaskExecutor).execute(any(Runnable.class));
+
+    // when
+    payloadService.processQueue();
+    payloadService.sendHeartbeat();
+
+    // then
+    verify(executionQueue).release(item);
+    verify(executionQueue, never()).remove(item);
+    verify(executionQueue, times(1)).claimNext(1);
+    verify(executionQueue).renew(Collections.emptySet());
+  }
+
+  @Test
+  public void shouldNotTakeItemsIfWorkerIsDisabled() {
+    // given
+    ReflectionTestUtils.setField(payloadService, "workerEnabled", false);
+
+    // when
+    payloadService.processQueue();
+
+    // then
+    verify(executionQueue, never()).claimNext(anyInt());
+    verify(postPayloadTaskExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldRenewLeaseOfItemsInProgress() {
+    // given
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+    payloadService.processQueue();
+
+    // when
+    payloadService.sendHeartbeat();
+
+    // then
+    verify(executionQueue).renew(Collections.singleton(item.getId()));
+  }
+
+  @Test
+  public void shouldSendHeartbeatOnItsOwnScheduler() {
+    // given
+    ReflectionTestUtils.setField(payloadService, "heartbeatDelay", 10L);
+
+    // when
+    payloadService.afterPropertiesSet();
+
+    // then
+    try {
+      verify(executionQueue, timeout(1000).atLeast(2)).renew(Collections.emptySet());
+    } finally {
+      payloadService.destroy();
+    }
+  }
+
+  @Test
+  public void shouldNotStartHeartbeatIfWorkerIsDisabled() {
+    // given
+    ReflectionTestUtils.setField(payloadService, "workerEnabled", false);
+
+    // when
+    payloadService.afterPropertiesSet();
+    payloadService.destroy();
+
+    // then
+    verify(executionQueue, never()).renew(anyCollectionOf(UUID.class));
+  }
+
+  @Test
+  public void shouldNotRenewLeaseOfFinishedItems() {
+    // given
+    given(periodReferenceDataService.findOne(period.getId())).willReturn(period);
+    payloadService.processQueue();
+    verify(postPayloadTaskExecutor).execute(taskCaptor.capture());
+
+    catchThrowable(() -> taskCaptor.getValue().run());
+
+    // when
+    payloadService.sendHeartbeat();
+
+    // then
+    verify(executionQueue).renew(Collections.emptySet());
+  }
+}
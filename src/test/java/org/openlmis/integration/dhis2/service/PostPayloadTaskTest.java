@@ -18,27 +18,31 @@ package org.openlmis.integration.dhis2.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
 import org.assertj.core.util.Sets;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.openlmis.integration.dhis2.domain.Execution;
@@ -48,9 +52,16 @@ import org.openlmis.integration.dhis2.service.referencedata.ProgramDto;
 import org.openlmis.integration.dhis2.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.integration.dhis2.web.ExecutionDto;
 import org.openlmis.integration.dhis2.web.ExecutionResponseDto;
-import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
@@ -59,6 +70,7 @@ public class PostPayloadTaskTest {
   private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneOffset.UTC);
 
   private static final UUID PROGRAM_ID = UUID.randomUUID();
+  private static final UUID BATCH_ID = UUID.randomUUID();
   private static final String PROGRAM_NAME = "program";
 
   private static final LocalDate START_DATE = LocalDate.of(2019, 1, 1);
@@ -72,6 +84,8 @@ public class PostPayloadTaskTest {
       null, null, null, START_DATE, END_DATE);
 
   private static final Payload PAYLOAD = new Payload(Sets.newHashSet(), LocalDate.now(CLOCK));
+  private static final String JSON = "{\"description\":\"" + PAYLOAD.getDescription()
+      + "\",\"facilities\":[],\"reporting-period\":\"" + PAYLOAD.getReportingPeriod() + "\"}";
 
   @Rule
   public MockitoRule mockitoRule = MockitoJUnit.rule();
@@ -85,8 +99,8 @@ public class PostPayloadTaskTest {
   @Mock
   private PayloadBuilder payloadBuilder;
 
-  @Mock
-  private ObjectMapper objectMapper;
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
 
   @Mock
   private RestTemplate restTemplate;
@@ -97,18 +111,26 @@ public class PostPayloadTaskTest {
   @Mock
   private PayloadRequest manualPayloadRequest;
 
-
   @Mock
-  private ResponseEntity<String> responseEntity;
+  private PayloadRequest otherPayloadRequest;
 
   private Execution execution = new Execution();
 
+  private MockClientHttpRequest outboundRequest = new MockClientHttpRequest();
+
+  private PayloadCache payloadCache = new PayloadCache();
+
   @Before
-  public void setUp() throws JsonProcessingException {
+  public void setUp() {
+    ReflectionTestUtils.setField(payloadCache, "maxSize", 10L);
+    ReflectionTestUtils.setField(payloadCache, "expireAfter", 60000L);
+    payloadCache.afterPropertiesSet();
+
     given(automaticPayloadRequest.isManualExecution()).willReturn(false);
     given(automaticPayloadRequest.createExecution(CLOCK)).willReturn(execution);
     given(automaticPayloadRequest.getPeriod()).willReturn(PERIOD);
     given(automaticPayloadRequest.getTargetUrl()).willReturn(TARGET_URL);
+    given(automaticPayloadRequest.getBatchId()).willReturn(BATCH_ID);
 
     given(manualPayloadRequest.isManualExecution()).willReturn(true);
     given(manualPayloadRequest.createExecution(CLOCK)).willReturn(execution);
@@ -119,71 +141,56 @@ public class PostPayloadTaskTest {
     given(programReferenceDataService.findOne(PROGRAM_ID)).willReturn(PROGRAM);
 
     given(payloadBuilder.build(START_DATE, END_DATE, PROGRAM_NAME, null)).willReturn(PAYLOAD);
+    given(payloadBuilder.build(START_DATE, END_DATE, null, null)).willReturn(PAYLOAD);
 
-    given(objectMapper.writeValueAsString(anyString())).willReturn("{}");
-
-    given(restTemplate.exchange(eq(TARGET_URL), eq(HttpMethod.POST),
-        any(HttpEntity.class), eq(String.class)))
-        .willReturn(responseEntity);
-
-    given(responseEntity.getStatusCodeValue()).willReturn(200);
-    given(responseEntity.getBody()).willReturn("success");
+    given(restTemplate.execute(eq(TARGET_URL), eq(HttpMethod.POST),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
+        .willAnswer(this::sendRequest);
   }
 
   @Test
-  public void automaticTasksShouldBeBeforeManualTasks() {
+  public void shouldSendPayload() throws Exception {
     // given
-    PostPayloadTask automaticTask = createTask(CLOCK, automaticPayloadRequest);
-    PostPayloadTask manualTask = createTask(CLOCK, manualPayloadRequest);
+    PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
 
     // when
-    BlockingQueue<PostPayloadTask> queue = new PriorityBlockingQueue<>();
-    queue.add(manualTask);
-    queue.add(automaticTask);
+    task.run();
 
     // then
-    assertThat(queue.poll()).isEqualTo(automaticTask);
-    assertThat(queue.poll()).isEqualTo(manualTask);
-  }
-
-  @Test
-  public void oldTasksShouldBeBeforeNewTasks() {
-    // given
-    PostPayloadTask oldTask = createTask(
-        Clock.fixed(ZonedDateTime.now().minusDays(7).toInstant(), ZoneOffset.UTC),
-        automaticPayloadRequest);
-    PostPayloadTask newTask = createTask(
-        Clock.fixed(Instant.now(), ZoneOffset.UTC),
-        automaticPayloadRequest);
-
-    // when
-    BlockingQueue<PostPayloadTask> queue = new PriorityBlockingQueue<>();
-    queue.add(newTask);
-    queue.add(oldTask);
+    verify(automaticPayloadRequest).createExecution(CLOCK);
+    verify(payloadBuilder).build(START_DATE, END_DATE, null, null);
+    InOrder inOrder = inOrder(executionRepository);
+    inOrder.verify(executionRepository).save(execution);
+    inOrder.verify(executionRepository).saveRequestBody(execution);
+    inOrder.verify(executionRepository).saveResult(execution);
+    verify(executionRepository, never()).saveAndFlush(any(Execution.class));
+    verify(objectMapper).writeValue(any(JsonGenerator.class), eq(PAYLOAD));
+    verify(restTemplate).execute(eq(TARGET_URL), eq(HttpMethod.POST),
+        any(RequestCallback.class), any(ResponseExtractor.class));
+
+    assertThat(execution.getRequestBody()).isEqualTo(JSON);
+    assertThat(outboundRequest.getBodyAsString()).isEqualTo(JSON);
+    assertThat(outboundRequest.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE))
+        .isEqualTo(MediaType.APPLICATION_JSON_UTF8_VALUE);
 
-    // then
-    assertThat(queue.poll()).isEqualTo(oldTask);
-    assertThat(queue.poll()).isEqualTo(newTask);
+    assertThat(getResponse(execution))
+        .hasFieldOrPropertyWithValue("statusCode", 200)
+        .hasFieldOrPropertyWithValue("body", "success");
   }
 
   @Test
-  public void shouldSendPayload() throws JsonProcessingException {
+  public void shouldStreamPayloadIfRequestBodyIsNotBuffered() {
     // given
+    StreamingClientHttpRequest streamingRequest = new StreamingClientHttpRequest();
+    outboundRequest = streamingRequest;
     PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
 
     // when
     task.run();
 
     // then
-    verify(automaticPayloadRequest).createExecution(CLOCK);
-    verify(payloadBuilder).build(START_DATE, END_DATE, null, null);
-    verify(executionRepository, times(3)).saveAndFlush(execution);
-    verify(objectMapper).writeValueAsString(anyString());
-    verify(restTemplate).exchange(eq(TARGET_URL), eq(HttpMethod.POST),
-        any(HttpEntity.class), eq(String.class));
-
-    assertThat(execution.getRequestBody()).isEqualTo("{}");
-
+    assertThat(streamingRequest.streamed).isTrue();
+    assertThat(streamingRequest.getBodyAsString()).isEqualTo(JSON);
     assertThat(getResponse(execution))
         .hasFieldOrPropertyWithValue("statusCode", 200)
         .hasFieldOrPropertyWithValue("body", "success");
@@ -196,8 +203,8 @@ public class PostPayloadTaskTest {
     given(exp.getRawStatusCode()).willReturn(404);
     given(exp.getResponseBodyAsString()).willReturn("failure");
 
-    given(restTemplate.exchange(eq(TARGET_URL), eq(HttpMethod.POST),
-        any(HttpEntity.class), eq(String.class)))
+    given(restTemplate.execute(eq(TARGET_URL), eq(HttpMethod.POST),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
         .willThrow(exp);
 
     PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
@@ -218,8 +225,8 @@ public class PostPayloadTaskTest {
     RuntimeException exp = mock(RuntimeException.class);
     given(exp.getMessage()).willReturn("runtimeException");
 
-    given(restTemplate.exchange(eq(TARGET_URL), eq(HttpMethod.POST),
-        any(HttpEntity.class), eq(String.class)))
+    given(restTemplate.execute(eq(TARGET_URL), eq(HttpMethod.POST),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
         .willThrow(exp);
 
     PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
@@ -234,12 +241,123 @@ public class PostPayloadTaskTest {
     assertThat(response.getBody()).isEqualTo("runtimeException");
   }
 
+  @Test
+  public void shouldBuildPayloadOnceForTasksWithTheSameProgramAndPeriod() throws Exception {
+    // given
+    Execution otherExecution = new Execution();
+    mockOtherPayloadRequest(otherExecution, null, BATCH_ID);
+
+    PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
+    PostPayloadTask otherTask = createTask(CLOCK, otherPayloadRequest);
+
+    // when
+    task.run();
+    otherTask.run();
+
+    // then
+    verify(payloadBuilder).build(START_DATE, END_DATE, null, null);
+    verify(objectMapper).writeValue(any(JsonGenerator.class), eq(PAYLOAD));
+    verify(restTemplate, times(2)).execute(eq(TARGET_URL), eq(HttpMethod.POST),
+        any(RequestCallback.class), any(ResponseExtractor.class));
+
+    assertThat(execution.getRequestBody()).isEqualTo(JSON);
+    assertThat(otherExecution.getRequestBody()).isEqualTo(JSON);
+  }
+
+  @Test
+  public void shouldBuildPayloadForEachProgram() throws Exception {
+    // given
+    mockOtherPayloadRequest(new Execution(), PROGRAM_ID, BATCH_ID);
+
+    PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
+    PostPayloadTask otherTask = createTask(CLOCK, otherPayloadRequest);
+
+    // when
+    task.run();
+    otherTask.run();
+
+    // then
+    verify(payloadBuilder).build(START_DATE, END_DATE, null, null);
+    verify(payloadBuilder).build(START_DATE, END_DATE, PROGRAM_NAME, null);
+    verify(objectMapper, times(2)).writeValue(any(JsonGenerator.class), eq(PAYLOAD));
+  }
+
+  @Test
+  public void shouldBuildPayloadForEachBatch() throws Exception {
+    // given
+    mockOtherPayloadRequest(new Execution(), null, UUID.randomUUID());
+
+    PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
+    PostPayloadTask otherTask = createTask(CLOCK, otherPayloadRequest);
+
+    // when
+    task.run();
+    otherTask.run();
+
+    // then
+    verify(payloadBuilder, times(2)).build(START_DATE, END_DATE, null, null);
+    verify(objectMapper, times(2)).writeValue(any(JsonGenerator.class), eq(PAYLOAD));
+  }
+
+  @Test
+  public void shouldNotReuseBatchPayloadForManualExecution() throws Exception {
+    // given
+    Execution otherExecution = new Execution();
+    given(manualPayloadRequest.createExecution(CLOCK)).willReturn(otherExecution);
+    given(manualPayloadRequest.getProgramId()).willReturn(null);
+
+    PostPayloadTask task = createTask(CLOCK, automaticPayloadRequest);
+    PostPayloadTask otherTask = createTask(CLOCK, manualPayloadRequest);
+
+    // when
+    task.run();
+    otherTask.run();
+
+    // then
+    verify(payloadBuilder, times(2)).build(START_DATE, END_DATE, null, null);
+    verify(objectMapper, times(2)).writeValue(any(JsonGenerator.class), eq(PAYLOAD));
+    assertThat(otherExecution.getRequestBody()).isEqualTo(JSON);
+  }
+
+  private void mockOtherPayloadRequest(Execution otherExecution, UUID programId, UUID batchId) {
+    given(otherPayloadRequest.isManualExecution()).willReturn(false);
+    given(otherPayloadRequest.createExecution(CLOCK)).willReturn(otherExecution);
+    given(otherPayloadRequest.getPeriod()).willReturn(PERIOD);
+    given(otherPayloadRequest.getProgramId()).willReturn(programId);
+    given(otherPayloadRequest.getTargetUrl()).willReturn(TARGET_URL);
+    given(otherPayloadRequest.getBatchId()).willReturn(batchId);
+  }
+
+  private Object sendRequest(InvocationOnMock invocation) throws IOException {
+    RequestCallback callback = (RequestCallback) invocation.getArguments()[2];
+    callback.doWithRequest(outboundRequest);
+
+    ResponseExtractor<?> extractor = (ResponseExtractor<?>) invocation.getArguments()[3];
+    return extractor.extractData(new MockClientHttpResponse(
+        "success".getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+  }
+
   private ExecutionResponseDto getResponse(Execution execution) {
     return ExecutionDto.newInstance(execution).getResponse();
   }
 
   private PostPayloadTask createTask(Clock clock, PayloadRequest payloadRequest) {
     return new PostPayloadTask(programReferenceDataService, executionRepository, payloadBuilder,
-        objectMapper, clock, restTemplate, payloadRequest);
+        payloadCache, objectMapper, clock, restTemplate, payloadRequest);
+  }
+
+  private static final class StreamingClientHttpRequest extends MockClientHttpRequest
+      implements StreamingHttpOutputMessage {
+    private boolean streamed;
+
+    @Override
+    public void setBody(Body body) {
+      try {
+        body.writeTo(getBody());
+        streamed = true;
+      } catch (IOException exp) {
+        throw new UncheckedIOException(exp);
+      }
+    }
   }
 }
@@ -0,0 +1,200 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReferenceDataRequestExecutorTest {
+
+  private static final String SERVICE = "facilities";
+  private static final long TIMEOUT = 5;
+
+  private ReferenceDataRequestExecutor executor = new ReferenceDataRequestExecutor();
+
+  @Before
+  public void setUp() {
+    executor.setCorePoolSize(4);
+    executor.setMaxPoolSize(4);
+    executor.setQueueCapacity(0);
+    executor.setMaxRequestsPerService(2);
+    executor.initialize();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldSendSingleRequestInCallingThread() {
+    Thread caller = Thread.currentThread();
+
+    List<Boolean> responses = executor
+        .invokeAll(SERVICE, Lists.newArrayList(() -> Thread.currentThread() == caller));
+
+    assertThat(responses).containsExactly(true);
+  }
+
+  @Test
+  public void shouldReturnResponsesInOrderOfRequests() {
+    CountDownLatch lastFinished = new CountDownLatch(1);
+
+    List<Supplier<String>> requests = Lists.newArrayList(
+        () -> {
+          await(lastFinished);
+          return "first";
+        },
+        () -> "second",
+        () -> {
+          lastFinished.countDown();
+          return "third";
+        });
+
+    assertThat(executor.invokeAll(SERVICE, requests)).containsExactly("first", "second", "third");
+  }
+
+  @Test
+  public void shouldSendRequestsAtTheSameTime() {
+    CountDownLatch started = new CountDownLatch(2);
+    Supplier<Boolean> request = () -> {
+      started.countDown();
+      return await(started);
+    };
+
+    assertThat(executor.invokeAll(SERVICE, Lists.newArrayList(request, request)))
+        .containsExactly(true, true);
+  }
+
+  @Test
+  public void shouldLimitRequestsPerService() {
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    Supplier<Integer> request = () -> {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      sleep();
+      return active.decrementAndGet();
+    };
+
+    List<Integer> responses = executor.invokeAll(SERVICE,
+        Lists.newArrayList(request, request, request, request, request, request));
+
+    assertThat(responses).hasSize(6);
+    assertThat(maxActive.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldFailFastAndCancelOtherRequests() {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+
+    List<Supplier<String>> requests = Lists.newArrayList(
+        () -> {
+          started.countDown();
+          try {
+            released.await();
+          } catch (InterruptedException exp) {
+            interrupted.countDown();
+          }
+          return "blocked";
+        },
+        () -> {
+          await(started);
+          throw new IllegalArgumentException("failed");
+        });
+
+    try {
+      executor.invokeAll(SERVICE, requests);
+      fail("Expected exception");
+    } catch (IllegalArgumentException exp) {
+      assertThat(exp).hasMessage("failed");
+    }
+
+    assertThat(await(interrupted)).isTrue();
+  }
+
+  @Test
+  public void shouldReleasePermitsOfFailedRequests() {
+    Supplier<String> failing = () -> {
+      throw new IllegalStateException("failed");
+    };
+
+    for (int i = 0; i < 3; ++i) {
+      try {
+        executor.invokeAll(SERVICE, Lists.newArrayList(failing, failing));
+      } catch (IllegalStateException exp) {
+        assertThat(exp).hasMessage("failed");
+      }
+    }
+
+    assertThat(executor.invokeAll(SERVICE, Lists.newArrayList(() -> "first", () -> "second")))
+        .containsExactly("first", "second");
+  }
+
+  @Test
+  public void shouldSendRequestsInCallingThreadIfPoolIsFull() {
+    executor.shutdown();
+    executor = new ReferenceDataRequestExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(0);
+    executor.setMaxRequestsPerService(2);
+    executor.initialize();
+
+    Thread caller = Thread.currentThread();
+    CountDownLatch callerFinished = new CountDownLatch(1);
+
+    // the first request takes the only pool thread, so the second one is sent by the caller
+    List<Boolean> responses = executor.invokeAll(SERVICE, Lists.newArrayList(
+        () -> await(callerFinished),
+        () -> {
+          boolean inCaller = Thread.currentThread() == caller;
+          callerFinished.countDown();
+          return inCaller;
+        }));
+
+    assertThat(responses).containsExactly(true, true);
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(TIMEOUT, TimeUnit.SECONDS);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
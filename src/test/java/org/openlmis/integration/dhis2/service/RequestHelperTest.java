@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
@@ -27,11 +28,16 @@ import static org.springframework.web.util.UriUtils.encodeQueryParam;
 import com.google.common.collect.Lists;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Test;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @SuppressWarnings("PMD.TooManyMethods")
 public class RequestHelperTest {
@@ -73,16 +79,7 @@ public class RequestHelperTest {
 
   @Test
   public void shouldSplitRequestIfItTooLong() throws UnsupportedEncodingException {
-    // no split | first split | second split
-    //    1     |      1      |      1
-    //    2     |      1      |      1
-    //    3     |      1      |      1
-    //    4     |      1      |      2
-    //    5     |      1      |      2
-    //    6     |      2      |      3
-    //    7     |      2      |      3
-    //    8     |      2      |      4
-    //    9     |      2      |      4
+    // each value takes a bit more than 500 characters, so three values fit in a single URL
     List<String> queryParamValues = Lists.newArrayList(
         randomString(), randomString(), randomString(), randomString(),
         randomString(), randomString(), randomString(), randomString(),
@@ -92,24 +89,64 @@ public class RequestHelperTest {
     URI[] uri = RequestHelper.splitRequest(
         URL, RequestParameters.init().set("a", queryParamValues), MAX_URL_LENGTH
     );
-    assertThat(uri.length, is(4));
+    assertThat(uri.length, is(3));
+
+    for (int i = 0; i < uri.length; ++i) {
+      assertThat(uri[i].toString(), startsWith(URL));
+      assertThat(uri[i].getRawQuery(), is("a=" + queryParamValues.get(3 * i)
+          + "&a=" + queryParamValues.get(3 * i + 1)
+          + "&a=" + queryParamValues.get(3 * i + 2)));
+    }
+  }
 
-    assertThat(uri[0].toString(), startsWith(URL));
-    assertThat(uri[0].toString(), containsString("a=" + queryParamValues.get(0)));
-    assertThat(uri[0].toString(), containsString("a=" + queryParamValues.get(1)));
-    assertThat(uri[0].toString(), containsString("a=" + queryParamValues.get(2)));
+  @Test
+  public void shouldSplitRequestLikeSingleUriWithAllParameters() {
+    List<String> ids = Stream
+        .generate(() -> UUID.randomUUID().toString())
+        .limit(1000)
+        .collect(Collectors.toList());
+    RequestParameters parameters = RequestParameters.init()
+        .set("id", ids)
+        .set("name", "a b")
+        .set("sort", Lists.newArrayList("name,ASC", "code,DESC"));
+
+    URI[] uris = RequestHelper.splitRequest(URL + "/api/facilities", parameters, MAX_URL_LENGTH);
 
-    assertThat(uri[1].toString(), startsWith(URL));
-    assertThat(uri[1].toString(), containsString("a=" + queryParamValues.get(3)));
-    assertThat(uri[1].toString(), containsString("a=" + queryParamValues.get(4)));
+    List<String> sentIds = new ArrayList<>();
 
-    assertThat(uri[2].toString(), startsWith(URL));
-    assertThat(uri[2].toString(), containsString("a=" + queryParamValues.get(5)));
-    assertThat(uri[2].toString(), containsString("a=" + queryParamValues.get(6)));
+    for (URI uri : uris) {
+      assertThat(uri.toString().length(), is(lessThanOrEqualTo(MAX_URL_LENGTH)));
+      assertThat(uri.toString(), startsWith(URL + "/api/facilities?name=a%20b"
+          + "&sort=name,ASC&sort=code,DESC&id="));
+
+      sentIds.addAll(UriComponentsBuilder.fromUri(uri).build().getQueryParams().get("id"));
+    }
+
+    assertThat(sentIds, is(ids));
+  }
 
-    assertThat(uri[3].toString(), startsWith(URL));
-    assertThat(uri[3].toString(), containsString("a=" + queryParamValues.get(7)));
-    assertThat(uri[3].toString(), containsString("a=" + queryParamValues.get(8)));
+  @Test
+  public void shouldNotSplitShortRequestWithManyValues() {
+    RequestParameters parameters = RequestParameters.init()
+        .set("a", Lists.newArrayList("1", "2", "3"))
+        .set("b", "c d");
+
+    URI[] uris = RequestHelper.splitRequest(URL, parameters, MAX_URL_LENGTH);
+
+    assertThat(uris.length, is(1));
+    assertThat(uris[0].getRawQuery(), is("b=c%20d&a=1&a=2&a=3"));
+  }
+
+  @Test
+  public void shouldSplitRequestByParameterWithMostValues() {
+    URI[] uris = RequestHelper.splitRequest(URL, RequestParameters.init()
+        .set("a", Lists.newArrayList("1", "2"))
+        .set("b", Lists.newArrayList("3", "4", "5")), URL.length() + 14);
+
+    assertThat(uris.length, is(3));
+    assertThat(uris[0].getRawQuery(), is("a=1&a=2&b=3"));
+    assertThat(uris[1].getRawQuery(), is("a=1&a=2&b=4"));
+    assertThat(uris[2].getRawQuery(), is("a=1&a=2&b=5"));
   }
 
   @Test
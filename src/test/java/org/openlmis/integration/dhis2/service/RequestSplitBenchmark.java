@@ -0,0 +1,164 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Compares the time and memory needed to split a request with many ids into URLs not longer than
+ * the max URL length by the former recursive split (which built and encoded the whole URL at each
+ * level) and by {@link RequestHelper#splitRequest}. It is not a unit test, run its main method
+ * with the test classpath.
+ */
+public final class RequestSplitBenchmark {
+
+  private static final String URL = "http://localhost/api/facilities/search";
+  private static final int MAX_URL_LENGTH = 2000;
+  private static final int[] ID_COUNTS = {10, 1_000, 20_000};
+  // the number of ids split in each run, so each size takes a similar time
+  private static final int IDS_PER_RUN = 1_000_000;
+
+  // keeps the JIT from dropping the split URLs
+  private static volatile int sink;
+
+  private RequestSplitBenchmark() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Prints the average time and number of bytes allocated per split for both approaches.
+   */
+  public static void main(String[] args) {
+    for (int idCount : ID_COUNTS) {
+      RequestParameters parameters = RequestParameters
+          .init()
+          .set("id", Stream.generate(UUID::randomUUID).limit(idCount).collect(Collectors.toList()))
+          .set("active", true);
+
+      int splits = Math.max(10, IDS_PER_RUN / idCount);
+
+      Result recursive = measure(parameters, splits, RequestSplitBenchmark::recursiveSplit);
+      Result linear = measure(parameters, splits,
+          params -> RequestHelper.splitRequest(URL, params, MAX_URL_LENGTH));
+
+      System.out.printf("%,d ids: recursive %,d us and %,d bytes/split (%d URLs), "
+              + "linear %,d us and %,d bytes/split (%d URLs)%n",
+          idCount, recursive.micros, recursive.bytes, recursive.urls,
+          linear.micros, linear.bytes, linear.urls);
+    }
+  }
+
+  private static Result measure(RequestParameters parameters, int splits,
+      Function<RequestParameters, URI[]> splitter) {
+    run(parameters, splits, splitter);
+
+    long bytesBefore = allocatedBytes();
+    long timeBefore = System.nanoTime();
+    int urls = run(parameters, splits, splitter);
+    long time = System.nanoTime() - timeBefore;
+    long bytes = allocatedBytes() - bytesBefore;
+
+    return new Result(time / splits / 1_000, bytes / splits, urls / splits);
+  }
+
+  private static int run(RequestParameters parameters, int splits,
+      Function<RequestParameters, URI[]> splitter) {
+    int urls = 0;
+
+    for (int i = 0; i < splits; ++i) {
+      urls += splitter.apply(parameters).length;
+    }
+
+    sink += urls;
+    return urls;
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // the former RequestHelper.splitRequest
+  private static URI[] recursiveSplit(RequestParameters queryParams) {
+    RequestParameters safeQueryParams = RequestParameters.init().setAll(queryParams);
+    URI uri = RequestHelper.createUri(URL, safeQueryParams);
+
+    if (uri.toString().length() > MAX_URL_LENGTH) {
+      Pair<RequestParameters, RequestParameters> split = split(safeQueryParams);
+
+      if (null != split) {
+        URI[] left = recursiveSplit(split.getLeft());
+        URI[] right = recursiveSplit(split.getRight());
+
+        return Stream
+            .concat(Arrays.stream(left), Arrays.stream(right))
+            .distinct()
+            .toArray(URI[]::new);
+      }
+    }
+
+    return new URI[]{uri};
+  }
+
+  // the former RequestParameters.split, which halved the parameter with the most values
+  private static Pair<RequestParameters, RequestParameters> split(RequestParameters parameters) {
+    Map.Entry<String, List<String>> max = parameters.findLargest();
+
+    if (null == max) {
+      return null;
+    }
+
+    RequestParameters left = RequestParameters.init();
+    RequestParameters right = RequestParameters.init();
+
+    parameters.forEach(entry -> {
+      if (!entry.getKey().equals(max.getKey())) {
+        left.set(entry.getKey(), entry.getValue());
+        right.set(entry.getKey(), entry.getValue());
+      }
+    });
+
+    List<String> list = max.getValue();
+    int middle = list.size() - list.size() / 2;
+
+    left.set(max.getKey(), list.subList(0, middle));
+    right.set(max.getKey(), list.subList(middle, list.size()));
+
+    return Pair.of(left, right);
+  }
+
+  private static final class Result {
+    private final long micros;
+    private final long bytes;
+    private final int urls;
+
+    Result(long micros, long bytes, int urls) {
+      this.micros = micros;
+      this.bytes = bytes;
+      this.urls = urls;
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.web.ResponseCacheDto;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ResponseCacheTest {
+
+  private static final String PROGRAMS = "programs";
+  private static final String FACILITIES = "facilities";
+
+  private static final ResponseCache.Key KEY = new ResponseCache.Key("/api/programs/1",
+      RequestParameters.init(), String.class);
+  private static final ResponseCache.Key OTHER_KEY = new ResponseCache.Key("/api/programs/1",
+      RequestParameters.init().set("expand", "all"), String.class);
+
+  private ResponseCache responseCache = new ResponseCache();
+  private AtomicInteger loads = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    MockEnvironment environment = new MockEnvironment()
+        .withProperty(ResponseCache.PROPERTY_PREFIX + PROGRAMS + ResponseCache.EXPIRE_AFTER,
+            "60000")
+        .withProperty(ResponseCache.PROPERTY_PREFIX + PROGRAMS + ResponseCache.MAX_SIZE, "1");
+
+    ReflectionTestUtils.setField(responseCache, "environment", environment);
+    ReflectionTestUtils.setField(responseCache, "defaultMaxSize", 100L);
+    ReflectionTestUtils.setField(responseCache, "defaultExpireAfter", 0L);
+  }
+
+  @Test
+  public void shouldLoadResponseOnlyOnce() {
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-1");
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-1");
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotKeepNullResponses() {
+    responseCache.get(PROGRAMS, KEY, () -> {
+      loads.incrementAndGet();
+      return null;
+    });
+
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-2");
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedResponseIfCacheIsFull() {
+    responseCache.get(PROGRAMS, KEY, this::load);
+    responseCache.get(PROGRAMS, OTHER_KEY, this::load);
+
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-3");
+  }
+
+  @Test
+  public void shouldNotKeepResponsesIfCacheIsDisabled() {
+    responseCache.get(FACILITIES, KEY, this::load);
+
+    assertThat(responseCache.get(FACILITIES, KEY, this::load)).isEqualTo("response-2");
+  }
+
+  @Test
+  public void shouldEvictResponses() {
+    responseCache.get(PROGRAMS, KEY, this::load);
+
+    responseCache.evict(PROGRAMS);
+    responseCache.evict("unknown");
+
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-2");
+
+    responseCache.evictAll();
+
+    assertThat(responseCache.get(PROGRAMS, KEY, this::load)).isEqualTo("response-3");
+  }
+
+  @Test
+  public void shouldExportSettingsAndStatistics() {
+    responseCache.get(PROGRAMS, KEY, this::load);
+    responseCache.get(PROGRAMS, KEY, this::load);
+    responseCache.get(PROGRAMS, OTHER_KEY, this::load);
+    responseCache.get(FACILITIES, KEY, this::load);
+
+    List<ResponseCacheDto> caches = responseCache.export(ResponseCacheDto::new);
+
+    assertThat(caches)
+        .extracting(ResponseCacheDto::getName)
+        .containsExactly(FACILITIES, PROGRAMS);
+
+    ResponseCacheDto programs = caches.get(1);
+    assertThat(programs.getMaxSize()).isEqualTo(1);
+    assertThat(programs.getExpireAfter()).isEqualTo(60000);
+    assertThat(programs.getSize()).isEqualTo(1);
+    assertThat(programs.getHitCount()).isEqualTo(1);
+    assertThat(programs.getMissCount()).isEqualTo(2);
+    assertThat(programs.getEvictionCount()).isEqualTo(1);
+    assertThat(programs.getHitRate()).isEqualTo(1.0 / 3);
+
+    ResponseCacheDto facilities = caches.get(0);
+    assertThat(facilities.getExpireAfter()).isZero();
+    assertThat(facilities.getMissCount()).isEqualTo(1);
+  }
+
+  private String load() {
+    return "response-" + loads.incrementAndGet();
+  }
+
+}
@@ -22,13 +22,24 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,6 +57,7 @@ import org.springframework.web.client.RestTemplate;
 public class AuthServiceTest {
 
   private static final String TOKEN = UUID.randomUUID().toString();
+  private static final Instant NOW = Instant.parse("2026-10-17T10:00:00Z");
   private static final String AUTHORIZATION_URL = "http://localhost/auth/oauth/token";
   private static final URI AUTHORIZATION_URI = URI.create(
       AUTHORIZATION_URL + "?grant_type=client_credentials"
@@ -66,6 +78,8 @@ public class AuthServiceTest {
     ReflectionTestUtils.setField(authService, "clientId", "trusted-client");
     ReflectionTestUtils.setField(authService, "clientSecret", "secret");
     ReflectionTestUtils.setField(authService, "authorizationUrl", AUTHORIZATION_URL);
+    ReflectionTestUtils.setField(authService, "tokenRefreshMargin", 60L);
+    setNow(NOW);
   }
 
   @Test
@@ -92,4 +106,115 @@ public class AuthServiceTest {
         contains("Basic dHJ1c3RlZC1jbGllbnQ6c2VjcmV0")
     );
   }
+
+  @Test
+  public void shouldReuseTokenUntilItExpires() {
+    mockTokenResponse(ImmutableMap.of(
+        AuthService.ACCESS_TOKEN, TOKEN, AuthService.EXPIRES_IN, 3600));
+
+    authService.obtainAccessToken();
+    setNow(NOW.plusSeconds(3539));
+    String token = authService.obtainAccessToken();
+
+    assertThat(token, is(equalTo(TOKEN)));
+    verifyTokenRequests(1);
+  }
+
+  @Test
+  public void shouldRefreshTokenBeforeItExpires() {
+    mockTokenResponse(ImmutableMap.of(
+        AuthService.ACCESS_TOKEN, TOKEN, AuthService.EXPIRES_IN, 3600));
+
+    authService.obtainAccessToken();
+    setNow(NOW.plusSeconds(3540));
+    authService.obtainAccessToken();
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldNotReuseTokenWithoutExpirationTime() {
+    mockTokenResponse(ImmutableMap.of(AuthService.ACCESS_TOKEN, TOKEN));
+
+    authService.obtainAccessToken();
+    authService.obtainAccessToken();
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldRequestNewTokenAfterTokenHasBeenRejected() {
+    mockTokenResponse(ImmutableMap.of(
+        AuthService.ACCESS_TOKEN, TOKEN, AuthService.EXPIRES_IN, 3600));
+
+    String token = authService.obtainAccessToken();
+    authService.clearTokenCache(token);
+    authService.obtainAccessToken();
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldKeepTokenIfOtherTokenHasBeenRejected() {
+    mockTokenResponse(ImmutableMap.of(
+        AuthService.ACCESS_TOKEN, TOKEN, AuthService.EXPIRES_IN, 3600));
+
+    authService.obtainAccessToken();
+    authService.clearTokenCache(UUID.randomUUID().toString());
+    authService.obtainAccessToken();
+
+    verifyTokenRequests(1);
+  }
+
+  @Test
+  public void shouldRequestTokenOnceForConcurrentCalls() throws Exception {
+    mockTokenResponse(ImmutableMap.of(
+        AuthService.ACCESS_TOKEN, TOKEN, AuthService.EXPIRES_IN, "3600"));
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<String>> tokens = Lists.newArrayList();
+
+    try {
+      for (int i = 0; i < threads; ++i) {
+        Callable<String> call = () -> {
+          start.await();
+          return authService.obtainAccessToken();
+        };
+
+        tokens.add(executor.submit(call));
+      }
+
+      start.countDown();
+
+      for (Future<String> token : tokens) {
+        assertThat(token.get(), is(equalTo(TOKEN)));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verifyTokenRequests(1);
+  }
+
+  private void setNow(Instant now) {
+    ReflectionTestUtils.setField(authService, "clock", Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  private void mockTokenResponse(Map<String, Object> body) {
+    ResponseEntity<Object> response = mock(ResponseEntity.class);
+
+    when(restTemplate.exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(response);
+
+    when(response.getBody()).thenReturn(body);
+  }
+
+  private void verifyTokenRequests(int times) {
+    verify(restTemplate, times(times)).exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    );
+  }
 }
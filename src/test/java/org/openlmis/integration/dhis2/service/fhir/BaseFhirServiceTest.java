@@ -16,9 +16,12 @@
 package org.openlmis.integration.dhis2.service.fhir;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import ca.uhn.fhir.rest.api.CacheControlDirective;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
@@ -30,7 +33,12 @@ import ca.uhn.fhir.rest.gclient.IRead;
 import ca.uhn.fhir.rest.gclient.IReadExecutable;
 import ca.uhn.fhir.rest.gclient.IReadTyped;
 import ca.uhn.fhir.rest.gclient.IUntypedQuery;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.assertj.core.util.Lists;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -38,6 +46,7 @@ import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.Bundle.BundleLinkComponent;
 import org.hl7.fhir.r4.model.Resource;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.mockito.Mock;
@@ -81,6 +90,8 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
   @Mock
   private CacheControlDirective cacheControl;
 
+  private ExecutorService pageExecutor = Executors.newCachedThreadPool();
+
   @Before
   public void setUp() {
     given(client.read()).willReturn(read);
@@ -95,6 +106,11 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
     given(query.returnBundle(Bundle.class)).willReturn(query);
   }
 
+  @After
+  public void tearDown() {
+    pageExecutor.shutdownNow();
+  }
+
   BaseFhirService<T> prepareService() {
     BaseFhirService<T> service = getService();
 
@@ -102,6 +118,9 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
     ReflectionTestUtils.setField(service, "fhirUrl", "http://localhost");
     ReflectionTestUtils.setField(service, "loggingEnable", true);
     ReflectionTestUtils.setField(service, "loggingVerbose", false);
+    ReflectionTestUtils.setField(service, "maxUrlLength", 2000);
+    ReflectionTestUtils.setField(service, "pageSize", 100);
+    ReflectionTestUtils.setField(service, "prefetchDepth", 2);
 
     // mock external service
     ReflectionTestUtils.setField(service, "authService", authService);
@@ -109,6 +128,7 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
     // mock fields that are generated in the afterPropertiesSet() method
     ReflectionTestUtils.setField(service, "client", client);
     ReflectionTestUtils.setField(service, "cacheControl", cacheControl);
+    ReflectionTestUtils.setField(service, "pageExecutor", pageExecutor);
 
     return service;
   }
@@ -118,6 +138,17 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
     given(readExecutable.execute()).willReturn(response);
   }
 
+  void mockReadWithRejectedToken(String id, T response) {
+    given(readTyped.withId(id)).willReturn(readExecutable);
+    given(readExecutable.execute())
+        .willThrow(new AuthenticationException())
+        .willReturn(response);
+  }
+
+  void verifyRead(int times) {
+    verify(readExecutable, times(times)).execute();
+  }
+
   void mockSearch(Bundle response, ICriterion where, ICriterion... and) {
     given(query.where(any(where.getClass()))).willReturn(query);
 
@@ -128,13 +159,46 @@ public abstract class BaseFhirServiceTest<T extends IBaseResource> {
     given(query.execute()).willReturn(response);
   }
 
-  void mockPages(Bundle first, Bundle second) {
-    given(first.getLink(IBaseBundle.LINK_NEXT)).willReturn(mock(BundleLinkComponent.class));
-    given(second.getLink(IBaseBundle.LINK_NEXT)).willReturn(null);
+  void mockLastUpdatedSearch(Bundle response) {
+    given(query.lastUpdated(any(DateRangeParam.class))).willReturn(query);
+    given(query.execute()).willReturn(response);
+  }
 
+  void verifySearch(int times) {
+    verify(query, times(times)).execute();
+  }
+
+  void mockPages(Bundle... pages) {
+    for (int i = 0; i < pages.length - 1; ++i) {
+      IGetPageTyped next = mock(IGetPageTyped.class);
+      given(next.execute()).willReturn(pages[i + 1]);
+
+      given(pages[i].getLink(IBaseBundle.LINK_NEXT)).willReturn(mock(BundleLinkComponent.class));
+      given(loadPage.next(pages[i])).willReturn(next);
+    }
+
+    given(pages[pages.length - 1].getLink(IBaseBundle.LINK_NEXT)).willReturn(null);
+  }
+
+  void mockPageError(Bundle page, RuntimeException exception) {
+    given(page.getLink(IBaseBundle.LINK_NEXT)).willReturn(mock(BundleLinkComponent.class));
+    given(loadPage.next(page)).willReturn(loadPageTyped);
+    given(loadPageTyped.execute()).willThrow(exception);
+  }
+
+  void mockPageListener(Bundle page, Bundle next, Runnable listener) {
+    IGetPageTyped loadNext = mock(IGetPageTyped.class);
+    willAnswer(invocation -> {
+      listener.run();
+      return next;
+    }).given(loadNext).execute();
+
+    given(loadPage.next(page)).willReturn(loadNext);
+  }
 
-    given(loadPage.next(first)).willReturn(loadPageTyped);
-    given(loadPageTyped.execute()).willReturn(second);
+  boolean awaitPrefetchEnd() throws InterruptedException {
+    pageExecutor.shutdown();
+    return pageExecutor.awaitTermination(5, TimeUnit.SECONDS);
   }
 
   Bundle createBundle(Resource... resources) {
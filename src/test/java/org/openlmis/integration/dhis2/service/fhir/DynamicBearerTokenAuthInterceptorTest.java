@@ -15,11 +15,14 @@
 
 package org.openlmis.integration.dhis2.service.fhir;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.client.api.IHttpRequest;
+import ca.uhn.fhir.rest.client.api.IHttpResponse;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +40,9 @@ public class DynamicBearerTokenAuthInterceptorTest {
   @Mock
   private IHttpRequest request;
 
+  @Mock
+  private IHttpResponse response;
+
   private DynamicBearerTokenAuthInterceptor authInterceptor;
 
   @Before
@@ -55,4 +61,26 @@ public class DynamicBearerTokenAuthInterceptorTest {
         Constants.HEADER_AUTHORIZATION,
         Constants.HEADER_AUTHORIZATION_VALPREFIX_BEARER + TOKEN);
   }
+
+  @Test
+  public void shouldDropRejectedToken() {
+    when(authService.obtainAccessToken()).thenReturn(TOKEN);
+    when(response.getStatus()).thenReturn(Constants.STATUS_HTTP_401_CLIENT_UNAUTHORIZED);
+
+    authInterceptor.interceptRequest(request);
+    authInterceptor.interceptResponse(response);
+
+    verify(authService).clearTokenCache(TOKEN);
+  }
+
+  @Test
+  public void shouldKeepAcceptedToken() {
+    when(authService.obtainAccessToken()).thenReturn(TOKEN);
+    when(response.getStatus()).thenReturn(Constants.STATUS_HTTP_200_OK);
+
+    authInterceptor.interceptRequest(request);
+    authInterceptor.interceptResponse(response);
+
+    verify(authService, never()).clearTokenCache(anyString());
+  }
 }
@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+package org.openlmis.integration.dhis2.service.fhir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.client.apache.ApacheRestfulClientFactory;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FhirClientConfigurationTest {
+
+  private FhirClientConfiguration configuration = new FhirClientConfiguration();
+  private CloseableHttpClient httpClient;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(configuration, "timeout", 1000);
+    ReflectionTestUtils.setField(configuration, "poolMaxTotal", 10);
+    ReflectionTestUtils.setField(configuration, "poolMaxPerRoute", 5);
+    ReflectionTestUtils.setField(configuration, "idleTimeout", 3000L);
+    ReflectionTestUtils.setField(configuration, "serverValidationMode",
+        ServerValidationModeEnum.NEVER);
+
+    httpClient = configuration.fhirHttpClient();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    httpClient.close();
+  }
+
+  @Test
+  public void shouldCreateR4Context() {
+    assertThat(configuration.fhirContext().getVersion().getVersion())
+        .isEqualTo(FhirVersionEnum.R4);
+  }
+
+  @Test
+  public void shouldRegisterClientFactoryInSharedContext() {
+    // given
+    FhirContext context = configuration.fhirContext();
+
+    // when
+    IRestfulClientFactory factory = configuration.fhirClientFactory(context, httpClient);
+
+    // then
+    assertThat(context.getRestfulClientFactory()).isSameAs(factory);
+    assertThat(((ApacheRestfulClientFactory) factory).getNativeHttpClient()).isSameAs(httpClient);
+    assertThat(factory.getServerValidationMode()).isEqualTo(ServerValidationModeEnum.NEVER);
+  }
+
+  @Test
+  public void shouldApplyTimeoutToSharedHttpClient() {
+    // when
+    RequestConfig config = ((Configurable) httpClient).getConfig();
+
+    // then
+    assertThat(config.getConnectTimeout()).isEqualTo(1000);
+    assertThat(config.getConnectionRequestTimeout()).isEqualTo(1000);
+    assertThat(config.getSocketTimeout()).isEqualTo(1000);
+  }
+
+}
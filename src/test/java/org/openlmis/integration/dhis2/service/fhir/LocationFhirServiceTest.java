@@ -16,13 +16,20 @@
 package org.openlmis.integration.dhis2.service.fhir;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 import ca.uhn.fhir.rest.gclient.ICriterion;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.assertj.core.util.Lists;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Location;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class LocationFhirServiceTest extends BaseFhirServiceTest<Location> {
 
@@ -59,6 +66,165 @@ public class LocationFhirServiceTest extends BaseFhirServiceTest<Location> {
     assertThat(found).isEqualTo(location);
   }
 
+  @Test
+  public void shouldRetryReadIfTokenHasBeenRejected() {
+    // given
+    mockReadWithRejectedToken(LOCATION_ID, location);
+
+    // when
+    Location found = service.getLocation(LOCATION_ID);
+
+    // then
+    assertThat(found).isEqualTo(location);
+    verifyRead(2);
+  }
+
+  @Test
+  public void shouldFindLocationsByIds() {
+    // given
+    Bundle bundle = createBundle(location);
+    mockSearch(bundle, Location.RES_ID.exactly().codes(LOCATION_ID));
+
+    // when
+    List<Location> found = service.getLocations(Lists.newArrayList(LOCATION_ID));
+
+    // then
+    assertThat(found).containsExactly(location);
+    verifySearch(1);
+  }
+
+  @Test
+  public void shouldSplitLocationIdsIfUrlIsTooLong() {
+    // given
+    ReflectionTestUtils.setField(service, "maxUrlLength", 200);
+
+    List<String> ids = Lists.newArrayList();
+    for (int i = 0; i < 10; ++i) {
+      ids.add(UUID.randomUUID().toString());
+    }
+
+    Bundle bundle = createBundle(location);
+    mockSearch(bundle, Location.RES_ID.exactly().codes(ids));
+
+    // when
+    service.getLocations(ids);
+
+    // then
+    verifySearch(4);
+  }
+
+  @Test
+  public void shouldPassLocationsUpdatedSinceTheGivenDate() {
+    // given
+    Bundle bundle = createBundle(location);
+    mockLastUpdatedSearch(bundle);
+
+    List<Location> found = Lists.newArrayList();
+
+    // when
+    service.forEachLocation(ZonedDateTime.now(), found::addAll);
+
+    // then
+    assertThat(found).containsExactly(location);
+  }
+
+  @Test
+  public void shouldPassPrefetchedPagesInOrder() {
+    // given
+    List<Location> locations = Lists.newArrayList();
+    Bundle[] pages = new Bundle[10];
+
+    for (int i = 0; i < pages.length; ++i) {
+      locations.add(new Location());
+      pages[i] = createBundle(locations.get(i));
+    }
+
+    mockLastUpdatedSearch(pages[0]);
+    mockPages(pages);
+
+    List<Location> found = Lists.newArrayList();
+
+    // when
+    service.forEachLocation(null, found::addAll);
+
+    // then
+    assertThat(found).containsExactlyElementsOf(locations);
+  }
+
+  @Test
+  public void shouldLoadPagesOneByOneIfPrefetchIsDisabled() {
+    // given
+    ReflectionTestUtils.setField(service, "prefetchDepth", 0);
+
+    Location other = new Location();
+    Bundle first = createBundle(location);
+    Bundle second = createBundle(other);
+
+    mockLastUpdatedSearch(first);
+    mockPages(first, second);
+
+    List<Location> found = Lists.newArrayList();
+
+    // when
+    service.forEachLocation(null, found::addAll);
+
+    // then
+    assertThat(found).containsExactly(location, other);
+  }
+
+  @Test
+  public void shouldRethrowErrorThrownWhileLoadingNextPage() {
+    // given
+    Bundle first = createBundle(location);
+    IllegalStateException error = new IllegalStateException("next page");
+
+    mockLastUpdatedSearch(first);
+    mockPageError(first, error);
+
+    List<Location> found = Lists.newArrayList();
+
+    // when
+    Throwable thrown = catchThrowable(() -> service.forEachLocation(null, found::addAll));
+
+    // then
+    assertThat(thrown).isSameAs(error);
+    assertThat(found).containsExactly(location);
+  }
+
+  @Test
+  public void shouldStopPrefetchingIfActionFailsWhenQueueIsFull() throws Exception {
+    // given
+    Bundle[] pages = new Bundle[10];
+
+    for (int i = 0; i < pages.length; ++i) {
+      pages[i] = createBundle(new Location());
+    }
+
+    mockLastUpdatedSearch(pages[0]);
+    mockPages(pages);
+
+    // the queue holds two pages so the third one waits for free space
+    CountDownLatch queueFull = new CountDownLatch(1);
+    mockPageListener(pages[2], pages[3], queueFull::countDown);
+
+    IllegalStateException error = new IllegalStateException("action");
+
+    // when
+    Throwable thrown = catchThrowable(() -> service.forEachLocation(null, found -> {
+      try {
+        queueFull.await();
+      } catch (InterruptedException exp) {
+        Thread.currentThread().interrupt();
+      }
+
+      throw error;
+    }));
+
+    // then
+    assertThat(thrown).isSameAs(error);
+    assertThat(awaitPrefetchEnd()).isTrue();
+  }
+
   @Test
   public void shouldFindLocationByIdentifier() {
     // given
@@ -16,6 +16,7 @@
 package org.openlmis.integration.dhis2.service.referencedata;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -74,4 +75,22 @@ public class PeriodReferenceDataServiceTest
             .hasQueryParameter("programId", programId);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldNotShareCachedPeriodsBetweenCallers() {
+    // given
+    LocalDate startDate = LocalDate.now().minusMonths(1);
+    UUID programId = UUID.randomUUID();
+    service.setResponseCache(createResponseCache());
+
+    ProcessingPeriodDto period = mockPageResponseEntityAndGetDto();
+    period.setName("January");
+
+    // when
+    service.search(startDate, programId).iterator().next().setName("changed");
+    Collection<ProcessingPeriodDto> result = service.search(startDate, programId);
+
+    // then
+    assertThat(result.iterator().next().getName(), is("January"));
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class DurationHistogramTest {
+
+  @Test
+  public void shouldPutDurationIntoFirstBucketThatCanHoldIt() {
+    assertThat(DurationHistogram.bucketOf(-5)).isEqualTo(0);
+    assertThat(DurationHistogram.bucketOf(0)).isEqualTo(0);
+    assertThat(DurationHistogram.bucketOf(1)).isEqualTo(0);
+    assertThat(DurationHistogram.bucketOf(2)).isEqualTo(1);
+    assertThat(DurationHistogram.bucketOf(1024)).isEqualTo(40);
+    assertThat(DurationHistogram.bucketOf(1025)).isEqualTo(41);
+  }
+
+  @Test
+  public void shouldPutLongDurationsIntoLastBucket() {
+    assertThat(DurationHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(DurationHistogram.MAX_BUCKET);
+  }
+
+  @Test
+  public void shouldKeepDurationsCloseToUpperBoundOfTheirBucket() {
+    for (long millis = 10; millis < 1_000_000; millis += 997) {
+      long upperBound = DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(millis));
+
+      assertThat(upperBound).isGreaterThanOrEqualTo(millis);
+      assertThat(upperBound).isLessThanOrEqualTo((long) Math.ceil(millis * 1.19));
+    }
+  }
+
+  @Test
+  public void shouldReadPercentiles() {
+    SortedMap<Integer, Long> counts = new TreeMap<>();
+    counts.put(DurationHistogram.bucketOf(100), 90L);
+    counts.put(DurationHistogram.bucketOf(2000), 9L);
+    counts.put(DurationHistogram.bucketOf(60000), 1L);
+
+    assertThat(DurationHistogram.percentile(counts, 0.5))
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(100)));
+    assertThat(DurationHistogram.percentile(counts, 0.95))
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(2000)));
+    assertThat(DurationHistogram.percentile(counts, 1))
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(60000)));
+  }
+
+  @Test
+  public void shouldReturnNullPercentileForEmptyHistogram() {
+    assertThat(DurationHistogram.percentile(new TreeMap<>(), 0.5)).isNull();
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class GzipUtilsTest {
+
+  private static final String TEXT = "{\"description\":\"Stock indicators for ąę period\"}";
+
+  @Test
+  public void shouldCompressAndDecompressText() {
+    byte[] compressed = GzipUtils.compress(TEXT);
+
+    assertThat(compressed[0]).isEqualTo((byte) 0x1f);
+    assertThat(compressed[1]).isEqualTo((byte) 0x8b);
+    assertThat(GzipUtils.decompress(compressed)).isEqualTo(TEXT);
+  }
+
+  @Test
+  public void shouldHandleNullValues() {
+    assertThat(GzipUtils.compress(null)).isNull();
+    assertThat(GzipUtils.decompress(null)).isNull();
+  }
+
+  @Test
+  public void shouldReadUncompressedSizeFromTrailer() {
+    byte[] compressed = GzipUtils.compress(TEXT);
+    long size = TEXT.getBytes(StandardCharsets.UTF_8).length;
+
+    assertThat(GzipUtils.getUncompressedSize(compressed)).isEqualTo(size);
+    assertThat(GzipUtils.getUncompressedSize(Arrays.copyOfRange(compressed,
+        compressed.length - GzipUtils.SIZE_TRAILER_LENGTH, compressed.length))).isEqualTo(size);
+  }
+
+  @Test
+  public void shouldReadUncompressedSizeAsUnsignedValue() {
+    byte[] trailer = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+
+    assertThat(GzipUtils.getUncompressedSize(trailer)).isEqualTo(0xFFFFFFFFL);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrowExceptionIfBytesAreNotCompressed() {
+    GzipUtils.decompress(TEXT.getBytes());
+  }
+}
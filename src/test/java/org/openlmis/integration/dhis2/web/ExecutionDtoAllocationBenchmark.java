@@ -0,0 +1,153 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import org.openlmis.integration.dhis2.ExecutionDataBuilder;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+
+/**
+ * Compares the memory allocated to turn one page of history rows into DTOs when rows are
+ * retrieved as maps (the former {@code new map(...)} query) and when they are passed straight
+ * to the {@link ExecutionDto} constructor. It is not a unit test, run its main method with the
+ * test classpath.
+ */
+public final class ExecutionDtoAllocationBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+  private static final int WARM_UP_PAGES = 20_000;
+  private static final int MEASURED_PAGES = 100_000;
+
+  private static final String[] ALIASES = {"id", "manualExecution", "programId", "facilityId",
+      "processingPeriodId", "status", "description", "targetUrl", "startDate", "endDate",
+      "userId", "responseDate", "statusCode", "body"};
+
+  // keeps the JIT from dropping the mapped pages
+  private static volatile int sink;
+
+  private ExecutionDtoAllocationBenchmark() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Prints the average number of bytes allocated per page for both approaches, for executions
+   * with and without a response. Decompressing response bodies costs the same in both cases.
+   */
+  public static void main(String[] args) {
+    printPage("with response", new ExecutionDataBuilder());
+    printPage("without response", new ExecutionDataBuilder().withoutResponse());
+  }
+
+  private static void printPage(String name, ExecutionDataBuilder builder) {
+    Object[][] columns = new Object[PAGE_SIZE][];
+
+    for (int i = 0; i < PAGE_SIZE; ++i) {
+      columns[i] = toColumns(builder.buildAsManual());
+    }
+
+    long mapBytes = measure(columns, ExecutionDtoAllocationBenchmark::viaMap);
+    long constructorBytes = measure(columns, ExecutionDtoAllocationBenchmark::viaConstructor);
+
+    System.out.printf("%s: map rows %,d bytes/page, constructor rows %,d bytes/page%n",
+        name, mapBytes, constructorBytes);
+  }
+
+  private static long measure(Object[][] columns, Function<Object[], ExecutionDto> mapper) {
+    runPages(columns, mapper, WARM_UP_PAGES);
+
+    long before = allocatedBytes();
+    runPages(columns, mapper, MEASURED_PAGES);
+
+    return (allocatedBytes() - before) / MEASURED_PAGES;
+  }
+
+  private static void runPages(Object[][] columns, Function<Object[], ExecutionDto> mapper,
+      int pages) {
+    int checksum = 0;
+
+    for (int page = 0; page < pages; ++page) {
+      List<ExecutionDto> content = new ArrayList<>(PAGE_SIZE);
+
+      for (Object[] row : columns) {
+        content.add(mapper.apply(row));
+      }
+
+      checksum += content.size();
+    }
+
+    sink += checksum;
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static Object[] toColumns(Execution execution) {
+    ExecutionDto dto = ExecutionDto.newInstance(execution);
+    ExecutionResponse response = execution.getResponse();
+
+    return new Object[]{dto.getId(), dto.isManualExecution(), dto.getProgramId(),
+        dto.getFacilityId(), dto.getProcessingPeriodId(), dto.getStatus(), dto.getDescription(),
+        dto.getTargetUrl(), dto.getStartDate(), dto.getEndDate(), dto.getUserId(),
+        null == response ? null : response.getResponseDate(),
+        null == response ? null : response.getStatusCode(),
+        null == response ? null : GzipUtils.compress(response.getBody())};
+  }
+
+  private static ExecutionDto viaConstructor(Object[] row) {
+    return new ExecutionDto((UUID) row[0], (Boolean) row[1], (UUID) row[2], (UUID) row[3],
+        (UUID) row[4], (ExecutionStatus) row[5], (String) row[6], (String) row[7],
+        (ZonedDateTime) row[8], (ZonedDateTime) row[9], (UUID) row[10],
+        (ZonedDateTime) row[11], (Integer) row[12], (byte[]) row[13]);
+  }
+
+  // the way rows were built by Hibernate for new map(...) and then copied into a DTO
+  private static ExecutionDto viaMap(Object[] row) {
+    Map<String, Object> map = new HashMap<>();
+
+    for (int i = 0; i < ALIASES.length; ++i) {
+      map.put(ALIASES[i], row[i]);
+    }
+
+    ExecutionResponseDto response = null;
+
+    if (null != map.get("responseDate")) {
+      response = new ExecutionResponseDto((ZonedDateTime) map.get("responseDate"),
+          (Integer) map.get("statusCode"), GzipUtils.decompress((byte[]) map.get("body")));
+    }
+
+    ExecutionDto dto = new ExecutionDto((Boolean) map.get("manualExecution"),
+        (UUID) map.get("programId"), (UUID) map.get("facilityId"),
+        (UUID) map.get("processingPeriodId"), (ExecutionStatus) map.get("status"),
+        (String) map.get("description"), (String) map.get("targetUrl"),
+        (ZonedDateTime) map.get("startDate"), (ZonedDateTime) map.get("endDate"),
+        (UUID) map.get("userId"), response);
+    dto.setId((UUID) map.get("id"));
+
+    return dto;
+  }
+}
@@ -15,12 +15,17 @@
 
 package org.openlmis.integration.dhis2.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
 
 import org.junit.Test;
 import org.openlmis.integration.dhis2.ExecutionDataBuilder;
 import org.openlmis.integration.dhis2.ToStringTestUtils;
+import org.openlmis.integration.dhis2.domain.Execution;
+import org.openlmis.integration.dhis2.domain.ExecutionResponse;
+import org.openlmis.integration.dhis2.util.GzipUtils;
 
 public class ExecutionDtoTest {
 
@@ -42,5 +47,32 @@ public class ExecutionDtoTest {
     ToStringTestUtils.verify(ExecutionDto.class, dto);
   }
 
+  @Test
+  public void shouldCreateInstanceFromColumns() {
+    Execution execution = new ExecutionDataBuilder().buildAsManual();
+    ExecutionResponse response = execution.getResponse();
+    ExecutionDto expected = ExecutionDto.newInstance(execution);
+
+    ExecutionDto dto = new ExecutionDto(execution.getId(), execution.isManualExecution(),
+        execution.getProgramId(), execution.getFacilityId(), execution.getProcessingPeriodId(),
+        execution.getStatus(), execution.getDescription(), execution.getTargetUrl(),
+        execution.getStartDate(), execution.getEndDate(), expected.getUserId(),
+        response.getResponseDate(), response.getStatusCode(),
+        GzipUtils.compress(response.getBody()));
+
+    assertThat(dto).isEqualTo(expected);
+  }
 
+  @Test
+  public void shouldCreateInstanceWithoutResponseFromColumns() {
+    Execution execution = new ExecutionDataBuilder().withoutResponse().buildAsAutomatic();
+
+    ExecutionDto dto = new ExecutionDto(execution.getId(), execution.isManualExecution(),
+        execution.getProgramId(), execution.getFacilityId(), execution.getProcessingPeriodId(),
+        execution.getStatus(), execution.getDescription(), execution.getTargetUrl(),
+        execution.getStartDate(), execution.getEndDate(), null, null, null, null);
+
+    assertThat(dto).isEqualTo(ExecutionDto.newInstance(execution));
+    assertThat(dto.getResponse()).isNull();
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.function.Consumer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.ExecutionDataBuilder;
+import org.openlmis.integration.dhis2.exception.ValidationMessageException;
+import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.repository.ExecutionSearchParams;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.LinkedMultiValueMap;
+
+public class ExecutionHistoryExporterTest {
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private ExecutionRepository executionRepository;
+
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  @InjectMocks
+  private ExecutionHistoryExporter exporter;
+
+  private ExecutionSearchParams params = new ExecutionSearchParams(new LinkedMultiValueMap<>());
+  private MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private ExecutionDto execution = ExecutionDto
+      .newInstance(new ExecutionDataBuilder().buildAsAutomatic());
+  private ExecutionDto execution1 = ExecutionDto
+      .newInstance(new ExecutionDataBuilder().withoutResponse().buildAsManual());
+
+  @Before
+  public void setUp() {
+    execution1.setDescription("manual, with \"quotes\"\nand new line");
+
+    willAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      Consumer<ExecutionDto> consumer = (Consumer<ExecutionDto>) invocation.getArguments()[1];
+      consumer.accept(execution);
+      consumer.accept(execution1);
+      return null;
+    }).given(executionRepository).scrollExcludingRequestBody(eq(params), any(Consumer.class));
+  }
+
+  @Test
+  public void shouldWriteOneJsonExecutionPerLine() throws IOException {
+    // when
+    exporter.export(params, ExecutionHistoryExporter.NDJSON_FORMAT, response);
+
+    // then
+    assertThat(response.getContentType()).startsWith(ExecutionHistoryExporter.NDJSON_CONTENT_TYPE);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+        .contains("executions.ndjson");
+
+    String[] lines = response.getContentAsString().split("\n");
+    assertThat(lines).hasSize(2);
+
+    JsonNode first = objectMapper.readTree(lines[0]);
+    JsonNode second = objectMapper.readTree(lines[1]);
+    assertThat(first.get("id").asText()).isEqualTo(execution.getId().toString());
+    assertThat(first.get("response").get("statusCode").asInt())
+        .isEqualTo(execution.getResponse().getStatusCode());
+    assertThat(second.get("id").asText()).isEqualTo(execution1.getId().toString());
+    assertThat(second.get("description").asText()).isEqualTo(execution1.getDescription());
+  }
+
+  @Test
+  public void shouldWriteCsvRecordPerExecution() throws IOException {
+    // when
+    exporter.export(params, ExecutionHistoryExporter.CSV_FORMAT, response);
+
+    // then
+    assertThat(response.getContentType()).startsWith(ExecutionHistoryExporter.CSV_CONTENT_TYPE);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("executions.csv");
+
+    List<CSVRecord> records = CSVFormat.DEFAULT
+        .withFirstRecordAsHeader()
+        .parse(new StringReader(response.getContentAsString()))
+        .getRecords();
+
+    assertThat(records).hasSize(2);
+    assertThat(records.get(0).get("id")).isEqualTo(execution.getId().toString());
+    assertThat(records.get(0).get("responseStatusCode"))
+        .isEqualTo(String.valueOf(execution.getResponse().getStatusCode()));
+    assertThat(records.get(1).get("id")).isEqualTo(execution1.getId().toString());
+    assertThat(records.get(1).get("description")).isEqualTo(execution1.getDescription());
+    assertThat(records.get(1).get("responseStatusCode")).isEmpty();
+  }
+
+  @Test
+  public void shouldRejectUnknownFormat() {
+    // when
+    Throwable thrown = catchThrowable(() -> exporter.export(params, "xml", response));
+
+    // then
+    assertThat(thrown).isInstanceOf(ValidationMessageException.class);
+    verifyZeroInteractions(executionRepository);
+  }
+
+}
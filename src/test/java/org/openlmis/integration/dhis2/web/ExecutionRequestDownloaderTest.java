@@ -0,0 +1,184 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.openlmis.integration.dhis2.exception.NotFoundException;
+import org.openlmis.integration.dhis2.repository.CompressedRequestBody;
+import org.openlmis.integration.dhis2.repository.ExecutionRepository;
+import org.openlmis.integration.dhis2.util.GzipUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ExecutionRequestDownloaderTest {
+
+  private static final UUID ID = UUID.randomUUID();
+  private static final String BODY = "{\"description\":\"Stock indicators\",\"facilities\":[]}";
+  private static final byte[] COMPRESSED = GzipUtils.compress(BODY);
+  private static final CompressedRequestBody COMPRESSED_BODY = new CompressedRequestBody(ID,
+      ZonedDateTime.now(), COMPRESSED.length);
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock
+  private ExecutionRepository executionRepository;
+
+  @InjectMocks
+  private ExecutionRequestDownloader downloader;
+
+  private MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Before
+  public void setUp() {
+    given(executionRepository.findCompressedRequestBody(ID)).willReturn(COMPRESSED_BODY);
+    given(executionRepository
+        .openCompressedRequestBody(eq(COMPRESSED_BODY), anyLong(), anyLong()))
+        .willAnswer(invocation -> {
+          long offset = (long) invocation.getArguments()[1];
+          long length = (long) invocation.getArguments()[2];
+
+          return new ByteArrayInputStream(COMPRESSED, (int) offset, (int) length);
+        });
+  }
+
+  @Test
+  public void shouldSendCompressedBodyIfClientAcceptsGzip() throws IOException {
+    // when
+    downloader.download(ID, "gzip, deflate", null, response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeader(HttpHeaders.CONTENT_LENGTH))
+        .isEqualTo(String.valueOf(COMPRESSED.length));
+    assertThat(response.getContentAsByteArray()).isEqualTo(COMPRESSED);
+  }
+
+  @Test
+  public void shouldSendDecompressedBodyIfClientDoesNotAcceptGzip() throws IOException {
+    // when
+    downloader.download(ID, null, null, response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getHeader(HttpHeaders.CONTENT_LENGTH))
+        .isEqualTo(String.valueOf(BODY.length()));
+    assertThat(response.getContentAsString()).isEqualTo(BODY);
+  }
+
+  @Test
+  public void shouldSendDecompressedBodyIfClientRejectsGzip() throws IOException {
+    // when
+    downloader.download(ID, "gzip;q=0, identity", null, response);
+
+    // then
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getContentAsString()).isEqualTo(BODY);
+  }
+
+  @Test
+  public void shouldSendRangeOfDecompressedBody() throws IOException {
+    // when
+    downloader.download(ID, null, "bytes=2-14", response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE))
+        .isEqualTo("bytes 2-14/" + BODY.length());
+    assertThat(response.getContentAsString()).isEqualTo(BODY.substring(2, 15));
+  }
+
+  @Test
+  public void shouldSendSuffixRangeOfDecompressedBody() throws IOException {
+    // when
+    downloader.download(ID, null, "bytes=-5", response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+    assertThat(response.getContentAsString()).isEqualTo(BODY.substring(BODY.length() - 5));
+  }
+
+  @Test
+  public void shouldSendRangeOfCompressedBody() throws IOException {
+    // when
+    downloader.download(ID, "gzip", "bytes=10-", response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE))
+        .isEqualTo("bytes 10-" + (COMPRESSED.length - 1) + "/" + COMPRESSED.length);
+    assertThat(response.getContentAsByteArray().length).isEqualTo(COMPRESSED.length - 10);
+  }
+
+  @Test
+  public void shouldSendWholeBodyIfSeveralRangesAreRequested() throws IOException {
+    // when
+    downloader.download(ID, null, "bytes=0-1, 5-6", response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(response.getContentAsString()).isEqualTo(BODY);
+  }
+
+  @Test
+  public void shouldIgnoreInvalidRange() throws IOException {
+    // when
+    downloader.download(ID, null, "lines=1-2", response);
+
+    // then
+    assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(response.getContentAsString()).isEqualTo(BODY);
+  }
+
+  @Test
+  public void shouldRejectRangeOutsideOfBody() throws IOException {
+    // when
+    downloader.download(ID, null, "bytes=1000-2000", response);
+
+    // then
+    assertThat(response.getStatus())
+        .isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE))
+        .isEqualTo("bytes */" + BODY.getBytes(StandardCharsets.UTF_8).length);
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void shouldThrowExceptionIfExecutionDoesNotExist() throws IOException {
+    given(executionRepository.findCompressedRequestBody(ID)).willReturn(null);
+
+    downloader.download(ID, null, null, response);
+  }
+}
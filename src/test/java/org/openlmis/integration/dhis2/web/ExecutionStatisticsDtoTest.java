@@ -0,0 +1,88 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.ToStringTestUtils;
+import org.openlmis.integration.dhis2.domain.ExecutionStatus;
+import org.openlmis.integration.dhis2.util.DurationHistogram;
+
+public class ExecutionStatisticsDtoTest {
+
+  private static final ZonedDateTime DATE = ZonedDateTime.parse("2019-10-15T10:00:00Z");
+
+  private ExecutionStatisticsDto statistics = new ExecutionStatisticsDto(
+      UUID.randomUUID(), "http://test.configuration");
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(ExecutionStatisticsDto.class)
+        .suppress(Warning.NONFINAL_FIELDS) // DTO fields cannot be final
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    ToStringTestUtils.verify(ExecutionStatisticsDto.class, statistics);
+  }
+
+  @Test
+  public void shouldCombineStatusStatistics() {
+    statistics.addStatusStatistics(ExecutionStatus.SUCCESS, 3, DATE, 3000, 1500, 600);
+    statistics.addStatusStatistics(ExecutionStatus.ERROR, 1, DATE.plusDays(1), 1000, 1000, 200);
+
+    assertThat(statistics.getExecutionCounts())
+        .containsOnly(entry(ExecutionStatus.SUCCESS, 3L), entry(ExecutionStatus.ERROR, 1L));
+    assertThat(statistics.getLastSuccessDate()).isEqualTo(DATE);
+    assertThat(statistics.getAveragePayloadSize()).isEqualTo(1000L);
+    assertThat(statistics.getMaxPayloadSize()).isEqualTo(1500L);
+    assertThat(statistics.getAverageCompressedPayloadSize()).isEqualTo(200L);
+  }
+
+  @Test
+  public void shouldReadDurationPercentilesFromHistogram() {
+    statistics.addDurations(DurationHistogram.bucketOf(100), 19);
+    statistics.addDurations(DurationHistogram.bucketOf(4000), 1);
+
+    assertThat(statistics.getP50Duration())
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(100)));
+    assertThat(statistics.getP95Duration())
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(100)));
+
+    statistics.addDurations(DurationHistogram.bucketOf(4000), 1);
+
+    assertThat(statistics.getP95Duration())
+        .isEqualTo(DurationHistogram.upperBoundOf(DurationHistogram.bucketOf(4000)));
+  }
+
+  @Test
+  public void shouldNotReturnAveragesWithoutExecutions() {
+    assertThat(statistics.getP50Duration()).isNull();
+    assertThat(statistics.getP95Duration()).isNull();
+    assertThat(statistics.getAveragePayloadSize()).isNull();
+    assertThat(statistics.getAverageCompressedPayloadSize()).isNull();
+    assertThat(statistics.getLastSuccessDate()).isNull();
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.integration.dhis2.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Test;
+import org.openlmis.integration.dhis2.ToStringTestUtils;
+
+public class HttpConnectionPoolDtoTest {
+
+  private PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+
+  @After
+  public void tearDown() {
+    pool.close();
+  }
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier
+        .forClass(HttpConnectionPoolDto.class)
+        .suppress(Warning.NONFINAL_FIELDS) // DTO fields cannot be final
+        .verify();
+  }
+
+  @Test
+  public void routeEqualsContract() {
+    EqualsVerifier
+        .forClass(HttpConnectionPoolDto.RouteDto.class)
+        .suppress(Warning.NONFINAL_FIELDS) // DTO fields cannot be final
+        .verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    HttpConnectionPoolDto dto = new HttpConnectionPoolDto();
+    ToStringTestUtils.verify(HttpConnectionPoolDto.class, dto);
+  }
+
+  @Test
+  public void routeShouldImplementToString() {
+    HttpConnectionPoolDto.RouteDto dto = new HttpConnectionPoolDto.RouteDto();
+    ToStringTestUtils.verify(HttpConnectionPoolDto.RouteDto.class, dto);
+  }
+
+  @Test
+  public void shouldExportPoolStatistics() throws Exception {
+    // given
+    pool.setMaxTotal(10);
+    pool.setDefaultMaxPerRoute(5);
+
+    HttpRoute route = new HttpRoute(new HttpHost("dhis2.example.org", 443, "https"));
+    HttpClientConnection connection = pool
+        .requestConnection(route, null)
+        .get(1, TimeUnit.SECONDS);
+
+    // when
+    HttpConnectionPoolDto dto = HttpConnectionPoolDto.newInstance(pool);
+
+    // then
+    assertThat(dto.getMaxTotal()).isEqualTo(10);
+    assertThat(dto.getDefaultMaxPerRoute()).isEqualTo(5);
+    assertThat(dto.getLeased()).isEqualTo(1);
+    assertThat(dto.getRoutes())
+        .containsExactly(new HttpConnectionPoolDto.RouteDto("https://dhis2.example.org:443",
+            5, 1, 0, 0));
+
+    pool.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+  }
+
+}
@@ -15,10 +15,15 @@
 
 package org.openlmis.integration.dhis2.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.integration.dhis2.OAuth2AuthenticationDataBuilder.SERVICE_CLIENT_ID;
 
+import java.util.UUID;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -26,14 +31,17 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.integration.dhis2.OAuth2AuthenticationDataBuilder;
 import org.openlmis.integration.dhis2.ObjectGenerator;
 import org.openlmis.integration.dhis2.i18n.MessageKeys;
+import org.openlmis.integration.dhis2.service.ResponseCache;
 import org.openlmis.integration.dhis2.service.ResultDto;
 import org.openlmis.integration.dhis2.service.referencedata.RightDto;
 import org.openlmis.integration.dhis2.service.referencedata.UserDto;
 import org.openlmis.integration.dhis2.service.referencedata.UserReferenceDataService;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -57,6 +65,9 @@ public class PermissionServiceTest {
   @Mock
   private SecurityContext securityContext;
 
+  @Spy
+  private ResponseCache responseCache = new ResponseCache();
+
   @InjectMocks
   private PermissionService permissionService;
 
@@ -76,6 +87,10 @@ public class PermissionServiceTest {
     rightDto = ObjectGenerator.of(RightDto.class);
 
     ReflectionTestUtils.setField(permissionService, "serviceTokenClientId", SERVICE_CLIENT_ID);
+
+    ReflectionTestUtils.setField(responseCache, "environment", new MockEnvironment());
+    ReflectionTestUtils.setField(responseCache, "defaultMaxSize", 10L);
+    ReflectionTestUtils.setField(responseCache, "defaultExpireAfter", 60000L);
   }
 
   @Test
@@ -113,6 +128,71 @@ public class PermissionServiceTest {
     permissionService.canManageDhis2();
   }
 
+  @Test
+  public void shouldReuseDecisionForTheSameUser() {
+    mockUserWithRight(true);
+
+    permissionService.canManageDhis2();
+    permissionService.canManageDhis2();
+
+    verify(authenticationHelper, times(1)).getCurrentUser();
+    verify(authenticationHelper, times(1)).getRight(DHIS_2_MANAGEMENT);
+    verify(userReferenceDataService, times(1))
+        .hasRight(userDto.getId(), rightDto.getId(), null, null, null);
+  }
+
+  @Test
+  public void shouldReuseNegativeDecisionForTheSameUser() {
+    mockUserWithRight(false);
+
+    catchThrowable(() -> permissionService.canManageDhis2());
+    Throwable thrown = catchThrowable(() -> permissionService.canManageDhis2());
+
+    assertThat(thrown).isInstanceOf(MissingPermissionException.class);
+    verify(userReferenceDataService, times(1))
+        .hasRight(userDto.getId(), rightDto.getId(), null, null, null);
+  }
+
+  @Test
+  public void shouldLookUpRightOnlyOnceAfterDecisionsAreEvicted() {
+    mockUserWithRight(true);
+
+    permissionService.canManageDhis2();
+    responseCache.evict(PermissionService.PERMISSIONS_CACHE);
+    permissionService.canManageDhis2();
+
+    verify(authenticationHelper, times(1)).getRight(DHIS_2_MANAGEMENT);
+    verify(userReferenceDataService, times(2))
+        .hasRight(userDto.getId(), rightDto.getId(), null, null, null);
+  }
+
+  @Test
+  public void shouldCheckRightAgainAfterUserDecisionsAreEvicted() {
+    UUID userId = UUID.randomUUID();
+    mockUserWithRight(true);
+    when(securityContext.getAuthentication())
+        .thenReturn(new OAuth2AuthenticationDataBuilder().buildUserAuthentication(userId));
+
+    permissionService.canManageDhis2();
+    permissionService.evictDecisions(UUID.randomUUID());
+    permissionService.canManageDhis2();
+    permissionService.evictDecisions(userId);
+    permissionService.canManageDhis2();
+
+    verify(userReferenceDataService, times(2))
+        .hasRight(userDto.getId(), rightDto.getId(), null, null, null);
+  }
+
+  private void mockUserWithRight(boolean hasRight) {
+    when(securityContext.getAuthentication()).thenReturn(userAuthentication);
+
+    when(authenticationHelper.getCurrentUser()).thenReturn(userDto);
+    when(authenticationHelper.getRight(eq(DHIS_2_MANAGEMENT))).thenReturn(rightDto);
+
+    when(userReferenceDataService.hasRight(userDto.getId(), rightDto.getId(), null, null, null))
+        .thenReturn(new ResultDto<>(hasRight));
+  }
+
   private void expectException() {
     exception.expect(MissingPermissionException.class);
     exception.expectMessage(MessageKeys.ERROR_PERMISSION_MISSING);